@@ -0,0 +1,13 @@
+package com.ifttt.groceryexpress
+
+import android.content.Intent
+
+/**
+ * Debug builds only: the benchmark module starts [MainActivity] with [EXTRA_API_URL] to run the app against a local
+ * API server. Release builds ignore the extra, see the release variant of this object.
+ */
+object ApiUrlOverride {
+    const val EXTRA_API_URL = "api_url"
+
+    fun fromIntent(intent: Intent): String? = intent.getStringExtra(EXTRA_API_URL)
+}
@@ -12,6 +12,7 @@ import androidx.appcompat.app.AlertDialog
 import androidx.appcompat.app.AppCompatActivity
 import androidx.appcompat.widget.Toolbar
 import com.google.android.material.textfield.TextInputLayout
+import com.ifttt.connect.ConnectionApiClient
 import com.ifttt.connect.ui.ConnectButton
 import com.ifttt.connect.ui.ConnectResult
 import com.ifttt.connect.ui.CredentialsProvider
@@ -49,18 +50,24 @@ class MainActivity : AppCompatActivity() {
             emailPreferencesHelper.getEmail()!!
         }
 
-        val configuration = ConnectButton.Configuration.Builder.withConnectionId(
+        val configurationBuilder = ConnectButton.Configuration.Builder.withConnectionId(
             CONNECTION_ID,
             suggestedEmail,
             credentialsProvider
             , REDIRECT_URI
         ).setOnFetchCompleteListener { connection ->
             findViewById<TextView>(R.id.connection_title).text = connection.name
-        }.build()
+        }
+
+        // The benchmark module runs debug builds against a local API server.
+        val apiUrl = ApiUrlOverride.fromIntent(intent)
+        if (apiUrl != null) {
+            configurationBuilder.setConnectionApiClient(ConnectionApiClient.Builder(this).setApiUrl(apiUrl).build())
+        }
 
-        connectButton.setup(configuration)
+        connectButton.setup(configurationBuilder.build())
 
-        if (!hasEmailSet) {
+        if (!hasEmailSet && apiUrl == null) {
             promptLogin()
         }
     }
@@ -0,0 +1,12 @@
+package com.ifttt.groceryexpress
+
+import android.content.Intent
+
+/**
+ * Release builds always use the production API: [MainActivity] is exported, and any app could otherwise send the
+ * user token to a server of its choice.
+ */
+object ApiUrlOverride {
+    @Suppress("UNUSED_PARAMETER")
+    fun fromIntent(intent: Intent): String? = null
+}
@@ -0,0 +1,126 @@
+package com.ifttt.groceryexpress.benchmark
+
+import android.app.Activity
+import android.app.Application
+import android.os.Bundle
+import android.os.SystemClock
+import android.view.View
+import android.view.ViewTreeObserver
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.ifttt.connect.testing.FakeIftttApiServer
+import com.ifttt.groceryexpress.MainActivity
+import com.ifttt.groceryexpress.R
+import org.junit.After
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures the time from starting [MainActivity] to the first frame of the ConnectButton, and to the frame where the
+ * Connection fetched from the local server is rendered.
+ *
+ * All of the launches run in the already started instrumentation process, so none of them is a cold start of the app.
+ * The first launch is reported separately, as it is the first time the ConnectButton classes are loaded and the API
+ * client is created. The following launches are reported as repeated launches.
+ */
+@RunWith(AndroidJUnit4::class)
+class ActivityLaunchBenchmark {
+
+    private val server = FakeIftttApiServer.Builder().build()
+
+    @Before
+    fun setUp() {
+        server.setUserLogin("benchmark")
+        server.start()
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    @Test
+    fun launchToConnectButtonRender() {
+        val first = launchAndMeasure()
+        reportMetric("launch_first_in_process_first_frame", first.firstFrameMs, "ms")
+        reportMetric("launch_first_in_process_connection_rendered", first.connectionRenderedMs, "ms")
+
+        val repeated = (1..REPEATED_ITERATIONS).map { launchAndMeasure() }
+        reportMetric("launch_repeated_first_frame_median",
+            repeated.map { it.firstFrameMs }.sorted().percentile(50), "ms")
+        reportMetric("launch_repeated_connection_rendered_median",
+            repeated.map { it.connectionRenderedMs }.sorted().percentile(50), "ms")
+    }
+
+    private fun launchAndMeasure(): LaunchTiming {
+        val instrumentation = InstrumentationRegistry.getInstrumentation()
+        val application = instrumentation.targetContext.applicationContext as Application
+        val firstFrame = CountDownLatch(1)
+        val connectionRendered = CountDownLatch(1)
+        var firstFrameTime = 0L
+        var connectionRenderedTime = 0L
+
+        val callbacks = object : Application.ActivityLifecycleCallbacks {
+            override fun onActivityCreated(activity: Activity, savedInstanceState: Bundle?) {
+                if (activity !is MainActivity) {
+                    return
+                }
+
+                val connectButton = activity.findViewById<View>(R.id.connect_button)
+                connectButton.viewTreeObserver.addOnDrawListener(object : ViewTreeObserver.OnDrawListener {
+                    override fun onDraw() {
+                        val now = SystemClock.uptimeMillis()
+                        if (firstFrameTime == 0L) {
+                            firstFrameTime = now
+                            firstFrame.countDown()
+                        }
+
+                        if (connectionRenderedTime == 0L && isConnectionRendered(activity)) {
+                            connectionRenderedTime = now
+                            connectionRendered.countDown()
+
+                            // Draw listeners cannot be removed while they are dispatched.
+                            val listener = this
+                            connectButton.post { connectButton.viewTreeObserver.removeOnDrawListener(listener) }
+                        }
+                    }
+                })
+            }
+
+            override fun onActivityStarted(activity: Activity) {}
+
+            override fun onActivityResumed(activity: Activity) {}
+
+            override fun onActivityPaused(activity: Activity) {}
+
+            override fun onActivityStopped(activity: Activity) {}
+
+            override fun onActivitySaveInstanceState(activity: Activity, outState: Bundle) {}
+
+            override fun onActivityDestroyed(activity: Activity) {}
+        }
+
+        application.registerActivityLifecycleCallbacks(callbacks)
+        val start = SystemClock.uptimeMillis()
+        val activity = instrumentation.startActivitySync(mainActivityIntent(server))
+        assertTrue(connectionRendered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+        assertTrue(firstFrame.await(0, TimeUnit.SECONDS))
+        application.unregisterActivityLifecycleCallbacks(callbacks)
+
+        activity.finish()
+        instrumentation.waitForIdleSync()
+
+        return LaunchTiming(firstFrameTime - start, connectionRenderedTime - start)
+    }
+
+    private class LaunchTiming(val firstFrameMs: Long, val connectionRenderedMs: Long)
+
+    private companion object {
+        const val REPEATED_ITERATIONS = 10
+        const val TIMEOUT_SECONDS = 10L
+    }
+}
@@ -0,0 +1,127 @@
+package com.ifttt.groceryexpress.benchmark
+
+import android.os.Build
+import android.os.ParcelFileDescriptor
+import android.os.Process
+import android.os.SystemClock
+import androidx.test.espresso.Espresso.onView
+import androidx.test.espresso.action.ViewActions.swipeLeft
+import androidx.test.espresso.matcher.ViewMatchers.withId
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.ifttt.connect.testing.FakeIftttApiServer
+import com.ifttt.groceryexpress.MainActivity
+import org.junit.After
+import org.junit.Assert.assertTrue
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.File
+
+/**
+ * Records the baseline profile of the connect-button library. The sample app's [MainActivity] loads the Connection
+ * from [FakeIftttApiServer], and the Connection is connected and disconnected a few times. The ART profile of the app
+ * is then dumped, and the rules for the library's classes are written to `baseline-prof.txt` in the app's external
+ * files directory.
+ *
+ * Dumping the profile of an app needs API 33 or above. Run this class on such a device, then copy the profile into
+ * the library with `./gradlew :benchmark:pullBaselineProfile`. The library packages it into its AAR.
+ */
+@RunWith(AndroidJUnit4::class)
+class BaselineProfileGenerator {
+
+    private val server = FakeIftttApiServer.Builder().build()
+
+    @Before
+    fun setUp() {
+        assumeTrue(Build.VERSION.SDK_INT >= API_33)
+        server.setUserLogin("benchmark")
+        server.start()
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    @Test
+    fun generate() {
+        val instrumentation = InstrumentationRegistry.getInstrumentation()
+        repeat(ITERATIONS) {
+            server.setConnectionStatus(SAMPLE_CONNECTION_ID, FakeIftttApiServer.STATUS_NEVER_ENABLED)
+            val activity = instrumentation.startActivitySync(mainActivityIntent(server)) as MainActivity
+            waitUntil { isConnectionRendered(activity) }
+
+            server.setConnectionStatus(SAMPLE_CONNECTION_ID, FakeIftttApiServer.STATUS_ENABLED)
+            deliverCompleteResult()
+            SystemClock.sleep(ANIMATION_DURATION_MS)
+
+            onView(withId(com.ifttt.connect.R.id.ifttt_button_root)).perform(swipeLeft())
+            SystemClock.sleep(ANIMATION_DURATION_MS)
+
+            activity.finish()
+            instrumentation.waitForIdleSync()
+        }
+
+        // Ask ART to write the profile of the running process, like androidx.profileinstaller does.
+        Process.sendSignal(Process.myPid(), SIGNAL_USR1)
+        SystemClock.sleep(PROFILE_SAVE_DELAY_MS)
+
+        val packageName = instrumentation.targetContext.packageName
+        executeShellCommand("pm dump-profiles --dump-classes-and-methods $packageName")
+        val profile = executeShellCommand("cat /data/misc/profman/$packageName-primary.prof.txt")
+        val rules = profile.lineSequence().filter { isLibraryRule(it) }.toSortedSet()
+        assertTrue("The profile has no rules for the connect-button library.", rules.isNotEmpty())
+
+        val output = File(instrumentation.targetContext.getExternalFilesDir(null), PROFILE_FILE_NAME)
+        output.writeText(rules.joinToString(separator = "\n", postfix = "\n"))
+        reportMetric("baseline_profile_rules", rules.size, "rules")
+    }
+
+    private fun isLibraryRule(rule: String): Boolean {
+        // Method rules start with their flags, for example "HSPLcom/ifttt/connect/ui/ConnectButton;->..."
+        val descriptor = rule.trimStart('H', 'S', 'P')
+        return descriptor.startsWith(LIBRARY_PREFIX)
+                && !descriptor.startsWith(TEST_FIXTURES_PREFIX)
+                && !descriptor.startsWith(RESOURCES_CLASS)
+                && !descriptor.startsWith(RESOURCES_INNER_CLASS_PREFIX)
+    }
+
+    private fun executeShellCommand(command: String): String {
+        val output = InstrumentationRegistry.getInstrumentation().uiAutomation.executeShellCommand(command)
+        return ParcelFileDescriptor.AutoCloseInputStream(output).bufferedReader().use { it.readText() }
+    }
+
+    private fun waitUntil(condition: () -> Boolean) {
+        val instrumentation = InstrumentationRegistry.getInstrumentation()
+        val deadline = SystemClock.uptimeMillis() + TIMEOUT_MS
+        while (SystemClock.uptimeMillis() < deadline) {
+            var satisfied = false
+            instrumentation.runOnMainSync { satisfied = condition() }
+            if (satisfied) {
+                return
+            }
+
+            SystemClock.sleep(POLL_INTERVAL_MS)
+        }
+
+        throw AssertionError("Timed out waiting for the ConnectButton to render the Connection.")
+    }
+
+    private companion object {
+        const val API_33 = 33
+        const val SIGNAL_USR1 = 10
+        const val ITERATIONS = 5
+        const val ANIMATION_DURATION_MS = 3000L
+        const val PROFILE_SAVE_DELAY_MS = 1000L
+        const val TIMEOUT_MS = 10_000L
+        const val POLL_INTERVAL_MS = 50L
+
+        const val PROFILE_FILE_NAME = "baseline-prof.txt"
+        const val LIBRARY_PREFIX = "Lcom/ifttt/connect/"
+        const val TEST_FIXTURES_PREFIX = "Lcom/ifttt/connect/testing/"
+        const val RESOURCES_CLASS = "Lcom/ifttt/connect/R;"
+        const val RESOURCES_INNER_CLASS_PREFIX = "Lcom/ifttt/connect/R\$"
+    }
+}
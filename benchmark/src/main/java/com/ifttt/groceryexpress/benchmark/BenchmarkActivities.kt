@@ -0,0 +1,49 @@
+package com.ifttt.groceryexpress.benchmark
+
+import android.content.Intent
+import android.net.Uri
+import android.view.View
+import androidx.test.platform.app.InstrumentationRegistry
+import com.ifttt.connect.testing.FakeIftttApiServer
+import com.ifttt.groceryexpress.ApiUrlOverride
+import com.ifttt.groceryexpress.MainActivity
+import com.ifttt.groceryexpress.R
+
+/**
+ * Id of the Connection shown by the sample app's [MainActivity].
+ */
+const val SAMPLE_CONNECTION_ID = "fWj4fxYg"
+
+/**
+ * Intent that starts the sample app's [MainActivity] against the given local API server. The API URL is only read by
+ * debug builds of the app, which the benchmarks are run against.
+ */
+fun mainActivityIntent(server: FakeIftttApiServer): Intent {
+    val context = InstrumentationRegistry.getInstrumentation().targetContext
+    return Intent(context, MainActivity::class.java)
+        .putExtra(ApiUrlOverride.EXTRA_API_URL, server.url())
+        .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK)
+}
+
+/**
+ * Deliver a successful connect result to the running [MainActivity], the same way the web flow redirects back to the
+ * app when the Connection has been enabled.
+ */
+fun deliverCompleteResult() {
+    val context = InstrumentationRegistry.getInstrumentation().targetContext
+    val uri = Uri.parse("groceryexpress://connectcallback?next_step=complete&user_token=benchmark_token")
+    val intent = Intent(Intent.ACTION_VIEW, uri)
+        .setPackage(context.packageName)
+        .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK)
+    context.startActivity(intent)
+}
+
+/**
+ * @return True if the ConnectButton in the Activity has finished loading and is showing the Connection.
+ */
+fun isConnectionRendered(activity: MainActivity): Boolean {
+    val connectButton = activity.findViewById<View>(R.id.connect_button)
+    val button = connectButton.findViewById<View>(com.ifttt.connect.R.id.ifttt_connect_button)
+    val loadingView = connectButton.findViewById<View>(com.ifttt.connect.R.id.ifttt_loading_view)
+    return button != null && button.isShown && loadingView.visibility != View.VISIBLE
+}
@@ -0,0 +1,132 @@
+package com.ifttt.groceryexpress.benchmark
+
+import android.os.Build
+import android.os.Debug
+import android.os.SystemClock
+import androidx.test.espresso.Espresso.onView
+import androidx.test.espresso.action.ViewActions.swipeLeft
+import androidx.test.espresso.action.ViewActions.swipeRight
+import androidx.test.espresso.matcher.ViewMatchers.withId
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.ifttt.connect.testing.FakeIftttApiServer
+import com.ifttt.groceryexpress.MainActivity
+import org.junit.After
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Measures frame timing of the ConnectButton animations, and the memory usage after repeatedly connecting and
+ * disconnecting the Connection. The sample app runs against [FakeIftttApiServer].
+ */
+@RunWith(AndroidJUnit4::class)
+class ConnectFlowBenchmark {
+
+    private val server = FakeIftttApiServer.Builder().build()
+    private lateinit var activity: MainActivity
+
+    @Before
+    fun setUp() {
+        server.setUserLogin("benchmark")
+        server.start()
+
+        val instrumentation = InstrumentationRegistry.getInstrumentation()
+        activity = instrumentation.startActivitySync(mainActivityIntent(server)) as MainActivity
+        waitUntil { isConnectionRendered(activity) }
+    }
+
+    @After
+    fun tearDown() {
+        activity.finish()
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+        server.shutdown()
+    }
+
+    @Test
+    fun slideToConnect() {
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.N)
+
+        val recorder = FrameRecorder(activity)
+        recorder.start()
+        onView(withId(com.ifttt.connect.R.id.ifttt_button_root)).perform(swipeRight())
+        SystemClock.sleep(ANIMATION_DURATION_MS)
+        recorder.stopAndReport("slide_to_connect")
+    }
+
+    @Test
+    fun completeAnimation() {
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.N)
+
+        val recorder = FrameRecorder(activity)
+        recorder.start()
+        server.setConnectionStatus(SAMPLE_CONNECTION_ID, FakeIftttApiServer.STATUS_ENABLED)
+        deliverCompleteResult()
+        SystemClock.sleep(ANIMATION_DURATION_MS)
+        recorder.stopAndReport("complete")
+    }
+
+    @Test
+    fun memoryAfterConnectDisconnectCycles() {
+        val pssBefore = totalPssKb()
+        val javaHeapBefore = usedJavaHeapKb()
+
+        repeat(CONNECT_CYCLES) {
+            server.setConnectionStatus(SAMPLE_CONNECTION_ID, FakeIftttApiServer.STATUS_ENABLED)
+            deliverCompleteResult()
+            SystemClock.sleep(ANIMATION_DURATION_MS)
+
+            // Slide the icon back to disable the Connection.
+            onView(withId(com.ifttt.connect.R.id.ifttt_button_root)).perform(swipeLeft())
+            SystemClock.sleep(ANIMATION_DURATION_MS)
+        }
+
+        reportMetric("connect_cycles", CONNECT_CYCLES, "cycles")
+        reportMetric("connect_cycles_total_pss_delta", totalPssKb() - pssBefore, "kB")
+        reportMetric("connect_cycles_java_heap_delta", usedJavaHeapKb() - javaHeapBefore, "kB")
+    }
+
+    private fun totalPssKb(): Int {
+        forceGc()
+        val memoryInfo = Debug.MemoryInfo()
+        Debug.getMemoryInfo(memoryInfo)
+        return memoryInfo.totalPss
+    }
+
+    private fun usedJavaHeapKb(): Long {
+        forceGc()
+        val runtime = Runtime.getRuntime()
+        return (runtime.totalMemory() - runtime.freeMemory()) / 1024
+    }
+
+    private fun forceGc() {
+        repeat(2) {
+            Runtime.getRuntime().gc()
+            System.runFinalization()
+        }
+    }
+
+    private fun waitUntil(condition: () -> Boolean) {
+        val instrumentation = InstrumentationRegistry.getInstrumentation()
+        val deadline = SystemClock.uptimeMillis() + TIMEOUT_MS
+        while (SystemClock.uptimeMillis() < deadline) {
+            var satisfied = false
+            instrumentation.runOnMainSync { satisfied = condition() }
+            if (satisfied) {
+                return
+            }
+
+            SystemClock.sleep(POLL_INTERVAL_MS)
+        }
+
+        throw AssertionError("Timed out waiting for the ConnectButton to render the Connection.")
+    }
+
+    private companion object {
+        const val ANIMATION_DURATION_MS = 3000L
+        const val CONNECT_CYCLES = 10
+        const val TIMEOUT_MS = 10_000L
+        const val POLL_INTERVAL_MS = 50L
+    }
+}
@@ -0,0 +1,75 @@
+package com.ifttt.groceryexpress.benchmark
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.ifttt.connect.Connection
+import com.ifttt.connect.ConnectionApiClient
+import com.ifttt.connect.testing.FakeIftttApiServer
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.Collections
+import java.util.IdentityHashMap
+
+/**
+ * Measures the Java heap used by a few hundred Connections fetched from [FakeIftttApiServer] and held in memory, for
+ * example by an app listing all of its Connections. All of the Connections have the same services and a cover image.
+ */
+@RunWith(AndroidJUnit4::class)
+class ConnectionMemoryBenchmark {
+
+    private val server = FakeIftttApiServer.Builder().build()
+    private lateinit var client: ConnectionApiClient
+
+    @Before
+    fun setUp() {
+        server.start()
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        client = ConnectionApiClient.Builder(context).setApiUrl(server.url()).build()
+    }
+
+    @After
+    fun tearDown() {
+        server.shutdown()
+    }
+
+    @Test
+    fun heldConnections() {
+        // Warm up the client and the JSON adapters, so that their allocations are not counted.
+        fetchConnection("warm_up")
+
+        val javaHeapBefore = usedJavaHeapBytes()
+        val connections = (1..CONNECTION_COUNT).map { fetchConnection("connection_$it") }
+        val javaHeapAfter = usedJavaHeapBytes()
+        assertEquals(CONNECTION_COUNT, connections.size)
+
+        val serviceInstances = Collections.newSetFromMap(IdentityHashMap<Any, Boolean>())
+        connections.forEach { serviceInstances.addAll(it.services) }
+
+        reportMetric("held_connections", CONNECTION_COUNT, "connections")
+        reportMetric("held_connections_java_heap", (javaHeapAfter - javaHeapBefore) / 1024, "kB")
+        reportMetric("held_connections_java_heap_per_connection",
+            (javaHeapAfter - javaHeapBefore) / CONNECTION_COUNT, "B")
+        reportMetric("held_connections_service_instances", serviceInstances.size, "instances")
+    }
+
+    private fun fetchConnection(id: String): Connection {
+        return client.api().showConnection(id).call.execute().body()!!
+    }
+
+    private fun usedJavaHeapBytes(): Long {
+        repeat(2) {
+            Runtime.getRuntime().gc()
+            System.runFinalization()
+        }
+
+        val runtime = Runtime.getRuntime()
+        return runtime.totalMemory() - runtime.freeMemory()
+    }
+
+    private companion object {
+        const val CONNECTION_COUNT = 300
+    }
+}
@@ -0,0 +1,48 @@
+package com.ifttt.groceryexpress.benchmark
+
+import android.app.Activity
+import androidx.core.app.FrameMetricsAggregator
+import androidx.test.platform.app.InstrumentationRegistry
+
+/**
+ * Records the duration of the frames rendered by an Activity, using [FrameMetricsAggregator]. Frame metrics are only
+ * available on API 24 and above.
+ */
+class FrameRecorder(private val activity: Activity) {
+
+    private val aggregator = FrameMetricsAggregator(FrameMetricsAggregator.TOTAL_DURATION)
+
+    fun start() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync { aggregator.add(activity) }
+    }
+
+    /**
+     * Stop recording and report the frame statistics under the given name.
+     */
+    fun stopAndReport(name: String) {
+        var durations = emptyList<Long>()
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val histogram = aggregator.remove(activity)?.get(FrameMetricsAggregator.TOTAL_INDEX)
+            aggregator.stop()
+
+            // The histogram maps frame durations in milliseconds to the number of frames.
+            val frames = ArrayList<Long>()
+            if (histogram != null) {
+                for (i in 0 until histogram.size()) {
+                    repeat(histogram.valueAt(i)) { frames.add(histogram.keyAt(i).toLong()) }
+                }
+            }
+            durations = frames.sorted()
+        }
+
+        reportMetric("${name}_frame_count", durations.size, "frames")
+        reportMetric("${name}_janky_frames", durations.count { it > FRAME_BUDGET_MS }, "frames")
+        reportMetric("${name}_frame_duration_p50", durations.percentile(50), "ms")
+        reportMetric("${name}_frame_duration_p90", durations.percentile(90), "ms")
+        reportMetric("${name}_frame_duration_p99", durations.percentile(99), "ms")
+    }
+
+    private companion object {
+        const val FRAME_BUDGET_MS = 16L
+    }
+}
@@ -0,0 +1,35 @@
+package com.ifttt.groceryexpress.benchmark
+
+import android.app.Instrumentation
+import android.os.Bundle
+import android.util.Log
+import androidx.test.platform.app.InstrumentationRegistry
+
+private const val TAG = "ConnectBenchmark"
+private const val STATUS_METRIC = 2
+
+/**
+ * Report a benchmark metric to logcat and to the instrumentation output, so that it shows up in the results of
+ * `adb shell am instrument -r`.
+ */
+fun reportMetric(name: String, value: Number, unit: String) {
+    val line = "$name: $value $unit"
+    Log.i(TAG, line)
+
+    val bundle = Bundle()
+    bundle.putString(Instrumentation.REPORT_KEY_STREAMRESULT, "$line\n")
+    bundle.putString(name, value.toString())
+    InstrumentationRegistry.getInstrumentation().sendStatus(STATUS_METRIC, bundle)
+}
+
+/**
+ * Return the given percentile of a sorted list of values.
+ */
+fun List<Long>.percentile(percentile: Int): Long {
+    if (isEmpty()) {
+        return 0L
+    }
+
+    val index = Math.ceil(percentile / 100.0 * size).toInt() - 1
+    return this[index.coerceIn(0, size - 1)]
+}
@@ -0,0 +1,223 @@
+package com.ifttt.connect;
+
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import com.ifttt.connect.api.ConnectionList;
+import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonDataException;
+import com.squareup.moshi.JsonReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.Response;
+
+/**
+ * Implementation of {@link ConnectionList} on top of the cursor based /v2/me/connections endpoint. A page of the
+ * response looks like:
+ * <pre>
+ * {
+ *   "data": [ connection, connection, ... ],
+ *   "next_cursor": "cursor of the next page, or null for the last page"
+ * }
+ * </pre>
+ *
+ * The response body is read on a worker thread with a streaming {@link JsonReader}, and every Connection is posted to
+ * the main thread as soon as it is parsed.
+ */
+final class ApiConnectionList implements ConnectionList {
+
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+    private static final JsonReader.Options PAGE_FIELDS = JsonReader.Options.of("data", "next_cursor");
+
+    private final RetrofitConnectionApi retrofitConnectionApi;
+    private final JsonAdapter<ErrorResponse> errorResponseJsonAdapter;
+    private final JsonAdapter<Connection> connectionJsonAdapter;
+    private final int pageSize;
+    private final int prefetchDistance;
+    private final Listener listener;
+
+    private final List<Connection> connections = new ArrayList<>();
+    @Nullable private String nextCursor;
+    private boolean hasMore = true;
+
+    // Position of the first Connection of the page being loaded. If a page load fails, the Connections it has already
+    // delivered are skipped when it is loaded again.
+    private int pageStart;
+
+    @Nullable private Call<ResponseBody> ongoingCall;
+    // Incremented for every page load and cancellation, results of older loads are dropped.
+    private int generation;
+    // Set when a page load fails, pages are then only loaded with an explicit call to loadMore().
+    private boolean failed;
+
+    ApiConnectionList(RetrofitConnectionApi retrofitConnectionApi, JsonAdapter<ErrorResponse> errorResponseJsonAdapter,
+            JsonAdapter<Connection> connectionJsonAdapter, int pageSize, Listener listener) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive.");
+        }
+
+        this.retrofitConnectionApi = retrofitConnectionApi;
+        this.errorResponseJsonAdapter = errorResponseJsonAdapter;
+        this.connectionJsonAdapter = connectionJsonAdapter;
+        this.pageSize = pageSize;
+        this.prefetchDistance = Math.max(1, pageSize / 2);
+        this.listener = listener;
+    }
+
+    @Override
+    public void loadMore() {
+        if (!hasMore || ongoingCall != null) {
+            return;
+        }
+
+        failed = false;
+        int pageGeneration = ++generation;
+        Call<ResponseBody> call = retrofitConnectionApi.listConnections(nextCursor, pageSize);
+        ongoingCall = call;
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(() -> loadPage(call, pageGeneration));
+    }
+
+    @Override
+    public int size() {
+        return connections.size();
+    }
+
+    @Override
+    public Connection get(int position) {
+        Connection connection = connections.get(position);
+        if (!failed && position >= connections.size() - prefetchDistance) {
+            loadMore();
+        }
+
+        return connection;
+    }
+
+    @Override
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    @Override
+    public boolean isLoading() {
+        return ongoingCall != null;
+    }
+
+    @Override
+    public void cancel() {
+        if (ongoingCall == null) {
+            return;
+        }
+
+        generation++;
+        ongoingCall.cancel();
+        ongoingCall = null;
+    }
+
+    // Called on a worker thread.
+    private void loadPage(Call<ResponseBody> call, int pageGeneration) {
+        Response<ResponseBody> response;
+        try {
+            response = call.execute();
+        } catch (IOException e) {
+            MAIN_HANDLER.post(() -> onPageFailed(pageGeneration, ApiPendingResult.UNEXPECTED_ERROR_RESPONSE));
+            return;
+        }
+
+        if (!response.isSuccessful()) {
+            ErrorResponse errorResponse =
+                    ApiPendingResult.parseErrorResponse(errorResponseJsonAdapter, response.errorBody());
+            MAIN_HANDLER.post(() -> onPageFailed(pageGeneration, errorResponse));
+            return;
+        }
+
+        ResponseBody body = response.body();
+        if (body == null) {
+            MAIN_HANDLER.post(() -> onPageFailed(pageGeneration, ApiPendingResult.UNEXPECTED_ERROR_RESPONSE));
+            return;
+        }
+
+        try {
+            JsonReader reader = JsonReader.of(body.source());
+            String cursor = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.selectName(PAGE_FIELDS)) {
+                    case 0: {
+                        int index = 0;
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            Connection connection = connectionJsonAdapter.fromJson(reader);
+                            if (connection == null) {
+                                // Null entries are skipped, and don't take a position in the list.
+                                continue;
+                            }
+
+                            int indexInPage = index++;
+                            MAIN_HANDLER.post(() -> onConnectionParsed(pageGeneration, indexInPage, connection));
+                        }
+                        reader.endArray();
+                        break;
+                    }
+                    case 1: {
+                        cursor = reader.peek() == JsonReader.Token.NULL ? reader.<String>nextNull()
+                                : reader.nextString();
+                        break;
+                    }
+                    default: {
+                        reader.skipName();
+                        reader.skipValue();
+                    }
+                }
+            }
+            reader.endObject();
+
+            String pageCursor = cursor;
+            MAIN_HANDLER.post(() -> onPageParsed(pageGeneration, pageCursor));
+        } catch (IOException | JsonDataException e) {
+            MAIN_HANDLER.post(() -> onPageFailed(pageGeneration, ApiPendingResult.UNEXPECTED_ERROR_RESPONSE));
+        } finally {
+            body.close();
+        }
+    }
+
+    private void onConnectionParsed(int pageGeneration, int indexInPage, Connection connection) {
+        if (pageGeneration != generation) {
+            return;
+        }
+
+        int position = pageStart + indexInPage;
+        if (position < connections.size()) {
+            // Already delivered by a previous attempt to load this page.
+            return;
+        }
+
+        connections.add(connection);
+        listener.onConnectionLoaded(position, connection);
+    }
+
+    private void onPageParsed(int pageGeneration, @Nullable String cursor) {
+        if (pageGeneration != generation) {
+            return;
+        }
+
+        ongoingCall = null;
+        pageStart = connections.size();
+        nextCursor = cursor;
+        hasMore = cursor != null;
+        listener.onPageLoaded(hasMore);
+    }
+
+    private void onPageFailed(int pageGeneration, ErrorResponse errorResponse) {
+        if (pageGeneration != generation) {
+            return;
+        }
+
+        ongoingCall = null;
+        failed = true;
+        listener.onFailure(errorResponse);
+    }
+}
@@ -2,7 +2,10 @@ package com.ifttt.connect;
 
 import com.ifttt.connect.api.PendingResult;
 import com.squareup.moshi.JsonAdapter;
+import com.squareup.moshi.JsonDataException;
 import java.io.IOException;
+import javax.annotation.Nullable;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.Callback;
 import retrofit2.Response;
@@ -12,7 +15,7 @@ import retrofit2.Response;
  */
 final class ApiPendingResult<T> implements PendingResult<T> {
 
-    private static final ErrorResponse UNEXPECTED_ERROR_RESPONSE = new ErrorResponse("exception", "Unexpected error");
+    static final ErrorResponse UNEXPECTED_ERROR_RESPONSE = new ErrorResponse("exception", "Unexpected error");
 
     private final Call<T> originalCall;
     private final JsonAdapter<ErrorResponse> errorResponseJsonAdapter;
@@ -33,18 +36,7 @@ final class ApiPendingResult<T> implements PendingResult<T> {
             @Override
             public void onResponse(Call<T> call, Response<T> response) {
                 if (!response.isSuccessful()) {
-                    try {
-                        ErrorResponse errorResponse = errorResponseJsonAdapter.fromJson(response.errorBody().source());
-                        if (errorResponse == null) {
-                            callback.onFailure(UNEXPECTED_ERROR_RESPONSE);
-                            return;
-                        }
-
-                        callback.onFailure(errorResponse);
-                    } catch (IOException e) {
-                        callback.onFailure(UNEXPECTED_ERROR_RESPONSE);
-                    }
-
+                    callback.onFailure(parseErrorResponse(errorResponseJsonAdapter, response.errorBody()));
                     return;
                 }
 
@@ -68,4 +60,24 @@ final class ApiPendingResult<T> implements PendingResult<T> {
     public void cancel() {
         originalCall.cancel();
     }
+
+    /**
+     * @return The ErrorResponse in the body of an unsuccessful response, or {@link #UNEXPECTED_ERROR_RESPONSE} if the
+     * body cannot be read.
+     */
+    static ErrorResponse parseErrorResponse(JsonAdapter<ErrorResponse> errorResponseJsonAdapter,
+            @Nullable ResponseBody errorBody) {
+        if (errorBody == null) {
+            return UNEXPECTED_ERROR_RESPONSE;
+        }
+
+        try {
+            ErrorResponse errorResponse = errorResponseJsonAdapter.fromJson(errorBody.source());
+            return errorResponse == null ? UNEXPECTED_ERROR_RESPONSE : errorResponse;
+        } catch (IOException | JsonDataException e) {
+            return UNEXPECTED_ERROR_RESPONSE;
+        } finally {
+            errorBody.close();
+        }
+    }
 }
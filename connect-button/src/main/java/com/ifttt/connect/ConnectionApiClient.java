@@ -5,6 +5,7 @@ import android.content.Context;
 import android.provider.Settings;
 import androidx.annotation.MainThread;
 import com.ifttt.connect.api.ConnectionApi;
+import com.ifttt.connect.api.ConnectionList;
 import com.ifttt.connect.api.PendingResult;
 import com.squareup.moshi.JsonAdapter;
 import com.squareup.moshi.Moshi;
@@ -24,12 +25,34 @@ import retrofit2.converter.moshi.MoshiConverterFactory;
  */
 public final class ConnectionApiClient {
 
+    /**
+     * Listener for changes of the user token of a ConnectionApiClient.
+     */
+    public interface UserTokenListener {
+
+        /**
+         * Called when the user token is changed with {@link #setUserToken(String)}, on the thread that changed it.
+         * GET requests that are in flight at that moment are re-issued with the new token.
+         *
+         * @param userToken The new user token, or null if it has been cleared.
+         */
+        void onUserTokenChanged(@Nullable String userToken);
+    }
+
     private final ConnectionApi connectionApi;
+    private final RetrofitConnectionApi retrofitConnectionApi;
+    private final JsonAdapter<ErrorResponse> errorResponseJsonAdapter;
+    private final JsonAdapter<Connection> connectionJsonAdapter;
     private final TokenInterceptor tokenInterceptor;
+    private final String apiUrl;
 
     private ConnectionApiClient(RetrofitConnectionApi retrofitConnectionApi, JsonAdapter<ErrorResponse> errorResponseJsonAdapter,
-            TokenInterceptor tokenInterceptor) {
+            JsonAdapter<Connection> connectionJsonAdapter, TokenInterceptor tokenInterceptor, String apiUrl) {
+        this.retrofitConnectionApi = retrofitConnectionApi;
+        this.errorResponseJsonAdapter = errorResponseJsonAdapter;
+        this.connectionJsonAdapter = connectionJsonAdapter;
         this.tokenInterceptor = tokenInterceptor;
+        this.apiUrl = apiUrl;
         connectionApi = new ConnectionApiImpl(retrofitConnectionApi, errorResponseJsonAdapter);
     }
 
@@ -40,11 +63,52 @@ public final class ConnectionApiClient {
         return connectionApi;
     }
 
+    /**
+     * API for listing the Connections of the current user, one page at a time. The first page is loaded right away.
+     *
+     * @param pageSize Number of Connections per page.
+     * @param listener Listener for the Connections and pages as they are loaded.
+     * @return A {@link ConnectionList} that loads the following pages on demand.
+     */
+    @MainThread
+    public ConnectionList listConnections(int pageSize, ConnectionList.Listener listener) {
+        ApiConnectionList connectionList =
+                new ApiConnectionList(retrofitConnectionApi, errorResponseJsonAdapter, connectionJsonAdapter, pageSize,
+                        listener);
+        connectionList.loadMore();
+        return connectionList;
+    }
+
+    /**
+     * API for disabling a Connection in the background, for when the UI already shows it as disabled. Unlike
+     * {@link ConnectionApi#disableConnection(String)}, requests that fail because of the network or a server error are
+     * retried with an exponential backoff, and the failure is only reported once all of the attempts have failed.
+     * Client errors, such as the Connection not being found, are reported right away. Cancelling the PendingResult
+     * stops the retries.
+     *
+     * @param id Connection id.
+     * @return A {@link PendingResult} for the API call execution, to be executed on the main thread.
+     */
+    @MainThread
+    public PendingResult<Connection> disableConnectionWithRetry(String id) {
+        return new RetryingPendingResult<>(retrofitConnectionApi.disableConnection(id), errorResponseJsonAdapter);
+    }
+
+    /**
+     * @return The base URL of the IFTTT API used by this client, see {@link Builder#setApiUrl(String)}.
+     */
+    @CheckReturnValue
+    public String getApiUrl() {
+        return apiUrl;
+    }
+
     /**
      * Pass in a non-null String as the user token. A user token may be used to make API calls to IFTTT API, so that
      * the response will contain user-specific information.
      *
      * After setting the user token, the same ConnectionApiClient will start using it in all of the subsequent API calls.
+     * GET requests that are in flight when the token changes are transparently re-issued with the new token, so that
+     * their results reflect the current user.
      *
      * @param userToken A user token String, cannot be null.
      */
@@ -53,6 +117,23 @@ public final class ConnectionApiClient {
         tokenInterceptor.setToken(userToken);
     }
 
+    /**
+     * Register a listener to be notified when the user token of this ConnectionApiClient changes.
+     *
+     * @param listener UserTokenListener instance.
+     */
+    public void addUserTokenListener(UserTokenListener listener) {
+        tokenInterceptor.addListener(listener);
+    }
+
+    /**
+     * @param listener UserTokenListener instance previously registered with
+     * {@link #addUserTokenListener(UserTokenListener)}.
+     */
+    public void removeUserTokenListener(UserTokenListener listener) {
+        tokenInterceptor.removeListener(listener);
+    }
+
     /**
      * @return true if this instance of ConnectionApiClient has a user token, or false otherwise.
      */
@@ -70,6 +151,7 @@ public final class ConnectionApiClient {
         private final String anonymousId;
 
         @Nullable private String inviteCode;
+        private String apiUrl = "https://api.ifttt.com";
 
         /**
          * @param context Context instance used to generate an anonymous id using the device's {@link Settings.Secure#ANDROID_ID}.
@@ -91,13 +173,26 @@ public final class ConnectionApiClient {
             return this;
         }
 
+        /**
+         * Use a different base URL for the IFTTT API. This is meant for tests and benchmarks that run against a local
+         * server, apps should not need to call this.
+         *
+         * @param apiUrl Base URL of the API, for example "http://localhost:8080".
+         */
+        public Builder setApiUrl(String apiUrl) {
+            this.apiUrl = apiUrl;
+            return this;
+        }
+
         public ConnectionApiClient build() {
             Moshi moshi = new Moshi.Builder().add(new HexColorJsonAdapter())
                     .add(Date.class, new Rfc3339DateJsonAdapter().nullSafe())
                     .add(new ConnectionJsonAdapter())
+                    .add(new CoverImageJsonAdapter())
                     .add(new UserTokenJsonAdapter())
                     .build();
             JsonAdapter<ErrorResponse> errorResponseJsonAdapter = moshi.adapter(ErrorResponse.class);
+            JsonAdapter<Connection> connectionJsonAdapter = moshi.adapter(Connection.class);
             TokenInterceptor tokenInterceptor = new TokenInterceptor(null);
             OkHttpClient.Builder builder =
                     new OkHttpClient.Builder().addInterceptor(new SdkInfoInterceptor(anonymousId))
@@ -109,13 +204,14 @@ public final class ConnectionApiClient {
 
             OkHttpClient okHttpClient = builder.build();
             Retrofit retrofit = new Retrofit.Builder().addConverterFactory(MoshiConverterFactory.create(moshi))
-                    .baseUrl("https://api.ifttt.com")
+                    .baseUrl(apiUrl)
                     .client(okHttpClient)
                     .build();
 
             RetrofitConnectionApi retrofitConnectionApi = retrofit.create(RetrofitConnectionApi.class);
 
-            return new ConnectionApiClient(retrofitConnectionApi, errorResponseJsonAdapter, tokenInterceptor);
+            return new ConnectionApiClient(retrofitConnectionApi, errorResponseJsonAdapter, connectionJsonAdapter,
+                    tokenInterceptor, apiUrl);
         }
     }
 
@@ -24,7 +24,7 @@ final class ConnectionJsonAdapter {
         }
 
         return new Connection(connectionJson.id, connectionJson.name, connectionJson.description, status,
-                connectionJson.url, connectionJson.services, connectionJson.cover_image,
+                connectionJson.url, ServiceInterner.intern(connectionJson.services), connectionJson.cover_image,
                 connectionJson.value_propositions);
     }
 
@@ -2,59 +2,148 @@ package com.ifttt.connect;
 
 import android.os.Parcel;
 import android.os.Parcelable;
-import com.squareup.moshi.Json;
+import androidx.annotation.VisibleForTesting;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
 
 /**
  * Cover image data structure for a Connection, including image URLs for different dimensions.
+ *
+ * The URLs of the image variants usually only differ by the width of the variant, in which case they are stored as a
+ * single template, and built on demand.
  */
 public final class CoverImage implements Parcelable {
-    /**
-     * URL String for cover image in 480x240.
-     */
-    @Json(name = "480w_url") final String imageUrl480w;
 
-    /**
-     * URL String for cover image in 720x360.
-     */
-    @Json(name = "720w_url") final String imageUrl720w;
+    // Widths of the image variants in pixels, the images have a 2:1 aspect ratio.
+    private static final int[] WIDTHS = { 480, 720, 1080, 1440, 2880, 4320 };
 
-    /**
-     * URL String for cover image in 1080x540.
-     */
-    @Json(name = "1080w_url") final String imageUrl1080w;
+    // The parts of the URLs before and after the width, if all of the URLs follow the same template.
+    @Nullable private final String urlPrefix;
+    @Nullable private final String urlSuffix;
+
+    // URLs of the image variants, ordered by width, if they don't follow a template.
+    @Nullable private final String[] urls;
+
+    public CoverImage(String imageUrl480w, String imageUrl720w, String imageUrl1080w, String imageUrl1440w,
+            String imageUrl2880w, String imageUrl4320w) {
+        this(new String[] { imageUrl480w, imageUrl720w, imageUrl1080w, imageUrl1440w, imageUrl2880w,
+                imageUrl4320w });
+    }
+
+    private CoverImage(String[] urls) {
+        int widthIndex = findWidthIndex(urls);
+        if (widthIndex >= 0) {
+            String smallestUrl = urls[0];
+            urlPrefix = smallestUrl.substring(0, widthIndex);
+            urlSuffix = smallestUrl.substring(widthIndex + String.valueOf(WIDTHS[0]).length());
+            this.urls = null;
+        } else {
+            urlPrefix = null;
+            urlSuffix = null;
+            this.urls = urls;
+        }
+    }
+
+    private CoverImage(@Nullable String urlPrefix, @Nullable String urlSuffix, @Nullable String[] urls) {
+        this.urlPrefix = urlPrefix;
+        this.urlSuffix = urlSuffix;
+        this.urls = urls;
+    }
 
     /**
-     * URL String for cover image in 1440x720.
+     * Select the smallest image variant that covers a target size, for example the size of the View that displays the
+     * image, in pixels. Using the pixel size means that the display density is taken into account: a View that is 360dp
+     * wide needs the 720w variant on an xhdpi display and the 1080w variant on an xxhdpi display.
+     *
+     * The images have a 2:1 aspect ratio, a target taller than half its width needs a wider image to be covered.
+     *
+     * @param targetWidth Target width in pixels.
+     * @param targetHeight Target height in pixels, or 0 if only the width should be covered.
+     * @return URL of the smallest image variant covering the target size, or the largest variant if none of them does.
      */
-    @Json(name = "1440w_url") final String imageUrl1440w;
+    public String getImageUrl(int targetWidth, int targetHeight) {
+        return getImageUrl(getVariantIndex(targetWidth, targetHeight));
+    }
 
     /**
-     * URL String for cover image in 2880x1440.
+     * @return URLs of all image variants, ordered from the smallest to the largest.
      */
-    @Json(name = "2880w_url") final String imageUrl2880w;
+    public List<String> getImageUrls() {
+        String[] imageUrls = new String[WIDTHS.length];
+        for (int i = 0; i < WIDTHS.length; i++) {
+            imageUrls[i] = getImageUrl(i);
+        }
+
+        return Collections.unmodifiableList(Arrays.asList(imageUrls));
+    }
+
+    @VisibleForTesting
+    boolean isCompact() {
+        return urls == null;
+    }
+
+    private String getImageUrl(int variantIndex) {
+        if (urls != null) {
+            return urls[variantIndex];
+        }
+
+        return urlPrefix + WIDTHS[variantIndex] + urlSuffix;
+    }
 
     /**
-     * URL String for cover image in 4320x2160.
+     * @return The index of the width in the URL of the smallest variant, if replacing it with the other widths gives
+     * the URLs of the other variants. -1 otherwise.
      */
-    @Json(name = "4320w_url") final String imageUrl4320w;
+    private static int findWidthIndex(String[] urls) {
+        String smallestUrl = urls[0];
+        if (smallestUrl == null) {
+            return -1;
+        }
 
-    public CoverImage(String imageUrl480w, String imageUrl720w, String imageUrl1080w, String imageUrl1440w,
-            String imageUrl2880w, String imageUrl4320w) {
-        this.imageUrl480w = imageUrl480w;
-        this.imageUrl720w = imageUrl720w;
-        this.imageUrl1080w = imageUrl1080w;
-        this.imageUrl1440w = imageUrl1440w;
-        this.imageUrl2880w = imageUrl2880w;
-        this.imageUrl4320w = imageUrl4320w;
+        String smallestWidth = String.valueOf(WIDTHS[0]);
+        int index = smallestUrl.lastIndexOf(smallestWidth);
+        while (index >= 0) {
+            String prefix = smallestUrl.substring(0, index);
+            String suffix = smallestUrl.substring(index + smallestWidth.length());
+            if (matchesTemplate(urls, prefix, suffix)) {
+                return index;
+            }
+
+            index = index == 0 ? -1 : smallestUrl.lastIndexOf(smallestWidth, index - 1);
+        }
+
+        return -1;
+    }
+
+    private static boolean matchesTemplate(String[] urls, String prefix, String suffix) {
+        for (int i = 1; i < WIDTHS.length; i++) {
+            String url = urls[i];
+            String width = String.valueOf(WIDTHS[i]);
+            if (url == null || url.length() != prefix.length() + width.length() + suffix.length()
+                    || !url.startsWith(prefix) || !url.endsWith(suffix)
+                    || !url.regionMatches(prefix.length(), width, 0, width.length())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    static int getVariantIndex(int targetWidth, int targetHeight) {
+        int requiredWidth = Math.max(targetWidth, targetHeight * 2);
+        for (int i = 0; i < WIDTHS.length; i++) {
+            if (WIDTHS[i] >= requiredWidth) {
+                return i;
+            }
+        }
+
+        return WIDTHS.length - 1;
     }
 
     protected CoverImage(Parcel in) {
-        imageUrl480w = in.readString();
-        imageUrl720w = in.readString();
-        imageUrl1080w = in.readString();
-        imageUrl1440w = in.readString();
-        imageUrl2880w = in.readString();
-        imageUrl4320w = in.readString();
+        this(in.readString(), in.readString(), in.createStringArray());
     }
 
     public static final Creator<CoverImage> CREATOR = new Creator<CoverImage>() {
@@ -76,18 +165,13 @@ public final class CoverImage implements Parcelable {
 
     @Override
     public void writeToParcel(Parcel dest, int flags) {
-        dest.writeString(imageUrl480w);
-        dest.writeString(imageUrl720w);
-        dest.writeString(imageUrl1080w);
-        dest.writeString(imageUrl1440w);
-        dest.writeString(imageUrl2880w);
-        dest.writeString(imageUrl4320w);
+        dest.writeString(urlPrefix);
+        dest.writeString(urlSuffix);
+        dest.writeStringArray(urls);
     }
 
     @Override
     public String toString() {
-        return "CoverImage{" + "imageUrl480w='" + imageUrl480w + '\'' + ", imageUrl720w='" + imageUrl720w + '\''
-                + ", imageUrl1080w='" + imageUrl1080w + '\'' + ", imageUrl1440w='" + imageUrl1440w + '\''
-                + ", imageUrl2880w='" + imageUrl2880w + '\'' + ", imageUrl4320w='" + imageUrl4320w + '\'' + '}';
+        return "CoverImage{" + "imageUrls=" + getImageUrls() + '}';
     }
 }
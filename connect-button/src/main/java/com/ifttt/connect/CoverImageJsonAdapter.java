@@ -0,0 +1,42 @@
+package com.ifttt.connect;
+
+import com.squareup.moshi.FromJson;
+import com.squareup.moshi.Json;
+import com.squareup.moshi.JsonWriter;
+import com.squareup.moshi.ToJson;
+
+/**
+ * JSON adapter for the {@link CoverImage} of a Connection, which stores its URLs in a compact form.
+ */
+final class CoverImageJsonAdapter {
+
+    @FromJson
+    CoverImage fromJson(CoverImageJson coverImageJson) {
+        return new CoverImage(coverImageJson.imageUrl480w, coverImageJson.imageUrl720w, coverImageJson.imageUrl1080w,
+                coverImageJson.imageUrl1440w, coverImageJson.imageUrl2880w, coverImageJson.imageUrl4320w);
+    }
+
+    @ToJson
+    void toJson(JsonWriter jsonWriter, CoverImage coverImage) {
+        throw new UnsupportedOperationException();
+    }
+
+    static final class CoverImageJson {
+        @Json(name = "480w_url") final String imageUrl480w;
+        @Json(name = "720w_url") final String imageUrl720w;
+        @Json(name = "1080w_url") final String imageUrl1080w;
+        @Json(name = "1440w_url") final String imageUrl1440w;
+        @Json(name = "2880w_url") final String imageUrl2880w;
+        @Json(name = "4320w_url") final String imageUrl4320w;
+
+        CoverImageJson(String imageUrl480w, String imageUrl720w, String imageUrl1080w, String imageUrl1440w,
+                String imageUrl2880w, String imageUrl4320w) {
+            this.imageUrl480w = imageUrl480w;
+            this.imageUrl720w = imageUrl720w;
+            this.imageUrl1080w = imageUrl1080w;
+            this.imageUrl1440w = imageUrl1440w;
+            this.imageUrl2880w = imageUrl2880w;
+            this.imageUrl4320w = imageUrl4320w;
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package com.ifttt.connect;
 
+import javax.annotation.Nullable;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.GET;
 import retrofit2.http.POST;
 import retrofit2.http.Path;
+import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 
 /**
  * Connection API endpoints.
@@ -18,4 +22,9 @@ interface RetrofitConnectionApi {
 
     @GET("/v2/me")
     Call<User> user();
+
+    // The response body is parsed as it is downloaded, see ApiConnectionList.
+    @Streaming
+    @GET("/v2/me/connections")
+    Call<ResponseBody> listConnections(@Nullable @Query("cursor") String cursor, @Query("limit") int limit);
 }
@@ -0,0 +1,122 @@
+package com.ifttt.connect;
+
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.VisibleForTesting;
+import com.ifttt.connect.api.PendingResult;
+import com.squareup.moshi.JsonAdapter;
+import javax.annotation.Nullable;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * {@link PendingResult} that retries the API call when it fails because of the network or a server error, with an
+ * exponential backoff. The failure is only reported once all of the attempts have failed. Client errors, such as the
+ * resource not being found, are reported right away, as retrying them cannot succeed.
+ */
+final class RetryingPendingResult<T> implements PendingResult<T> {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY = 1000L;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Call<T> originalCall;
+    private final JsonAdapter<ErrorResponse> errorResponseJsonAdapter;
+
+    @Nullable private Call<T> ongoingCall;
+    @Nullable private Runnable pendingRetry;
+    private boolean cancelled;
+
+    RetryingPendingResult(Call<T> originalCall, JsonAdapter<ErrorResponse> errorResponseJsonAdapter) {
+        this.originalCall = originalCall;
+        this.errorResponseJsonAdapter = errorResponseJsonAdapter;
+    }
+
+    @Override
+    public Call<T> getCall() {
+        return originalCall;
+    }
+
+    @Override
+    public void execute(ResultCallback<T> callback) {
+        enqueue(originalCall, 1, callback);
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        if (pendingRetry != null) {
+            handler.removeCallbacks(pendingRetry);
+            pendingRetry = null;
+        }
+
+        if (ongoingCall != null) {
+            ongoingCall.cancel();
+            ongoingCall = null;
+        }
+    }
+
+    private void enqueue(Call<T> call, int attempt, ResultCallback<T> callback) {
+        ongoingCall = call;
+        call.enqueue(new Callback<T>() {
+            @Override
+            public void onResponse(Call<T> call, Response<T> response) {
+                if (!response.isSuccessful()) {
+                    ErrorResponse errorResponse =
+                            ApiPendingResult.parseErrorResponse(errorResponseJsonAdapter, response.errorBody());
+                    onAttemptFailed(attempt, isRetryable(response.code()), errorResponse, callback);
+                    return;
+                }
+
+                ongoingCall = null;
+                T result = response.body();
+                if (result == null) {
+                    callback.onFailure(ApiPendingResult.UNEXPECTED_ERROR_RESPONSE);
+                    return;
+                }
+
+                callback.onSuccess(result);
+            }
+
+            @Override
+            public void onFailure(Call<T> call, Throwable t) {
+                if (cancelled) {
+                    return;
+                }
+
+                onAttemptFailed(attempt, true, ApiPendingResult.UNEXPECTED_ERROR_RESPONSE, callback);
+            }
+        });
+    }
+
+    private void onAttemptFailed(int attempt, boolean retryable, ErrorResponse errorResponse,
+            ResultCallback<T> callback) {
+        ongoingCall = null;
+        if (!retryable || attempt >= MAX_ATTEMPTS) {
+            callback.onFailure(errorResponse);
+            return;
+        }
+
+        // A Call can only be executed once, retry with a copy of the original one.
+        pendingRetry = () -> {
+            pendingRetry = null;
+            enqueue(originalCall.clone(), attempt + 1, callback);
+        };
+        handler.postDelayed(pendingRetry, getRetryDelay(attempt));
+    }
+
+    @VisibleForTesting
+    static long getRetryDelay(int attempt) {
+        return RETRY_DELAY << (attempt - 1);
+    }
+
+    /**
+     * @return True if a request that failed with the HTTP status code can succeed when it is retried: server errors,
+     * request timeouts and rate limiting.
+     */
+    @VisibleForTesting
+    static boolean isRetryable(int statusCode) {
+        return statusCode >= 500 || statusCode == 408 || statusCode == 429;
+    }
+}
@@ -0,0 +1,62 @@
+package com.ifttt.connect;
+
+import androidx.collection.LruCache;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Process wide pool of {@link Service} instances, so that the Connections parsed from the API share the instances of
+ * the services they have in common, for example the owner service that appears in all of its Connections, instead of
+ * each holding its own copy.
+ *
+ * A Service is only replaced by a pooled instance with the same values. Services are pooled by id separately for
+ * primary and non-primary services, as the same service can be either depending on the Connection.
+ */
+final class ServiceInterner {
+
+    // Upper bound of pooled services of each kind, apps usually work with a handful of services.
+    private static final int MAX_SIZE = 64;
+
+    private static final LruCache<String, Service> PRIMARY_SERVICES = new LruCache<>(MAX_SIZE);
+    private static final LruCache<String, Service> SERVICES = new LruCache<>(MAX_SIZE);
+
+    static List<Service> intern(List<Service> services) {
+        List<Service> interned = new ArrayList<>(services.size());
+        for (Service service : services) {
+            interned.add(intern(service));
+        }
+
+        return interned;
+    }
+
+    static Service intern(Service service) {
+        LruCache<String, Service> pool = service.isPrimary ? PRIMARY_SERVICES : SERVICES;
+        Service pooled = pool.get(service.id);
+        if (pooled != null && hasSameValues(pooled, service)) {
+            return pooled;
+        }
+
+        // The service has changed, or is new: use it from now on.
+        pool.put(service.id, service);
+        return service;
+    }
+
+    private static boolean hasSameValues(Service first, Service second) {
+        return first.isPrimary == second.isPrimary
+                && first.brandColor == second.brandColor
+                && equal(first.id, second.id)
+                && equal(first.name, second.name)
+                && equal(first.shortName, second.shortName)
+                && equal(first.monochromeIconUrl, second.monochromeIconUrl)
+                && equal(first.url, second.url);
+    }
+
+    private static boolean equal(@Nullable String first, @Nullable String second) {
+        return first == null ? second == null : first.equals(second);
+    }
+
+    private ServiceInterner() {
+        throw new AssertionError("No instance.");
+    }
+}
@@ -1,34 +1,113 @@
 package com.ifttt.connect;
 
+import androidx.annotation.VisibleForTesting;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.annotation.Nullable;
 import okhttp3.Interceptor;
+import okhttp3.Request;
 import okhttp3.Response;
 
 /**
  * {@link Interceptor} for setting user authentication header.
+ *
+ * The token is stored along with a version number, which is incremented every time the token changes. The token can
+ * be changed from any thread while requests are in flight: if the token changes before the response of a GET request
+ * is returned, the response may not reflect the current user, and the request is re-issued with the new token.
+ * Other requests are not re-issued, as they are not safe to repeat.
  */
 final class TokenInterceptor implements Interceptor {
-    @Nullable private String token;
+
+    // Upper bound of re-issues per request, in case the token keeps changing.
+    private static final int MAX_REISSUES = 2;
+
+    private final AtomicReference<TokenState> state;
+    private final List<ConnectionApiClient.UserTokenListener> listeners = new CopyOnWriteArrayList<>();
 
     TokenInterceptor(@Nullable String token) {
-        this.token = token;
+        state = new AtomicReference<>(new TokenState(token, 0));
     }
 
-    void setToken(String token) {
-        this.token = token;
+    /**
+     * Update the token. The version is only incremented, and the listeners only notified, if the token is different
+     * from the current one.
+     */
+    void setToken(@Nullable String token) {
+        TokenState current;
+        do {
+            current = state.get();
+            if (current.token == null ? token == null : current.token.equals(token)) {
+                return;
+            }
+        } while (!state.compareAndSet(current, new TokenState(token, current.version + 1)));
+
+        for (ConnectionApiClient.UserTokenListener listener : listeners) {
+            listener.onUserTokenChanged(token);
+        }
     }
 
     boolean isUserAuthenticated() {
-        return token != null;
+        return state.get().token != null;
+    }
+
+    @VisibleForTesting
+    long getTokenVersion() {
+        return state.get().version;
+    }
+
+    void addListener(ConnectionApiClient.UserTokenListener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(ConnectionApiClient.UserTokenListener listener) {
+        listeners.remove(listener);
     }
 
     @Override
     public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        TokenState requestState = state.get();
+        Response response = chain.proceed(authenticate(request, requestState.token));
+        if (!isReissuable(request)) {
+            return response;
+        }
+
+        for (int i = 0; i < MAX_REISSUES; i++) {
+            TokenState currentState = state.get();
+            if (currentState.version == requestState.version) {
+                break;
+            }
+
+            // The token has changed while the request was in flight, the response is stale.
+            response.close();
+            requestState = currentState;
+            response = chain.proceed(authenticate(request, requestState.token));
+        }
+
+        return response;
+    }
+
+    private static Request authenticate(Request request, @Nullable String token) {
         if (token == null) {
-            return chain.proceed(chain.request());
+            return request;
         }
 
-        return chain.proceed(chain.request().newBuilder().addHeader("Authorization", "Bearer " + token).build());
+        return request.newBuilder().addHeader("Authorization", "Bearer " + token).build();
+    }
+
+    private static boolean isReissuable(Request request) {
+        return "GET".equals(request.method()) || "HEAD".equals(request.method());
+    }
+
+    private static final class TokenState {
+        @Nullable final String token;
+        final long version;
+
+        TokenState(@Nullable String token, long version) {
+            this.token = token;
+            this.version = version;
+        }
     }
 }
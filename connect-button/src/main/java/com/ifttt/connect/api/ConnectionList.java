@@ -0,0 +1,97 @@
+package com.ifttt.connect.api;
+
+import androidx.annotation.MainThread;
+import com.ifttt.connect.Connection;
+import com.ifttt.connect.ErrorResponse;
+import javax.annotation.CheckReturnValue;
+
+/**
+ * A list of the current user's Connections, loaded lazily one page at a time from IFTTT API.
+ *
+ * Each page is parsed as it is downloaded, and its Connections are delivered to the {@link Listener} one by one, so
+ * that the first rows of a list can be rendered before the whole page has arrived. The next page is loaded
+ * automatically when {@link #get(int)} is called for one of the last Connections of the list, which lets a scrolling
+ * list fetch the next page before the user reaches its end.
+ *
+ * All methods must be called on the main thread, and the Listener is called on the main thread.
+ *
+ * @see com.ifttt.connect.ConnectionApiClient#listConnections(int, Listener)
+ */
+public interface ConnectionList {
+
+    /**
+     * Listener for the loading progress of a ConnectionList.
+     */
+    interface Listener {
+
+        /**
+         * Called for each Connection as soon as it has been parsed.
+         *
+         * @param position Position of the Connection in the list.
+         * @param connection The Connection.
+         */
+        @MainThread
+        void onConnectionLoaded(int position, Connection connection);
+
+        /**
+         * Called when a page has been loaded completely.
+         *
+         * @param hasMore true if there are more pages to load.
+         */
+        @MainThread
+        void onPageLoaded(boolean hasMore);
+
+        /**
+         * Called when loading a page has failed. The Connections of the page that have already been delivered are
+         * kept, and loading the page again with {@link #loadMore()} only delivers the remaining ones. Pages are not
+         * loaded automatically by {@link #get(int)} after a failure.
+         *
+         * @param errorResponse Formatted error response.
+         */
+        @MainThread
+        void onFailure(ErrorResponse errorResponse);
+    }
+
+    /**
+     * Load the next page, if there is one and no page is being loaded.
+     */
+    @MainThread
+    void loadMore();
+
+    /**
+     * @return The number of Connections loaded so far.
+     */
+    @MainThread
+    @CheckReturnValue
+    int size();
+
+    /**
+     * Get a loaded Connection. If the position is close to the end of the list, the next page is loaded in the
+     * background.
+     *
+     * @param position Position of the Connection, between 0 and {@link #size()} - 1.
+     * @return The Connection at the given position.
+     */
+    @MainThread
+    Connection get(int position);
+
+    /**
+     * @return true if there are more pages to load.
+     */
+    @MainThread
+    @CheckReturnValue
+    boolean hasMore();
+
+    /**
+     * @return true if a page is being loaded.
+     */
+    @MainThread
+    @CheckReturnValue
+    boolean isLoading();
+
+    /**
+     * Cancel the ongoing page load, if any. Pages can still be loaded afterwards with {@link #loadMore()}.
+     */
+    @MainThread
+    void cancel();
+}
@@ -3,6 +3,7 @@ package com.ifttt.connect.ui;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
 import android.graphics.Color;
 import android.graphics.Typeface;
 import android.os.Bundle;
@@ -20,33 +21,98 @@ import androidx.appcompat.widget.Toolbar;
 import androidx.core.content.ContextCompat;
 import androidx.core.content.res.ResourcesCompat;
 import com.ifttt.connect.Connection;
+import com.ifttt.connect.ConnectionApiClient;
+import com.ifttt.connect.ErrorResponse;
 import com.ifttt.connect.R;
 import com.ifttt.connect.Service;
+import com.ifttt.connect.api.PendingResult;
 
 import static com.ifttt.connect.ui.ButtonApiHelper.redirectToTerms;
 import static com.ifttt.connect.ui.ButtonUiHelper.findWorksWithService;
+import static com.ifttt.connect.ui.ButtonUiHelper.newMonochromeIconDrawable;
 
 /**
  * A static Activity for more information about IFTTT.
  */
 public final class AboutIftttActivity extends AppCompatActivity {
 
+    private final ConnectionStore.Observer connectionObserver = this::bindConnectionStatus;
+
+    private String connectionId;
+    @Nullable private PendingResult<Connection> connectionFetch;
+
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
         setContentView(R.layout.view_ifttt_about);
 
-        Connection connection = getIntent().getParcelableExtra(EXTRA_CONNECTION);
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        toolbar.setNavigationOnClickListener(v -> finish());
+
+        // Set up links to terms of use and privacy policy.
+        TextView termsAndPrivacy = findViewById(R.id.term_and_privacy);
+        termsAndPrivacy.setText(Html.fromHtml(getString(R.string.terms_and_privacy)));
+        termsAndPrivacy.setLinkTextColor(Color.WHITE);
+        termsAndPrivacy.setMovementMethod(LinkMovementMethod.getInstance());
+
+        Intent redirectToTermsIntent = redirectToTerms(this);
+        if (redirectToTermsIntent != null) {
+            termsAndPrivacy.setOnClickListener(v -> {
+                startActivity(redirectToTermsIntent);
+            });
+        }
+
+        connectionId = getIntent().getStringExtra(EXTRA_CONNECTION_ID);
+        long connectionVersion = getIntent().getLongExtra(EXTRA_CONNECTION_VERSION, 0);
+        // The Connection may have changed since the Activity was started, the store has the latest known state.
+        Connection storedConnection = ConnectionStore.get().get(connectionId, connectionVersion);
+        if (storedConnection != null) {
+            bindConnection(storedConnection);
+        } else {
+            // The process has been restarted since the Activity was started, fetch the Connection again. There is no
+            // user token at this point, the user specific status is picked up from the ConnectionStore once a
+            // ConnectButton has fetched it.
+            connectionFetch = new ConnectionApiClient.Builder(this).build().api().showConnection(connectionId);
+            connectionFetch.execute(new PendingResult.ResultCallback<Connection>() {
+                @Override
+                public void onSuccess(Connection result) {
+                    connectionFetch = null;
+                    bindConnection(result);
+                }
+
+                @Override
+                public void onFailure(ErrorResponse errorResponse) {
+                    connectionFetch = null;
+                    finish();
+                }
+            });
+        }
 
+        ConnectionStore.get().addObserver(connectionId, connectionObserver);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        ConnectionStore.get().removeObserver(connectionId, connectionObserver);
+        if (connectionFetch != null) {
+            connectionFetch.cancel();
+            connectionFetch = null;
+        }
+    }
+
+    private void bindConnection(Connection connection) {
         Service primaryService = connection.getPrimaryService();
         Service secondaryService = findWorksWithService(connection);
 
         ImageView primaryServiceIcon = findViewById(R.id.ifttt_primary_service_icon);
         ImageView secondaryServiceIcon = findViewById(R.id.ifttt_secondary_service_icon);
-        ImageLoader.get().load(getLifecycle(), primaryService.monochromeIconUrl, primaryServiceIcon::setImageBitmap);
-        ImageLoader.get()
-                .load(getLifecycle(), secondaryService.monochromeIconUrl, secondaryServiceIcon::setImageBitmap);
+        ImageLoader imageLoader = ImageLoader.get(this);
+        imageLoader.loadMonochrome(getLifecycle(), primaryService.monochromeIconUrl,
+                bitmap -> setMonochromeIcon(primaryServiceIcon, bitmap));
+        imageLoader.loadMonochrome(getLifecycle(), secondaryService.monochromeIconUrl,
+                bitmap -> setMonochromeIcon(secondaryServiceIcon, bitmap));
 
         TextView title = findViewById(R.id.ifttt_about_title);
         String aboutTitleString = getString(R.string.ifttt_about_title, secondaryService.name, primaryService.name);
@@ -64,22 +130,10 @@ public final class AboutIftttActivity extends AppCompatActivity {
                 Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
         title.setText(highlightServiceNames);
 
-        Toolbar toolbar = findViewById(R.id.toolbar);
-        toolbar.setNavigationOnClickListener(v -> finish());
-
-        // Set up links to terms of use and privacy policy.
-        TextView termsAndPrivacy = findViewById(R.id.term_and_privacy);
-        termsAndPrivacy.setText(Html.fromHtml(getString(R.string.terms_and_privacy)));
-        termsAndPrivacy.setLinkTextColor(Color.WHITE);
-        termsAndPrivacy.setMovementMethod(LinkMovementMethod.getInstance());
-
-        Intent redirectToTermsIntent = redirectToTerms(this);
-        if (redirectToTermsIntent != null) {
-            termsAndPrivacy.setOnClickListener(v -> {
-                startActivity(redirectToTermsIntent);
-            });
-        }
+        bindConnectionStatus(connection);
+    }
 
+    private void bindConnectionStatus(Connection connection) {
         View manageConnectionView = findViewById(R.id.ifttt_manage_connection);
         View googlePlayView = findViewById(R.id.google_play_link);
 
@@ -109,9 +163,21 @@ public final class AboutIftttActivity extends AppCompatActivity {
         }
     }
 
-    private static final String EXTRA_CONNECTION = "extra_connection";
+    private void setMonochromeIcon(ImageView imageView, @Nullable Bitmap bitmap) {
+        if (bitmap == null) {
+            return;
+        }
+
+        imageView.setImageDrawable(newMonochromeIconDrawable(getResources(), bitmap, Color.WHITE));
+    }
+
+    private static final String EXTRA_CONNECTION_ID = "extra_connection_id";
+    private static final String EXTRA_CONNECTION_VERSION = "extra_connection_version";
 
     public static Intent intent(Context context, Connection connection) {
-        return new Intent(context, AboutIftttActivity.class).putExtra(EXTRA_CONNECTION, connection);
+        // Only pass a reference to the Connection, it is kept in the ConnectionStore.
+        long connectionVersion = ConnectionStore.get().putIfAbsent(connection);
+        return new Intent(context, AboutIftttActivity.class).putExtra(EXTRA_CONNECTION_ID, connection.id)
+                .putExtra(EXTRA_CONNECTION_VERSION, connectionVersion);
     }
 }
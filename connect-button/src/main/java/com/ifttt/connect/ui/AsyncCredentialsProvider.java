@@ -0,0 +1,47 @@
+package com.ifttt.connect.ui;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.MainThread;
+import com.ifttt.connect.Connection;
+import javax.annotation.Nullable;
+
+/**
+ * Asynchronous variant of {@link CredentialsProvider}, for apps that fetch the credentials with a non-blocking stack.
+ * The SDK doesn't need to keep a worker thread waiting for the credentials, the results are delivered through a
+ * {@link Callback} instead.
+ *
+ * Existing {@link CredentialsProvider} implementations can still be used anywhere this interface is accepted.
+ */
+public interface AsyncCredentialsProvider {
+
+    /**
+     * Callback for delivering a credential to the SDK.
+     */
+    interface Callback {
+
+        /**
+         * Deliver the credential. This can be called from any thread, and must be called exactly once per request.
+         *
+         * @param value The credential, or null if it is not available.
+         */
+        @AnyThread
+        void onResult(@Nullable String value);
+    }
+
+    /**
+     * Request your users' OAuth code for your service. This is to be used to automatically authenticate the user to
+     * your service on IFTTT during the connection enable flow for a {@link Connection}.
+     *
+     * @param callback Callback to be invoked with the OAuth code, or null if it is not available.
+     */
+    @MainThread
+    void getOAuthCode(Callback callback);
+
+    /**
+     * Request your users' IFTTT user token, once they have successfully authenticate your service on IFTTT.
+     *
+     * @param callback Callback to be invoked with the user token, or null if the user hasn't connected to IFTTT.
+     */
+    @MainThread
+    void getUserToken(Callback callback);
+}
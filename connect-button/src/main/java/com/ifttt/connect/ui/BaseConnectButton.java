@@ -3,7 +3,6 @@ package com.ifttt.connect.ui;
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
 import android.animation.AnimatorSet;
-import android.animation.ArgbEvaluator;
 import android.animation.ObjectAnimator;
 import android.animation.ValueAnimator;
 import android.app.Activity;
@@ -36,6 +35,7 @@ import android.widget.TextView;
 import androidx.annotation.CallSuper;
 import androidx.annotation.ColorInt;
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.core.content.ContextCompat;
 import androidx.core.graphics.drawable.DrawableCompat;
 import androidx.core.view.ViewCompat;
@@ -62,11 +62,14 @@ import static android.graphics.Color.WHITE;
 import static androidx.lifecycle.Lifecycle.State.CREATED;
 import static androidx.lifecycle.Lifecycle.State.DESTROYED;
 import static androidx.lifecycle.Lifecycle.State.STARTED;
+import static com.ifttt.connect.Connection.Status.disabled;
 import static com.ifttt.connect.Connection.Status.enabled;
 import static com.ifttt.connect.ui.ButtonUiHelper.adjustTextViewLayout;
 import static com.ifttt.connect.ui.ButtonUiHelper.buildButtonBackground;
 import static com.ifttt.connect.ui.ButtonUiHelper.findWorksWithService;
 import static com.ifttt.connect.ui.ButtonUiHelper.getDarkerColor;
+import static com.ifttt.connect.ui.ButtonUiHelper.interpolateColor;
+import static com.ifttt.connect.ui.ButtonUiHelper.newMonochromeIconDrawable;
 import static com.ifttt.connect.ui.ButtonUiHelper.replaceKeyWithImage;
 import static com.ifttt.connect.ui.ButtonUiHelper.setTextSwitcherTextColor;
 import static com.ifttt.connect.ui.CheckMarkDrawable.AnimatorType.ENABLE;
@@ -92,8 +95,6 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
     private static final LinearInterpolator LINEAR_INTERPOLATOR = new LinearInterpolator();
     private static final FastOutSlowInInterpolator EASE_INTERPOLATOR = new FastOutSlowInInterpolator();
 
-    private static final ArgbEvaluator EVALUATOR = new ArgbEvaluator();
-
     // Spannable text that replaces the text "IFTTT" with IFTTT logo.
     private final SpannableString worksWithIfttt;
     private final Drawable iftttLogo;
@@ -108,6 +109,7 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
     private final int iconSize;
 
     private final LifecycleRegistry lifecycleRegistry;
+    private final CustomTabsSessionManager customTabsSessionManager;
     private final AnimatorLifecycleObserver animatorLifecycleObserver = new AnimatorLifecycleObserver();
 
     private final ArrayList<ButtonStateChangeListener> listeners = new ArrayList<>();
@@ -127,9 +129,16 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
     private IconDragHelperCallback iconDragHelperCallback;
 
     private boolean onDarkBackground = false;
+    private boolean optimisticDisable = false;
 
     @Nullable private Call ongoingImageCall;
 
+    private final Runnable capabilitiesResolvedCallback = () -> {
+        if (buttonState == Initial && connection != null) {
+            updateInitialTrackEndColor();
+        }
+    };
+
     public BaseConnectButton(Context context) {
         this(context, null);
     }
@@ -150,6 +159,8 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
 
         lifecycleRegistry = new LifecycleRegistry(this);
         lifecycleRegistry.addObserver(animatorLifecycleObserver);
+        customTabsSessionManager = CustomTabsSessionManager.get(context);
+        lifecycleRegistry.addObserver(customTabsSessionManager.newLifecycleObserver());
         lifecycleRegistry.markState(CREATED);
 
         inflate(context, R.layout.view_ifttt_connect, this);
@@ -186,11 +197,18 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
         lifecycleRegistry.markState(DESTROYED);
 
         revertableHandler.clear();
+        DeviceCapabilities.get(getContext()).removeResolvedCallback(capabilitiesResolvedCallback);
     }
 
     @Override
     protected Parcelable onSaveInstanceState() {
-        return new SavedState(super.onSaveInstanceState(), buttonState, connection);
+        if (connection == null) {
+            return new SavedState(super.onSaveInstanceState(), buttonState, null, 0);
+        }
+
+        // Only save a reference to the Connection, it is kept in the ConnectionStore.
+        long connectionVersion = ConnectionStore.get().putIfAbsent(connection);
+        return new SavedState(super.onSaveInstanceState(), buttonState, connection.id, connectionVersion);
     }
 
     @Override
@@ -199,8 +217,15 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
         super.onRestoreInstanceState(savedState.superState);
 
         this.buttonState = savedState.buttonState;
-        if (savedState.connection != null) {
-            setConnection(savedState.connection);
+        if (savedState.connectionId == null) {
+            return;
+        }
+
+        // If the process has been restarted, the Connection is no longer stored, and is fetched again by the
+        // ConnectButton.
+        Connection storedConnection = ConnectionStore.get().get(savedState.connectionId, savedState.connectionVersion);
+        if (storedConnection != null) {
+            setConnection(storedConnection);
         }
     }
 
@@ -259,12 +284,21 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
      * @param inviteCode Optional invite code to access an IFTTT service that has not yet published.
      */
     void setup(String email, ConnectionApiClient connectionApiClient, Uri redirectUri,
-            CredentialsProvider credentialsProvider, @Nullable String inviteCode) {
-        buttonApiHelper =
-                new ButtonApiHelper(connectionApiClient, redirectUri, inviteCode, credentialsProvider, getLifecycle());
+            AsyncCredentialsProvider credentialsProvider, @Nullable String inviteCode) {
+        buttonApiHelper = new ButtonApiHelper(connectionApiClient, redirectUri, inviteCode, credentialsProvider,
+                getLifecycle(), customTabsSessionManager);
         emailEdt.setText(email);
     }
 
+    /**
+     * @param optimisticDisable True if the button should render the Connection as disabled as soon as the user turns
+     * it off, without waiting for the API call to complete. The Connection is rendered as enabled again if the call
+     * still fails after retries.
+     */
+    void setOptimisticDisable(boolean optimisticDisable) {
+        this.optimisticDisable = optimisticDisable;
+    }
+
     /**
      * If the button is used in a dark background, set this flag to true so that the button can adapt the UI. This
      * method must be called before {@link #setConnection(Connection)} to apply the change.
@@ -384,10 +418,11 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
         iconDragHelperCallback.setSettledAt(connection.status);
 
         setServiceIconImage(null);
-        ongoingImageCall = ImageLoader.get().load(getLifecycle(), worksWithService.monochromeIconUrl, bitmap -> {
-            ongoingImageCall = null;
-            setServiceIconImage(bitmap);
-        });
+        ongoingImageCall = ImageLoader.get(getContext())
+                .loadMonochrome(getLifecycle(), worksWithService.monochromeIconUrl, bitmap -> {
+                    ongoingImageCall = null;
+                    setServiceIconImage(bitmap);
+                });
 
         connectStateTxt.setAlpha(1f);
         buttonRoot.setBackground(buildButtonBackground(getContext(), BLACK));
@@ -450,11 +485,14 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
                         getResources().getString(R.string.ifttt_connect_to, worksWithService.shortName));
                 adjustTextViewLayout(connectStateTxt, buttonState);
 
-                // Depending on whether we need to show the email field, use different track colors.
-                int trackEndColor = !buttonApiHelper.shouldPresentEmail(getContext()) ? BLACK
-                        : ContextCompat.getColor(getContext(), R.color.ifttt_button_background);
+                updateInitialTrackEndColor();
 
-                iconDragHelperCallback.setTrackEndColor(trackEndColor);
+                DeviceCapabilities deviceCapabilities = DeviceCapabilities.get(getContext());
+                if (!deviceCapabilities.isResolved()) {
+                    // Whether the email field is shown depends on the IFTTT app being installed, update the track
+                    // color once it is known.
+                    deviceCapabilities.whenResolved(capabilitiesResolvedCallback);
+                }
             }
 
             OnClickListener onClickListener = v -> {
@@ -510,6 +548,101 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
         return connection;
     }
 
+    /**
+     * @return True if the button is displaying a Connection, and the user is not interacting with it: the displayed
+     * Connection can be replaced without interrupting a flow.
+     */
+    boolean isIdle() {
+        return connection != null
+                && (buttonState == Initial || buttonState == Enabled || buttonState == Disabled)
+                && emailEdt.getVisibility() == GONE
+                && activityLifecycleCallbacks == null
+                && viewDragHelper.getViewDragState() == ViewDragHelper.STATE_IDLE
+                && !buttonApiHelper.isDisablingConnection();
+    }
+
+    /**
+     * Render the Connection as disabled right away, and disable it in the background. If the API call still fails
+     * after retries, the Connection is rendered as enabled again, unless it has been replaced in the meantime.
+     */
+    @VisibleForTesting
+    void disableConnectionOptimistically() {
+        Connection original = connection;
+        Connection optimistic = withStatus(original, disabled);
+        setConnection(optimistic);
+        ConnectionStore.get().put(optimistic);
+
+        OptimisticDisableCallback callback = new OptimisticDisableCallback(this, original, optimistic);
+        lifecycleRegistry.addObserver(callback);
+        buttonApiHelper.disableConnectionWithRetry(original.id, callback);
+    }
+
+    /**
+     * Completes an optimistic disable. The ConnectionStore is updated whatever happened to the button, as other
+     * buttons and screens share its state, while the button itself is only updated if it is still started. The
+     * reference to the button is dropped when it is destroyed, so that it isn't kept during the retries.
+     */
+    private static final class OptimisticDisableCallback implements ResultCallback<Connection>, LifecycleObserver {
+
+        private final Connection original;
+        private final Connection optimistic;
+
+        @Nullable private BaseConnectButton button;
+
+        OptimisticDisableCallback(BaseConnectButton button, Connection original, Connection optimistic) {
+            this.button = button;
+            this.original = original;
+            this.optimistic = optimistic;
+        }
+
+        @Override
+        public void onSuccess(Connection result) {
+            // The displayed Connection is updated through the ConnectionStore observer.
+            if (ConnectionStore.get().get(result.id) == optimistic) {
+                ConnectionStore.get().put(result);
+            }
+
+            release();
+        }
+
+        @Override
+        public void onFailure(ErrorResponse errorResponse) {
+            if (ConnectionStore.get().get(original.id) == optimistic) {
+                ConnectionStore.get().put(original);
+            }
+
+            BaseConnectButton button = this.button;
+            if (button != null && button.getLifecycle().getCurrentState().isAtLeast(STARTED)) {
+                if (button.connection == optimistic && button.isIdle()) {
+                    button.setConnection(original);
+                }
+
+                for (ButtonStateChangeListener listener : button.listeners) {
+                    listener.onError(errorResponse);
+                }
+            }
+
+            release();
+        }
+
+        @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
+        void onDestroy() {
+            button = null;
+        }
+
+        private void release() {
+            if (button != null) {
+                button.lifecycleRegistry.removeObserver(this);
+                button = null;
+            }
+        }
+    }
+
+    private static Connection withStatus(Connection connection, Connection.Status status) {
+        return new Connection(connection.id, connection.name, connection.description, status, connection.url,
+                connection.services, connection.coverImage, connection.valuePropositions);
+    }
+
     private void setServiceIconImage(@Nullable Bitmap bitmap) {
         // Set a placeholder for the image.
         if (bitmap == null) {
@@ -519,7 +652,7 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
             iconImg.setContentDescription(getContext().getString(R.string.start_button_content_description));
         } else {
             int iconBackgroundMargin = getResources().getDimensionPixelSize(R.dimen.ifttt_icon_margin);
-            BitmapDrawable serviceIcon = new BitmapDrawable(getResources(), bitmap);
+            BitmapDrawable serviceIcon = newMonochromeIconDrawable(getResources(), bitmap, WHITE);
             StartIconDrawable drawable = new StartIconDrawable(getContext(), serviceIcon, iconSize,
                     iconImg.getHeight() - iconBackgroundMargin * 2, onDarkBackground);
 
@@ -571,6 +704,10 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
             progressView.setAlpha(alpha);
             checkMarkView.setAlpha(alpha);
         });
+        // The progress bar and the check mark are no longer changing when they fade out, render them in hardware
+        // layers so that changing the alpha doesn't redraw them.
+        fadeOutProgress.addListener(
+                new HardwareLayerAnimatorListenerAdapter(animatorLifecycleObserver, progressView, checkMarkView));
 
         int elevation = getResources().getDimensionPixelSize(R.dimen.ifttt_icon_elevation);
         ValueAnimator changeElevation = ValueAnimator.ofFloat(ViewCompat.getElevation(iconImg), elevation);
@@ -624,7 +761,7 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
             @Override
             public void onAnimationStart(Animator animation) {
                 super.onAnimationStart(animation);
-                buttonApiHelper.prepareAuthentication(emailEdt.getText().toString());
+                buttonApiHelper.prepareAuthentication(getContext(), connection, emailEdt.getText().toString());
 
                 // When the animation starts, disable the click on buttonRoot, so that the flow will not be started
                 // again.
@@ -766,6 +903,7 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
         }
         set.playTogether(iconMorphing, fadeOutConnect);
         set.setInterpolator(EASE_INTERPOLATOR);
+        set.addListener(new HardwareLayerAnimatorListenerAdapter(animatorLifecycleObserver, connectStateTxt, emailEdt));
 
         OnClickListener startAuthOnClickListener = v -> {
             revertableHandler.revertAll();
@@ -805,7 +943,7 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
             Animator emailValidation = buildEmailValidationAnimator();
             emailValidation.start();
             String email = emailEdt.getText().toString();
-            buttonApiHelper.prepareAuthentication(email);
+            buttonApiHelper.prepareAuthentication(getContext(), connection, email);
             helperTxt.setClickable(false);
         };
 
@@ -913,6 +1051,14 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
         connectStateTxt.setAlpha(1 - fadeOutProgress);
     }
 
+    private void updateInitialTrackEndColor() {
+        // Depending on whether we need to show the email field, use different track colors.
+        int trackEndColor = !buttonApiHelper.shouldPresentEmail(getContext()) ? BLACK
+                : ContextCompat.getColor(getContext(), R.color.ifttt_button_background);
+
+        iconDragHelperCallback.setTrackEndColor(trackEndColor);
+    }
+
     private void dispatchState(ConnectButtonState newState) {
         if (newState != buttonState) {
             for (ButtonStateChangeListener listener : listeners) {
@@ -1013,7 +1159,7 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
             float progress = Math.abs((left - settledAt) / (float) (buttonRoot.getWidth() - iconImg.getWidth()));
 
             DrawableCompat.setTint(DrawableCompat.wrap(buttonRoot.getBackground()),
-                    (Integer) EVALUATOR.evaluate(progress, Color.BLACK, trackEndColor));
+                    interpolateColor(progress, Color.BLACK, trackEndColor));
 
             float textFadingProgress = Math.max(Math.min(1f, progress * 1.5f), 0f);
             setProgressStateText(textFadingProgress);
@@ -1082,6 +1228,11 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
         }
 
         private void disableConnection() {
+            if (optimisticDisable) {
+                disableConnectionOptimistically();
+                return;
+            }
+
             AnimatorSet processing = new AnimatorSet();
             ValueAnimator moveIcon = ValueAnimator.ofInt(iconImg.getLeft(), 0);
             moveIcon.addUpdateListener(new SlideIconAnimatorUpdateListener());
@@ -1099,12 +1250,15 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
             });
             processing.playTogether(fadeInConnect, moveIcon);
             processing.setDuration(ANIM_DURATION_SHORT);
+            processing.addListener(
+                    new HardwareLayerAnimatorListenerAdapter(animatorLifecycleObserver, connectStateTxt));
             processing.start();
             buttonApiHelper.disableConnection(getLifecycle(), connection.id, new ResultCallback<Connection>() {
                 @Override
                 public void onSuccess(Connection result) {
                     connectStateTxt.animate().alpha(1f).start();
                     setConnection(result);
+                    ConnectionStore.get().put(result);
                     processAndRun(() -> cleanUpViews(ProgressView.class));
                 }
 
@@ -1146,25 +1300,30 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
     private static final class SavedState implements Parcelable {
         @Nullable final Parcelable superState;
         final ConnectButtonState buttonState;
-        final Connection connection;
+        @Nullable final String connectionId;
+        final long connectionVersion;
 
-        SavedState(@Nullable Parcelable superState, ConnectButtonState buttonState, Connection connection) {
+        SavedState(@Nullable Parcelable superState, ConnectButtonState buttonState, @Nullable String connectionId,
+                long connectionVersion) {
             this.superState = superState;
             this.buttonState = buttonState;
-            this.connection = connection;
+            this.connectionId = connectionId;
+            this.connectionVersion = connectionVersion;
         }
 
         protected SavedState(Parcel in) {
             superState = in.readParcelable(BaseConnectButton.class.getClassLoader());
             buttonState = (ConnectButtonState) in.readSerializable();
-            connection = in.readParcelable(Connection.class.getClassLoader());
+            connectionId = in.readString();
+            connectionVersion = in.readLong();
         }
 
         @Override
         public void writeToParcel(Parcel dest, int flags) {
             dest.writeParcelable(superState, flags);
             dest.writeSerializable(buttonState);
-            dest.writeParcelable(connection, flags);
+            dest.writeString(connectionId);
+            dest.writeLong(connectionVersion);
         }
 
         @Override
@@ -1189,7 +1348,8 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
      * {@link LifecycleObserver} that records the Animators used in this class, and cancel the ongoing ones when the
      * Activity is stopped.
      */
-    private static final class AnimatorLifecycleObserver implements LifecycleObserver {
+    @VisibleForTesting
+    static final class AnimatorLifecycleObserver implements LifecycleObserver {
 
         private final ArrayList<Animator> ongoingAnimators = new ArrayList<>();
 
@@ -1214,7 +1374,7 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
      * Helper AnimatorListener for {@link AnimatorLifecycleObserver} to add/remove animators as they are started or
      * stopped.
      */
-    private static class CancelAnimatorListenerAdapter extends AnimatorListenerAdapter {
+    static class CancelAnimatorListenerAdapter extends AnimatorListenerAdapter {
 
         private boolean isCanceled = false;
 
@@ -1248,6 +1408,62 @@ final class BaseConnectButton extends LinearLayout implements LifecycleOwner {
         }
     }
 
+    /**
+     * {@link CancelAnimatorListenerAdapter} that renders the given Views in hardware layers while the animation is
+     * running, and restores their original layer types when the animation ends or is canceled. This should only be
+     * used for Views whose content doesn't change during the animation, e.g. alpha animations.
+     */
+    @VisibleForTesting
+    static final class HardwareLayerAnimatorListenerAdapter extends CancelAnimatorListenerAdapter {
+
+        private final View[] views;
+        private final int[] layerTypes;
+        private boolean layersEnabled = false;
+
+        HardwareLayerAnimatorListenerAdapter(AnimatorLifecycleObserver observer, View... views) {
+            super(observer);
+            this.views = views;
+            this.layerTypes = new int[views.length];
+        }
+
+        @Override
+        public void onAnimationStart(Animator animation) {
+            super.onAnimationStart(animation);
+            if (layersEnabled) {
+                return;
+            }
+
+            for (int i = 0; i < views.length; i++) {
+                layerTypes[i] = views[i].getLayerType();
+                views[i].setLayerType(View.LAYER_TYPE_HARDWARE, null);
+            }
+            layersEnabled = true;
+        }
+
+        @Override
+        public void onAnimationCancel(Animator animation) {
+            super.onAnimationCancel(animation);
+            restoreLayerTypes();
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            super.onAnimationEnd(animation);
+            restoreLayerTypes();
+        }
+
+        private void restoreLayerTypes() {
+            if (!layersEnabled) {
+                return;
+            }
+
+            for (int i = 0; i < views.length; i++) {
+                views[i].setLayerType(layerTypes[i], null);
+            }
+            layersEnabled = false;
+        }
+    }
+
     /**
      * {@link ValueAnimator.AnimatorUpdateListener} used on ValueAnimators that moves the button position.
      */
@@ -3,12 +3,10 @@ package com.ifttt.connect.ui;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.Intent;
-import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.provider.Settings;
 import androidx.annotation.MainThread;
 import androidx.annotation.VisibleForTesting;
-import androidx.browser.customtabs.CustomTabsIntent;
 import androidx.lifecycle.Lifecycle;
 import androidx.lifecycle.LifecycleObserver;
 import androidx.lifecycle.OnLifecycleEvent;
@@ -34,8 +32,9 @@ final class ButtonApiHelper {
     private static final String PACKAGE_NAME_IFTTT = "com.ifttt.ifttt";
 
     private final ConnectionApiClient connectionApiClient;
-    private final CredentialsProvider credentialsProvider;
+    private final AsyncCredentialsProvider credentialsProvider;
     private final Lifecycle lifecycle;
+    private final CustomTabsSessionManager customTabsSessionManager;
     private final Uri redirectUri;
     @Nullable private final String inviteCode;
 
@@ -49,9 +48,13 @@ final class ButtonApiHelper {
     // Reference to the ongoing disable connection call.
     @Nullable private PendingResult<Connection> disableConnectionCall;
 
+    // Number of Connections being disabled in the background, see disableConnectionWithRetry.
+    private int backgroundDisableCount;
+
     ButtonApiHelper(ConnectionApiClient client, Uri redirectUri, @Nullable String inviteCode,
-            CredentialsProvider provider, Lifecycle lifecycle) {
+            AsyncCredentialsProvider provider, Lifecycle lifecycle, CustomTabsSessionManager customTabsSessionManager) {
         this.lifecycle = lifecycle;
+        this.customTabsSessionManager = customTabsSessionManager;
         this.redirectUri = redirectUri;
         this.inviteCode = inviteCode;
         this.connectionApiClient = client;
@@ -78,6 +81,35 @@ final class ButtonApiHelper {
         lifecycle.addObserver(new PendingResultLifecycleObserver<>(disableConnectionCall));
     }
 
+    /**
+     * Disable the Connection in the background, for when the UI already shows it as disabled. See
+     * {@link ConnectionApiClient#disableConnectionWithRetry(String)} for the retry policy.
+     *
+     * Unlike {@link #disableConnection(Lifecycle, String, ResultCallback)}, the request is not cancelled when the
+     * lifecycle is stopped or when {@link #cancelDisconnect()} is called, as the user has already seen its outcome.
+     * The callback is kept until the request completes, it should not hold on to a View.
+     */
+    void disableConnectionWithRetry(String id, ResultCallback<Connection> resultCallback) {
+        backgroundDisableCount++;
+        connectionApiClient.disableConnectionWithRetry(id).execute(new ResultCallback<Connection>() {
+            @Override
+            public void onSuccess(Connection result) {
+                backgroundDisableCount--;
+                resultCallback.onSuccess(result);
+            }
+
+            @Override
+            public void onFailure(ErrorResponse errorResponse) {
+                backgroundDisableCount--;
+                resultCallback.onFailure(errorResponse);
+            }
+        });
+    }
+
+    boolean isDisablingConnection() {
+        return disableConnectionCall != null || backgroundDisableCount > 0;
+    }
+
     void cancelDisconnect() {
         if (disableConnectionCall == null) {
             return;
@@ -89,10 +121,7 @@ final class ButtonApiHelper {
 
     @CheckReturnValue
     boolean shouldPresentEmail(Context context) {
-        Intent launchAppIntent = new Intent(Intent.ACTION_VIEW, Uri.parse(SHOW_CONNECTION_API_URL));
-        launchAppIntent.setPackage(PACKAGE_NAME_IFTTT);
-
-        if (hasActivityToLaunch(context, launchAppIntent)) {
+        if (DeviceCapabilities.get(context).hasIftttApp()) {
             // If the new IFTTT app is installed, always try to redirect there instead of prompting email field.
             return false;
         }
@@ -109,33 +138,20 @@ final class ButtonApiHelper {
         }
     }
 
-    @SuppressLint("HardwareIds")
-    @CheckReturnValue
     private void redirectToWeb(Context context, Connection connection, String email, ConnectButtonState buttonState) {
-        EmailAppsChecker checker = new EmailAppsChecker(context.getPackageManager());
-        String anonymousId = Settings.Secure.getString(context.getContentResolver(), Settings.Secure.ANDROID_ID);
-        Uri uri = getEmbedUri(connection, buttonState, redirectUri, checker.detectEmailApps(), email, userLogin,
-                anonymousId, oAuthCode, inviteCode);
-        CustomTabsIntent intent = new CustomTabsIntent.Builder().build();
-        intent.launchUrl(context, uri);
+        customTabsSessionManager.launchUrl(context, getEmbedUri(context, connection, email, buttonState));
     }
 
-    @SuppressLint("HardwareIds")
     @CheckReturnValue
     @Nullable
     private Intent getIntentToApp(Context context, Connection connection, String email,
             ConnectButtonState buttonState) {
-        EmailAppsChecker checker = new EmailAppsChecker(context.getPackageManager());
-        String anonymousId = Settings.Secure.getString(context.getContentResolver(), Settings.Secure.ANDROID_ID);
-        Intent launchIntent = new Intent(Intent.ACTION_VIEW,
-                getEmbedUri(connection, buttonState, redirectUri, checker.detectEmailApps(), email, userLogin,
-                        anonymousId, oAuthCode, inviteCode));
-        launchIntent.setPackage(PACKAGE_NAME_IFTTT);
-
-        if (!hasActivityToLaunch(context, launchIntent)) {
+        if (!DeviceCapabilities.get(context).hasIftttApp()) {
             return null;
         }
 
+        Intent launchIntent = new Intent(Intent.ACTION_VIEW, getEmbedUri(context, connection, email, buttonState));
+        launchIntent.setPackage(PACKAGE_NAME_IFTTT);
         return launchIntent;
     }
 
@@ -143,17 +159,24 @@ final class ButtonApiHelper {
         return shouldPresentEmail(context) && !accountFound;
     }
 
+    /**
+     * Request the OAuth code from the credentials provider, and check the account status and the user login at the
+     * same time. Once all of them are known, the browser is allowed to preload the web flow.
+     */
     @MainThread
-    void prepareAuthentication(String email) {
-        RedirectPrepAsyncTask task = new RedirectPrepAsyncTask(credentialsProvider,
-                connectionApiClient.isUserAuthenticated() ? connectionApiClient.api().user() : null, email,
-                prepResult -> {
-                    this.oAuthCode = prepResult.opaqueToken;
-                    this.accountFound = prepResult.accountFound;
-                    this.userLogin = prepResult.userLogin;
-                });
-        lifecycle.addObserver(new OAuthTokenExchangeTaskObserver(task));
-        task.execute();
+    void prepareAuthentication(Context context, Connection connection, String email) {
+        AuthenticationPrep prep = new AuthenticationPrep(context, connection, email);
+        lifecycle.addObserver(prep);
+        prep.start();
+    }
+
+    @SuppressLint("HardwareIds")
+    @CheckReturnValue
+    private Uri getEmbedUri(Context context, Connection connection, String email, ConnectButtonState buttonState) {
+        List<String> emailApps = DeviceCapabilities.get(context).getEmailApps();
+        String anonymousId = Settings.Secure.getString(context.getContentResolver(), Settings.Secure.ANDROID_ID);
+        return getEmbedUri(connection, buttonState, redirectUri, emailApps, email, userLogin, anonymousId, oAuthCode,
+                inviteCode);
     }
 
     /**
@@ -201,56 +224,106 @@ final class ButtonApiHelper {
     }
 
     @CheckReturnValue
+    @Nullable
     static Intent redirectToPlayStore(Context context) {
-        Intent launchIntent = new Intent(Intent.ACTION_VIEW,
-                Uri.parse("https://play.google.com/store/apps/details?id=com.ifttt.ifttt"));
-        launchIntent.setPackage("com.android.vending");
-
-        if (!hasActivityToLaunch(context, launchIntent)) {
+        if (!DeviceCapabilities.get(context).hasPlayStore()) {
             return null;
         }
 
-        return launchIntent;
+        return newPlayStoreIntent();
     }
 
     @CheckReturnValue
     @Nullable
     static Intent redirectToManage(Context context, String id) {
-        Intent intent = new Intent(Intent.ACTION_VIEW);
-        intent.setData(Uri.parse("https://ifttt.com/connections/" + id));
-        if (!hasActivityToLaunch(context, intent)) {
+        if (!DeviceCapabilities.get(context).hasBrowser()) {
             return null;
         }
 
-        return intent;
+        return newWebIntent("connections/" + id);
     }
 
     @CheckReturnValue
     @Nullable
     static Intent redirectToTerms(Context context) {
-        Intent intent = new Intent(Intent.ACTION_VIEW).setData(Uri.parse("https://ifttt.com/terms"));
-        if (!hasActivityToLaunch(context, intent)) {
+        if (!DeviceCapabilities.get(context).hasBrowser()) {
             return null;
         }
 
-        return intent;
+        return newWebIntent("terms");
     }
 
-    private static boolean hasActivityToLaunch(Context context, Intent intent) {
-        PackageManager packageManager = context.getPackageManager();
-        return !packageManager.queryIntentActivities(intent, 0).isEmpty();
+    @CheckReturnValue
+    static Intent newIftttAppIntent() {
+        Intent launchAppIntent = new Intent(Intent.ACTION_VIEW, Uri.parse(SHOW_CONNECTION_API_URL));
+        launchAppIntent.setPackage(PACKAGE_NAME_IFTTT);
+        return launchAppIntent;
     }
 
-    private static final class OAuthTokenExchangeTaskObserver implements LifecycleObserver {
+    @CheckReturnValue
+    static Intent newPlayStoreIntent() {
+        Intent launchIntent = new Intent(Intent.ACTION_VIEW,
+                Uri.parse("https://play.google.com/store/apps/details?id=com.ifttt.ifttt"));
+        launchIntent.setPackage("com.android.vending");
+        return launchIntent;
+    }
+
+    @CheckReturnValue
+    static Intent newWebIntent(String path) {
+        return new Intent(Intent.ACTION_VIEW).setData(Uri.parse("https://ifttt.com/" + path));
+    }
+
+    private final class AuthenticationPrep implements LifecycleObserver {
 
+        private final Context context;
+        private final Connection connection;
+        private final String email;
         private final RedirectPrepAsyncTask asyncTask;
 
-        OAuthTokenExchangeTaskObserver(RedirectPrepAsyncTask asyncTask) {
-            this.asyncTask = asyncTask;
+        private boolean oAuthCodeReceived;
+        @Nullable private String receivedOAuthCode;
+        @Nullable private RedirectPrepAsyncTask.PrepResult prepResult;
+        private boolean cancelled;
+
+        AuthenticationPrep(Context context, Connection connection, String email) {
+            this.context = context;
+            this.connection = connection;
+            this.email = email;
+            asyncTask = new RedirectPrepAsyncTask(
+                    connectionApiClient.isUserAuthenticated() ? connectionApiClient.api().user() : null,
+                    connectionApiClient.getApiUrl(), email, result -> {
+                        prepResult = result;
+                        onPrepared();
+                    });
+        }
+
+        void start() {
+            credentialsProvider.getOAuthCode(CredentialsProviders.onMainThread(code -> {
+                oAuthCodeReceived = true;
+                receivedOAuthCode = code;
+                onPrepared();
+            }));
+            asyncTask.execute();
+        }
+
+        private void onPrepared() {
+            if (cancelled || !oAuthCodeReceived || prepResult == null) {
+                return;
+            }
+
+            lifecycle.removeObserver(this);
+            oAuthCode = receivedOAuthCode;
+            accountFound = prepResult.accountFound;
+            userLogin = prepResult.userLogin;
+
+            // With the OAuth code and account status known, let the browser preload the web flow.
+            ConnectButtonState buttonState = accountFound ? Login : CreateAccount;
+            customTabsSessionManager.mayLaunchUrl(getEmbedUri(context, connection, email, buttonState));
         }
 
         @OnLifecycleEvent(Lifecycle.Event.ON_STOP)
         void onStop() {
+            cancelled = true;
             asyncTask.cancel(true);
         }
     }
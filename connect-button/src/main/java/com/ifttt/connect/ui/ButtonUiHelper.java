@@ -3,9 +3,11 @@ package com.ifttt.connect.ui;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.content.res.Resources;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.text.SpannableString;
 import android.text.Spanned;
@@ -56,9 +58,56 @@ final class ButtonUiHelper {
         return Color.HSVToColor(hsv);
     }
 
+    /**
+     * Allocation free version of {@link android.animation.ArgbEvaluator#evaluate(float, Object, Object)}, the colors
+     * are interpolated in linear space the same way, but without boxing the values. This is used in animation update
+     * listeners, which are called on every frame.
+     */
+    @CheckReturnValue
+    @ColorInt
+    static int interpolateColor(float fraction, @ColorInt int startColor, @ColorInt int endColor) {
+        float startA = ((startColor >> 24) & 0xff) / 255.0f;
+        float startR = ((startColor >> 16) & 0xff) / 255.0f;
+        float startG = ((startColor >> 8) & 0xff) / 255.0f;
+        float startB = (startColor & 0xff) / 255.0f;
+
+        float endA = ((endColor >> 24) & 0xff) / 255.0f;
+        float endR = ((endColor >> 16) & 0xff) / 255.0f;
+        float endG = ((endColor >> 8) & 0xff) / 255.0f;
+        float endB = (endColor & 0xff) / 255.0f;
+
+        // Convert from sRGB to linear.
+        startR = (float) Math.pow(startR, 2.2);
+        startG = (float) Math.pow(startG, 2.2);
+        startB = (float) Math.pow(startB, 2.2);
+
+        endR = (float) Math.pow(endR, 2.2);
+        endG = (float) Math.pow(endG, 2.2);
+        endB = (float) Math.pow(endB, 2.2);
+
+        // Compute the interpolated color in linear space.
+        float a = startA + fraction * (endA - startA);
+        float r = startR + fraction * (endR - startR);
+        float g = startG + fraction * (endG - startG);
+        float b = startB + fraction * (endB - startB);
+
+        // Convert back to sRGB in the [0..255] range.
+        a = a * 255.0f;
+        r = (float) Math.pow(r, 1.0 / 2.2) * 255.0f;
+        g = (float) Math.pow(g, 1.0 / 2.2) * 255.0f;
+        b = (float) Math.pow(b, 1.0 / 2.2) * 255.0f;
+
+        return Math.round(a) << 24 | Math.round(r) << 16 | Math.round(g) << 8 | Math.round(b);
+    }
+
     @CheckReturnValue
     static CharSequence replaceKeyWithImage(TextView textView, String in, String key, final Drawable image) {
-        Paint.FontMetrics fontMetrics = textView.getPaint().getFontMetrics();
+        return replaceKeyWithImage(textView.getPaint(), in, key, image);
+    }
+
+    @CheckReturnValue
+    static CharSequence replaceKeyWithImage(Paint paint, String in, String key, final Drawable image) {
+        Paint.FontMetrics fontMetrics = paint.getFontMetrics();
         float imageHeight = -fontMetrics.ascent;
         float scaleRatio = imageHeight / image.getIntrinsicHeight();
         int width = (int) (image.getIntrinsicWidth() * scaleRatio);
@@ -87,6 +136,17 @@ final class ButtonUiHelper {
         return result;
     }
 
+    /**
+     * Create a Drawable for a monochrome image loaded with {@link ImageLoader#loadMonochrome}. The image is an alpha
+     * mask, which is tinted with the paint color when it is drawn.
+     */
+    @CheckReturnValue
+    static BitmapDrawable newMonochromeIconDrawable(Resources resources, Bitmap bitmap, @ColorInt int color) {
+        BitmapDrawable drawable = new BitmapDrawable(resources, bitmap);
+        drawable.getPaint().setColor(color);
+        return drawable;
+    }
+
     @CheckReturnValue
     static Drawable buildButtonBackground(Context context, @ColorInt int color) {
         Drawable drawable = ContextCompat.getDrawable(context, R.drawable.background_button).mutate();
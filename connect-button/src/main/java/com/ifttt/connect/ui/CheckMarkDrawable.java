@@ -6,7 +6,6 @@ import android.animation.AnimatorSet;
 import android.animation.ValueAnimator;
 import android.graphics.Canvas;
 import android.graphics.ColorFilter;
-import android.graphics.DashPathEffect;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.PathMeasure;
@@ -15,6 +14,7 @@ import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.view.animation.Interpolator;
 import android.view.animation.LinearInterpolator;
+import androidx.annotation.VisibleForTesting;
 import javax.annotation.Nullable;
 
 final class CheckMarkDrawable extends Drawable {
@@ -38,10 +38,14 @@ final class CheckMarkDrawable extends Drawable {
     // Animation values
     private final float[] dotPos = new float[2];
     private final Path dotPath = new Path();
-    private final Path checkMarkPath = new Path();
+    // The start, corner and end points of the two lines of the check mark.
+    private final float[] checkMarkPoints = new float[6];
+    // The part of the check mark that is drawn, updated on every frame of the check mark animation.
+    private final Path checkMarkSegment = new Path();
 
     private PathMeasure circlePathMeasure;
-    private PathMeasure checkMarkPathMeasure;
+    private float checkMarkFirstLineLength;
+    private float checkMarkLength;
     private boolean drawCheckMark = false;
     private float scale = 0f;
 
@@ -76,7 +80,7 @@ final class CheckMarkDrawable extends Drawable {
         // Scale down the check mark without changing the path.
         canvas.scale(CHECK_MARK_SCALE, CHECK_MARK_SCALE, cx, cy);
         if (drawCheckMark) {
-            canvas.drawPath(checkMarkPath, checkMarkPaint);
+            canvas.drawPath(checkMarkSegment, checkMarkPaint);
         } else {
             if (dotPos[0] == 0 && dotPos[1] == 0) {
                 dotPos[0] = cx;
@@ -109,9 +113,7 @@ final class CheckMarkDrawable extends Drawable {
     protected void onBoundsChange(Rect bounds) {
         super.onBoundsChange(bounds);
 
-        checkMarkPaint.setPathEffect(null);
         dotPath.reset();
-        checkMarkPath.reset();
         scale = 0f;
 
         int radius = Math.min(getBounds().width(), getBounds().height()) / 2 - 20;
@@ -127,13 +129,46 @@ final class CheckMarkDrawable extends Drawable {
 
         float[] whereDotStops = new float[2];
         circlePathMeasure.getPosTan(circlePathMeasure.getLength(), whereDotStops, null);
-        checkMarkPath.moveTo(whereDotStops[0], whereDotStops[1]);
-        checkMarkPath.lineTo(cx - 0.25f * radius, cy + 0.4f * radius);
+        checkMarkPoints[0] = whereDotStops[0];
+        checkMarkPoints[1] = whereDotStops[1];
+        checkMarkPoints[2] = cx - 0.25f * radius;
+        checkMarkPoints[3] = cy + 0.4f * radius;
 
         double degree = 90 - Math.toDegrees(Math.atan(0.6d / 0.75d));
         float atan = (float) (Math.tan(Math.toRadians(90 - degree)) * 0.45);
-        checkMarkPath.lineTo(cx + 0.45f * radius, cy - atan * radius);
-        checkMarkPathMeasure = new PathMeasure(checkMarkPath, false);
+        checkMarkPoints[4] = cx + 0.45f * radius;
+        checkMarkPoints[5] = cy - atan * radius;
+
+        checkMarkFirstLineLength = (float) Math.hypot(checkMarkPoints[2] - checkMarkPoints[0],
+                checkMarkPoints[3] - checkMarkPoints[1]);
+        checkMarkLength = checkMarkFirstLineLength + (float) Math.hypot(checkMarkPoints[4] - checkMarkPoints[2],
+                checkMarkPoints[5] - checkMarkPoints[3]);
+        traceCheckMark(checkMarkLength);
+    }
+
+    @VisibleForTesting
+    Path getCheckMarkSegment() {
+        return checkMarkSegment;
+    }
+
+    /**
+     * Copy the first {@code distance} pixels of the check mark into the reused segment Path.
+     */
+    private void traceCheckMark(float distance) {
+        float[] points = checkMarkPoints;
+        checkMarkSegment.reset();
+        checkMarkSegment.moveTo(points[0], points[1]);
+        if (distance <= checkMarkFirstLineLength) {
+            float fraction = checkMarkFirstLineLength == 0f ? 0f : distance / checkMarkFirstLineLength;
+            checkMarkSegment.lineTo(points[0] + (points[2] - points[0]) * fraction,
+                    points[1] + (points[3] - points[1]) * fraction);
+        } else {
+            checkMarkSegment.lineTo(points[2], points[3]);
+            float fraction =
+                    Math.min(1f, (distance - checkMarkFirstLineLength) / (checkMarkLength - checkMarkFirstLineLength));
+            checkMarkSegment.lineTo(points[2] + (points[4] - points[2]) * fraction,
+                    points[3] + (points[5] - points[3]) * fraction);
+        }
     }
 
     Animator getAnimator(AnimatorType type) {
@@ -149,9 +184,9 @@ final class CheckMarkDrawable extends Drawable {
         ValueAnimator checkMark = ValueAnimator.ofFloat(1f, 0f).setDuration(ANIM_CHECK_MARK_DURATION);
         checkMark.setInterpolator(INTERPOLATOR);
         checkMark.addUpdateListener(animation -> {
-            float length = checkMarkPathMeasure.getLength();
-            float value = (float) animation.getAnimatedValue() * length;
-            checkMarkPaint.setPathEffect(new DashPathEffect(new float[] { length, length }, value));
+            // Trace the check mark by copying the visible part of its lines into the reused segment Path, instead of
+            // creating a new DashPathEffect on every frame.
+            traceCheckMark(animation.getAnimatedFraction() * checkMarkLength);
             invalidateSelf();
         });
         checkMark.addListener(new AnimatorListenerAdapter() {
@@ -161,18 +196,20 @@ final class CheckMarkDrawable extends Drawable {
             }
         });
 
-        ValueAnimator.AnimatorUpdateListener updateListener = animation -> {
-            scale = (float) animation.getAnimatedValue();
-            invalidateSelf();
-        };
         ValueAnimator scaleUp = ValueAnimator.ofFloat(0f, 1f).setDuration(ANIM_SCALE_DURATION);
         scaleUp.setInterpolator(INTERPOLATOR);
-        scaleUp.addUpdateListener(updateListener);
+        scaleUp.addUpdateListener(animation -> {
+            scale = animation.getAnimatedFraction();
+            invalidateSelf();
+        });
 
         AnimatorSet set = new AnimatorSet();
         if (type == AnimatorType.COMPLETE) {
             ValueAnimator scaleDown = ValueAnimator.ofFloat(1f, 0f).setDuration(ANIM_SCALE_DURATION);
-            scaleDown.addUpdateListener(updateListener);
+            scaleDown.addUpdateListener(animation -> {
+                scale = 1f - animation.getAnimatedFraction();
+                invalidateSelf();
+            });
             scaleDown.setStartDelay(ANIM_PATH_SCALE_DOWN_START_DELAY);
             set.playSequentially(pathTracing, checkMark, scaleDown);
         } else if (type == AnimatorType.ENABLE) {
@@ -1,17 +1,18 @@
 package com.ifttt.connect.ui;
 
-import android.animation.Animator;
 import android.animation.LayoutTransition;
 import android.animation.ValueAnimator;
 import android.content.Context;
 import android.graphics.Color;
 import android.net.Uri;
-import android.os.AsyncTask;
 import android.text.SpannableString;
 import android.text.Spanned;
 import android.text.style.ForegroundColorSpan;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.view.Gravity;
+import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewTreeObserver;
@@ -19,6 +20,8 @@ import android.widget.FrameLayout;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.asynclayoutinflater.view.AsyncLayoutInflater;
 import androidx.core.content.ContextCompat;
 import androidx.core.text.HtmlCompat;
 import androidx.core.view.ViewCompat;
@@ -32,9 +35,13 @@ import com.ifttt.connect.ConnectionApiClient;
 import com.ifttt.connect.ErrorResponse;
 import com.ifttt.connect.R;
 import com.ifttt.connect.api.PendingResult;
+import java.util.ArrayList;
 
 import static android.animation.ValueAnimator.INFINITE;
+import static android.view.ViewGroup.LayoutParams.MATCH_PARENT;
+import static android.view.ViewGroup.LayoutParams.WRAP_CONTENT;
 import static androidx.core.text.HtmlCompat.FROM_HTML_MODE_COMPACT;
+import static com.ifttt.connect.ui.ButtonUiHelper.findWorksWithService;
 
 /**
  * The main UI component for the Connect Button SDK. This class handles both displaying {@link Connection} status for a
@@ -45,13 +52,42 @@ public class ConnectButton extends FrameLayout implements LifecycleOwner {
     private static final long ANIM_DURATION = 1000L;
     private static ConnectionApiClient API_CLIENT;
 
-    private final BaseConnectButton connectButton;
     private final TextView loadingView;
+    @Nullable private ValueAnimator loadingPulse;
+    private final ArrayList<ButtonStateChangeListener> listeners = new ArrayList<>();
 
-    private CredentialsProvider credentialsProvider;
+    // The interactive View hierarchy, it is inflated when the button is set up, or when the user starts interacting
+    // with the button if static rendering is enabled.
+    @Nullable private BaseConnectButton connectButton;
+    @Nullable private StaticConnectButtonView staticConnectButton;
+    private boolean isInflatingConnectButton;
+
+    private Configuration configuration;
+    private ConnectionApiClient connectionApiClient;
+    private AsyncCredentialsProvider credentialsProvider;
+    @Nullable private Connection connection;
+
+    // Id of the displayed Connection, whose updates in the ConnectionStore are observed while the button is attached.
+    @Nullable private String observedConnectionId;
+    private final ConnectionStore.Observer connectionObserver = this::onStoredConnectionChanged;
 
     private final LifecycleRegistry lifecycleRegistry = new LifecycleRegistry(this);
 
+    // Ongoing work for loading the Connection, and a counter used to drop the results of cancelled work.
+    @Nullable private UserTokenManager.UserTokenCallback ongoingUserTokenRequest;
+    @Nullable private ConnectionFetchHolder connectionFetchHolder;
+    @Nullable private ConnectionFetchHolder.Request ongoingConnectionFetch;
+    private int connectionLoadGeneration;
+
+    // User token request made to refresh the Connection after the connect flow has completed.
+    @Nullable private UserTokenManager.UserTokenCallback ongoingRefreshTokenRequest;
+
+    // Lazy loading state, see Configuration.Builder#setLazyLoading(boolean).
+    private boolean isLazyLoading;
+    private boolean visibilityListenersRegistered;
+    private final int[] locationInWindow = new int[2];
+    private final VisibilityListener visibilityListener = new VisibilityListener();
+
     public ConnectButton(@NonNull Context context) {
         this(context, null);
     }
@@ -68,24 +104,10 @@ public class ConnectButton extends FrameLayout implements LifecycleOwner {
         setLayoutTransition(new LayoutTransition());
 
         lifecycleRegistry.markState(Lifecycle.State.CREATED);
+        lifecycleRegistry.addObserver(new LoadingLifecycleObserver());
 
         inflate(context, R.layout.view_ifttt_simple_connect_button, this);
-        connectButton = findViewById(R.id.ifttt_connect_button);
         loadingView = findViewById(R.id.ifttt_loading_view);
-
-        // Make sure the loading view has the same size as the connect button.
-        loadingView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
-            @Override
-            public boolean onPreDraw() {
-                loadingView.getViewTreeObserver().removeOnPreDrawListener(this);
-                View buttonRoot = connectButton.findViewById(R.id.ifttt_button_root);
-                ViewGroup.LayoutParams lp = loadingView.getLayoutParams();
-                lp.width = buttonRoot.getWidth();
-                lp.height = buttonRoot.getHeight();
-                loadingView.setLayoutParams(lp);
-                return false;
-            }
-        });
     }
 
     /**
@@ -95,16 +117,23 @@ public class ConnectButton extends FrameLayout implements LifecycleOwner {
      * @param configuration Configuration object that helps set up the Connect Button.
      */
     public void setup(Configuration configuration) {
+        // Start resolving the device capabilities in the background, before they are needed by the connect flow.
+        DeviceCapabilities.get(getContext());
+
         if (ButtonUiHelper.isEmailInvalid(configuration.suggestedUserEmail) && !ButtonUiHelper.isIftttInstalled(
                 getContext().getPackageManager())) {
-            connectButton.setVisibility(View.GONE);
+            if (connectButton != null) {
+                connectButton.setVisibility(View.GONE);
+            }
+            if (staticConnectButton != null) {
+                staticConnectButton.setVisibility(View.GONE);
+            }
             loadingView.setVisibility(View.GONE);
+            stopLoadingPulse();
             Log.e(ConnectButton.class.getSimpleName(), configuration.suggestedUserEmail + " is invalid.");
             return;
         }
 
-        connectButton.setVisibility(View.VISIBLE);
-        loadingView.setVisibility(View.VISIBLE);
         ConnectionApiClient clientToUse;
         if (configuration.connectionApiClient == null) {
             if (API_CLIENT == null) {
@@ -120,63 +149,39 @@ public class ConnectButton extends FrameLayout implements LifecycleOwner {
             clientToUse = configuration.connectionApiClient;
         }
 
+        this.configuration = configuration;
+        connectionApiClient = clientToUse;
         credentialsProvider = configuration.credentialsProvider;
-        connectButton.setup(configuration.suggestedUserEmail, clientToUse, configuration.connectRedirectUri,
-                configuration.credentialsProvider, configuration.inviteCode);
-
-        pulseLoading();
-        UserTokenAsyncTask task = new UserTokenAsyncTask(credentialsProvider, () -> {
-            if (configuration.connection != null) {
-                if (configuration.listener != null) {
-                    configuration.listener.onFetchConnectionSuccessful(configuration.connection);
-                }
-
-                connectButton.setConnection(configuration.connection);
-                loadingView.setVisibility(GONE);
-                ((Animator) loadingView.getTag()).cancel();
-                return;
-            }
-
-            if (configuration.connectionId == null) {
-                throw new IllegalStateException("Connection id cannot be null.");
+        connection = null;
+        observeConnection(null);
+
+        if (configuration.staticRendering && connectButton == null) {
+            showStaticConnectButton();
+        } else if (configuration.asyncInflation && connectButton == null) {
+            // Use the loading view as the placeholder until the interactive View hierarchy is inflated.
+            inflateConnectButtonAsync();
+            loadingView.setVisibility(View.VISIBLE);
+            pulseLoading();
+        } else {
+            if (connectButton == null) {
+                inflateConnectButton();
+            } else {
+                setUpConnectButton(connectButton);
             }
 
-            PendingResult<Connection> pendingResult = API_CLIENT.api().showConnection(configuration.connectionId);
-            pendingResult.execute(new PendingResult.ResultCallback<Connection>() {
-                @Override
-                public void onSuccess(Connection result) {
-                    if (configuration.listener != null) {
-                        configuration.listener.onFetchConnectionSuccessful(result);
-                    }
-
-                    connectButton.setConnection(result);
-                    loadingView.setVisibility(GONE);
-                    ((Animator) loadingView.getTag()).cancel();
-                }
-
-                @Override
-                public void onFailure(ErrorResponse errorResponse) {
-                    CharSequence errorText =
-                            HtmlCompat.fromHtml(getResources().getString(R.string.ifttt_error_fetching_connection),
-                                    FROM_HTML_MODE_COMPACT);
-                    SpannableString errorSpan = new SpannableString(errorText);
-                    errorSpan.setSpan(
-                            new ForegroundColorSpan(ContextCompat.getColor(getContext(), R.color.ifttt_error_red)), 0,
-                            errorText.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
-
-                    connectButton.setErrorMessage(errorSpan, v -> {
-                        PendingResult<Connection> pendingResult =
-                                API_CLIENT.api().showConnection(configuration.connectionId);
-                        pendingResult.execute(this);
-                        lifecycleRegistry.addObserver(new PendingResultLifecycleObserver<>(pendingResult));
-                    });
-                }
-            });
+            connectButton.setVisibility(View.VISIBLE);
+            loadingView.setVisibility(View.VISIBLE);
+            pulseLoading();
+        }
 
-            lifecycleRegistry.addObserver(new PendingResultLifecycleObserver<>(pendingResult));
-        });
-        task.execute();
-        lifecycleRegistry.addObserver(new AsyncTaskObserver(task));
+        cancelConnectionLoading();
+        stopLazyLoading();
+        if (configuration.lazyLoading) {
+            // Defer the network work until the button is in or near the visible area of the window.
+            startLazyLoading();
+        } else {
+            loadConnection();
+        }
     }
 
     /**
@@ -185,7 +190,10 @@ public class ConnectButton extends FrameLayout implements LifecycleOwner {
      * @param listener {@link ButtonStateChangeListener} to be registered.
      */
     public void addButtonStateChangeListener(ButtonStateChangeListener listener) {
-        connectButton.addButtonStateChangeListener(listener);
+        listeners.add(listener);
+        if (connectButton != null) {
+            connectButton.addButtonStateChangeListener(listener);
+        }
     }
 
     /**
@@ -194,7 +202,60 @@ public class ConnectButton extends FrameLayout implements LifecycleOwner {
      * @param listener {@link ButtonStateChangeListener} to be removed.
      */
     public void removeButtonStateChangeListener(ButtonStateChangeListener listener) {
-        connectButton.removeButtonStateChangeListener(listener);
+        listeners.remove(listener);
+        if (connectButton != null) {
+            connectButton.removeButtonStateChangeListener(listener);
+        }
+    }
+
+    /**
+     * Set the maximum size of the in-memory cache for the service icons shown by all ConnectButton instances. By
+     * default, the cache size is derived from the app's memory class, and the cache is trimmed when the system
+     * is low on memory.
+     *
+     * @param context Context instance.
+     * @param maxSizeBytes Maximum size of the cache in bytes, must be positive.
+     */
+    public static void setImageCacheSize(Context context, int maxSizeBytes) {
+        ImageLoader.get(context).setCacheSize(maxSizeBytes);
+    }
+
+    /**
+     * @param context Context instance.
+     * @return The maximum size of the in-memory cache for the service icons in bytes.
+     */
+    public static int getImageCacheSize(Context context) {
+        return ImageLoader.get(context).getCacheSize();
+    }
+
+    /**
+     * Set the maximum size of the in-memory cache for the Connection cover images. Cover images are much larger than
+     * the service icons, so they are kept in a separate cache that doesn't evict the icons. By default, it has the
+     * same size as the icon cache, and it is trimmed when the system is low on memory.
+     *
+     * @param context Context instance.
+     * @param maxSizeBytes Maximum size of the cache in bytes, must be positive.
+     */
+    public static void setCoverImageCacheSize(Context context, int maxSizeBytes) {
+        ImageLoader.get(context).setCoverCacheSize(maxSizeBytes);
+    }
+
+    /**
+     * @param context Context instance.
+     * @return The maximum size of the in-memory cache for the Connection cover images in bytes.
+     */
+    public static int getCoverImageCacheSize(Context context) {
+        return ImageLoader.get(context).getCoverCacheSize();
+    }
+
+    /**
+     * Clear the IFTTT user token cached for all ConnectButton instances, for example when the user logs out of the app.
+     * The token is fetched again from the credentials provider the next time a ConnectButton is set up, and the
+     * Connections loaded for the previous user are fetched again.
+     */
+    public static void invalidateUserToken() {
+        UserTokenManager.get().invalidate();
+        ConnectionStore.get().clear();
     }
 
     /**
@@ -208,19 +269,32 @@ public class ConnectButton extends FrameLayout implements LifecycleOwner {
             return;
         }
 
+        if (connectButton == null) {
+            // The user has interacted with the button before, but the interactive View hierarchy has not yet been
+            // inflated in this instance.
+            swapInConnectButton();
+        }
+
         ButtonStateChangeListener listener = new ButtonStateChangeListener() {
             @Override
             public void onStateChanged(ConnectButtonState currentState, ConnectButtonState previousState) {
                 connectButton.removeButtonStateChangeListener(this);
                 if (currentState == ConnectButtonState.Enabled && result.nextStep == ConnectResult.NextStep.Complete) {
+                    UserTokenManager userTokenManager = UserTokenManager.get();
                     if (result.userToken != null) {
-                        API_CLIENT.setUserToken(result.userToken);
+                        userTokenManager.setUserToken(result.userToken);
+                        connectionApiClient.setUserToken(result.userToken);
                         refreshConnection();
                     } else {
-                        UserTokenAsyncTask task =
-                                new UserTokenAsyncTask(credentialsProvider, ConnectButton.this::refreshConnection);
-                        task.execute();
-                        lifecycleRegistry.addObserver(new AsyncTaskObserver(task));
+                        // The user has just connected, the token needs to be fetched again.
+                        userTokenManager.invalidate();
+                        UserTokenManager.UserTokenCallback callback = userToken -> {
+                            ongoingRefreshTokenRequest = null;
+                            connectionApiClient.setUserToken(userToken);
+                            refreshConnection();
+                        };
+                        ongoingRefreshTokenRequest = callback;
+                        userTokenManager.getUserToken(credentialsProvider, callback);
                     }
                 }
             }
@@ -247,31 +321,307 @@ public class ConnectButton extends FrameLayout implements LifecycleOwner {
         }
     }
 
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        if (staticConnectButton != null && connection != null && ev.getActionMasked() == MotionEvent.ACTION_DOWN) {
+            // The user starts interacting with the button, swap in the interactive View hierarchy before dispatching
+            // the event, so that it receives the full gesture.
+            swapInConnectButton();
+        }
+
+        return super.dispatchTouchEvent(ev);
+    }
+
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
         lifecycleRegistry.markState(Lifecycle.State.STARTED);
+        updateLoadingPulse();
+
+        if (observedConnectionId != null) {
+            ConnectionStore.get().addObserver(observedConnectionId, connectionObserver);
+            // Catch up with the changes made while the button was detached.
+            Connection storedConnection = ConnectionStore.get().get(observedConnectionId);
+            if (storedConnection != null) {
+                onStoredConnectionChanged(storedConnection);
+            }
+        }
+
+        if (isLazyLoading) {
+            registerVisibilityListeners();
+            // Wait for the first layout pass before checking the position of the button.
+            post(this::updateLazyLoading);
+        }
     }
 
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
+        pauseLoadingPulse();
+        if (observedConnectionId != null) {
+            ConnectionStore.get().removeObserver(observedConnectionId, connectionObserver);
+        }
+        if (isLazyLoading) {
+            // Start over when the button is attached again. The Connection fetch is kept in the
+            // ConnectionFetchHolder, for this button or the one replacing it after a configuration change.
+            unregisterVisibilityListeners();
+            stopConnectionLoading(false);
+        }
+
         lifecycleRegistry.markState(Lifecycle.State.DESTROYED);
     }
 
+    @Override
+    protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateLoadingPulse();
+        updateLazyLoading();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateLoadingPulse();
+        updateLazyLoading();
+    }
+
     @NonNull
     @Override
     public Lifecycle getLifecycle() {
         return lifecycleRegistry;
     }
 
+    /**
+     * Retrieve the user token and fetch the Connection for the current configuration, then display it. The work can be
+     * cancelled with {@link #cancelConnectionLoading()}.
+     */
+    private void loadConnection() {
+        Configuration configuration = this.configuration;
+        ConnectionApiClient clientToUse = connectionApiClient;
+        int generation = ++connectionLoadGeneration;
+
+        UserTokenManager.UserTokenCallback callback = userToken -> {
+            ongoingUserTokenRequest = null;
+            clientToUse.setUserToken(userToken);
+            if (configuration.connection != null) {
+                if (configuration.listener != null) {
+                    configuration.listener.onFetchConnectionSuccessful(configuration.connection);
+                }
+
+                stopLazyLoading();
+                displayConnection(configuration.connection);
+                return;
+            }
+
+            if (configuration.connectionId == null) {
+                throw new IllegalStateException("Connection id cannot be null.");
+            }
+
+            Connection storedConnection = ConnectionStore.get().getFresh(configuration.connectionId);
+            if (storedConnection != null) {
+                // Another button or screen has recently loaded the Connection for the same user.
+                if (configuration.listener != null) {
+                    configuration.listener.onFetchConnectionSuccessful(storedConnection);
+                }
+
+                stopLazyLoading();
+                displayConnection(storedConnection);
+                return;
+            }
+
+            if (connectionFetchHolder == null) {
+                connectionFetchHolder = ConnectionFetchHolder.get(getContext());
+            }
+
+            ConnectionFetchHolder fetchHolder = connectionFetchHolder;
+            PendingResult.ResultCallback<Connection> resultCallback = new PendingResult.ResultCallback<Connection>() {
+                @Override
+                public void onSuccess(Connection result) {
+                    if (generation != connectionLoadGeneration) {
+                        // The request has been cancelled or replaced.
+                        return;
+                    }
+
+                    ongoingConnectionFetch = null;
+                    ConnectionStore.get().put(result);
+                    if (configuration.listener != null) {
+                        configuration.listener.onFetchConnectionSuccessful(result);
+                    }
+
+                    stopLazyLoading();
+                    displayConnection(result);
+                }
+
+                @Override
+                public void onFailure(ErrorResponse errorResponse) {
+                    if (generation != connectionLoadGeneration) {
+                        // The request has been cancelled or replaced.
+                        return;
+                    }
+
+                    ongoingConnectionFetch = null;
+                    // The user can retry from the error message, stop loading automatically.
+                    stopLazyLoading();
+                    stopLoadingPulse();
+
+                    CharSequence errorText =
+                            HtmlCompat.fromHtml(getResources().getString(R.string.ifttt_error_fetching_connection),
+                                    FROM_HTML_MODE_COMPACT);
+                    SpannableString errorSpan = new SpannableString(errorText);
+                    errorSpan.setSpan(
+                            new ForegroundColorSpan(ContextCompat.getColor(getContext(), R.color.ifttt_error_red)), 0,
+                            errorText.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+
+                    OnClickListener retryListener =
+                            v -> fetchConnection(fetchHolder, clientToUse, configuration.connectionId, this);
+
+                    if (staticConnectButton != null) {
+                        staticConnectButton.setErrorMessage(errorSpan, retryListener);
+                    } else {
+                        if (connectButton == null) {
+                            // The asynchronous inflation has not yet completed, inflate the View hierarchy now to
+                            // show the error message.
+                            inflateConnectButton();
+                        }
+                        connectButton.setErrorMessage(errorSpan, retryListener);
+                    }
+                }
+            };
+            fetchConnection(fetchHolder, clientToUse, configuration.connectionId, resultCallback);
+        };
+        // The callback is invoked synchronously if the token is cached, keep track of it before making the request.
+        ongoingUserTokenRequest = callback;
+        UserTokenManager.get().getUserToken(credentialsProvider, callback);
+    }
+
+    private boolean isLoadingConnection() {
+        return ongoingUserTokenRequest != null || ongoingConnectionFetch != null;
+    }
+
+    /**
+     * Fetch the Connection through the {@link ConnectionFetchHolder}, joining the fetch started by a previous instance
+     * of this button if there is one. The fetch is only detached from when the button is stopped.
+     */
+    private void fetchConnection(ConnectionFetchHolder fetchHolder, ConnectionApiClient client, String id,
+            PendingResult.ResultCallback<Connection> callback) {
+        ConnectionFetchHolder.Request request = fetchHolder.fetch(client, id, callback);
+        // The result may have been delivered synchronously.
+        if (request.isWaiting()) {
+            ongoingConnectionFetch = request;
+        }
+    }
+
+    private void cancelConnectionLoading() {
+        stopConnectionLoading(true);
+    }
+
+    /**
+     * Drop the results of any ongoing request.
+     *
+     * @param cancelFetch false if the Connection fetch should be kept going, so that the result can be picked up when
+     * loading the Connection again.
+     */
+    private void stopConnectionLoading(boolean cancelFetch) {
+        connectionLoadGeneration++;
+
+        if (ongoingUserTokenRequest != null) {
+            UserTokenManager.get().removeCallback(ongoingUserTokenRequest);
+            ongoingUserTokenRequest = null;
+        }
+
+        if (ongoingConnectionFetch != null) {
+            if (cancelFetch) {
+                ongoingConnectionFetch.cancel();
+            } else {
+                ongoingConnectionFetch.detach();
+            }
+            ongoingConnectionFetch = null;
+        }
+    }
+
+    private void startLazyLoading() {
+        isLazyLoading = true;
+        if (ViewCompat.isAttachedToWindow(this)) {
+            registerVisibilityListeners();
+            updateLazyLoading();
+        }
+    }
+
+    private void stopLazyLoading() {
+        isLazyLoading = false;
+        unregisterVisibilityListeners();
+    }
+
+    /**
+     * Start loading the Connection when the button gets close to the visible area of the window, and cancel the
+     * ongoing work if it moves away before the Connection is loaded.
+     */
+    private void updateLazyLoading() {
+        if (!isLazyLoading) {
+            return;
+        }
+
+        boolean nearViewport = isInOrNearViewport();
+        if (nearViewport && !isLoadingConnection()) {
+            loadConnection();
+        } else if (!nearViewport && isLoadingConnection()) {
+            // Keep the fetch going if the window is hidden, e.g. when the Activity is being recreated, only cancel it
+            // if the button has been scrolled away.
+            stopConnectionLoading(getWindowVisibility() == VISIBLE);
+        }
+    }
+
+    /**
+     * @return true if the button is shown, and is within the bounds of the window extended by half of its size in
+     * each direction. The extended bounds let the loading start shortly before the button is scrolled into the
+     * window, e.g. in a ScrollView, RecyclerView or the next page of a ViewPager.
+     */
+    private boolean isInOrNearViewport() {
+        if (!ViewCompat.isAttachedToWindow(this) || !isShown() || getWindowVisibility() != VISIBLE) {
+            return false;
+        }
+
+        View root = getRootView();
+        int marginX = root.getWidth() / 2;
+        int marginY = root.getHeight() / 2;
+        getLocationInWindow(locationInWindow);
+        int left = locationInWindow[0];
+        int top = locationInWindow[1];
+        return left + getWidth() > -marginX && left < root.getWidth() + marginX && top + getHeight() > -marginY
+                && top < root.getHeight() + marginY;
+    }
+
+    private void registerVisibilityListeners() {
+        if (visibilityListenersRegistered) {
+            return;
+        }
+
+        ViewTreeObserver observer = getViewTreeObserver();
+        observer.addOnScrollChangedListener(visibilityListener);
+        observer.addOnGlobalLayoutListener(visibilityListener);
+        visibilityListenersRegistered = true;
+    }
+
+    private void unregisterVisibilityListeners() {
+        if (!visibilityListenersRegistered) {
+            return;
+        }
+
+        ViewTreeObserver observer = getViewTreeObserver();
+        observer.removeOnScrollChangedListener(visibilityListener);
+        observer.removeOnGlobalLayoutListener(visibilityListener);
+        visibilityListenersRegistered = false;
+    }
+
     private void refreshConnection() {
         Connection connection = connectButton.getConnection();
-        PendingResult<Connection> pendingResult = API_CLIENT.api().showConnection(connection.id);
+        PendingResult<Connection> pendingResult = connectionApiClient.api().showConnection(connection.id);
         pendingResult.execute(new PendingResult.ResultCallback<Connection>() {
             @Override
             public void onSuccess(Connection result) {
+                ConnectButton.this.connection = result;
                 connectButton.setConnection(result);
+                ConnectionStore.get().put(result);
             }
 
             @Override
@@ -283,15 +633,218 @@ public class ConnectButton extends FrameLayout implements LifecycleOwner {
         lifecycleRegistry.addObserver(new PendingResultLifecycleObserver<>(pendingResult));
     }
 
+    private void displayConnection(Connection connection) {
+        this.connection = connection;
+        observeConnection(connection.id);
+
+        if (connectButton != null) {
+            connectButton.setConnection(connection);
+            loadingView.setVisibility(GONE);
+            stopLoadingPulse();
+        } else if (staticConnectButton != null) {
+            StaticConnectButtonView staticConnectButton = this.staticConnectButton;
+            staticConnectButton.setConnection(connection);
+            ImageLoader.get(getContext())
+                    .loadMonochrome(getLifecycle(), findWorksWithService(connection).monochromeIconUrl,
+                            staticConnectButton::setServiceIcon);
+        }
+    }
+
+    private void observeConnection(@Nullable String id) {
+        if (id == null ? observedConnectionId == null : id.equals(observedConnectionId)) {
+            return;
+        }
+
+        boolean attached = ViewCompat.isAttachedToWindow(this);
+        if (attached && observedConnectionId != null) {
+            ConnectionStore.get().removeObserver(observedConnectionId, connectionObserver);
+        }
+
+        observedConnectionId = id;
+        if (attached && id != null) {
+            ConnectionStore.get().addObserver(id, connectionObserver);
+        }
+    }
+
+    private void onStoredConnectionChanged(Connection storedConnection) {
+        if (storedConnection == connection) {
+            return;
+        }
+
+        if (connectButton != null) {
+            if (storedConnection == connectButton.getConnection() || !connectButton.isIdle()) {
+                // Either this button has made the change, or the user is in the middle of a flow.
+                return;
+            }
+        } else if (staticConnectButton == null) {
+            return;
+        }
+
+        displayConnection(storedConnection);
+    }
+
+    private void showStaticConnectButton() {
+        if (staticConnectButton == null) {
+            staticConnectButton = new StaticConnectButtonView(getContext());
+            addView(staticConnectButton, 0, new LayoutParams(MATCH_PARENT, WRAP_CONTENT, Gravity.CENTER_HORIZONTAL));
+        }
+
+        staticConnectButton.setVisibility(View.VISIBLE);
+        staticConnectButton.setConnection(null);
+        loadingView.setVisibility(GONE);
+        stopLoadingPulse();
+    }
+
+    /**
+     * Replace the {@link StaticConnectButtonView} with the interactive View hierarchy, and lay it out immediately at
+     * the same position so that it can handle the ongoing touch event.
+     */
+    private void swapInConnectButton() {
+        StaticConnectButtonView staticView = staticConnectButton;
+
+        // Skip layout transitions, the swap should not be visible to the user.
+        LayoutTransition layoutTransition = getLayoutTransition();
+        setLayoutTransition(null);
+        if (staticView != null) {
+            removeView(staticView);
+            staticConnectButton = null;
+        }
+        BaseConnectButton button = inflateConnectButton();
+        setLayoutTransition(layoutTransition);
+
+        if (staticView != null && connection != null) {
+            layoutInPlace(button, staticView);
+            button.setConnection(connection);
+            // Lay out again to apply the icon position for the Connection status.
+            layoutInPlace(button, staticView);
+        }
+    }
+
+    private BaseConnectButton inflateConnectButton() {
+        BaseConnectButton button = (BaseConnectButton) LayoutInflater.from(getContext())
+                .inflate(R.layout.view_ifttt_base_connect_button, this, false);
+        addConnectButton(button);
+        return button;
+    }
+
+    /**
+     * Inflate the interactive View hierarchy on a background thread. The Connection will be rendered once the
+     * inflation is completed, if it has been fetched by then.
+     */
+    private void inflateConnectButtonAsync() {
+        if (isInflatingConnectButton) {
+            return;
+        }
+
+        isInflatingConnectButton = true;
+        new AsyncLayoutInflater(getContext()).inflate(R.layout.view_ifttt_base_connect_button, this,
+                (view, resid, parent) -> {
+                    isInflatingConnectButton = false;
+                    if (connectButton != null) {
+                        // The View hierarchy has been inflated synchronously in the meantime.
+                        return;
+                    }
+
+                    addConnectButton((BaseConnectButton) view);
+                    if (connection != null) {
+                        displayConnection(connection);
+                    }
+                });
+    }
+
+    private void addConnectButton(BaseConnectButton button) {
+        connectButton = button;
+        addView(button, 0);
+
+        for (ButtonStateChangeListener listener : listeners) {
+            button.addButtonStateChangeListener(listener);
+        }
+        setUpConnectButton(button);
+
+        // Make sure the loading view has the same size as the connect button.
+        loadingView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                loadingView.getViewTreeObserver().removeOnPreDrawListener(this);
+                View buttonRoot = button.findViewById(R.id.ifttt_button_root);
+                ViewGroup.LayoutParams lp = loadingView.getLayoutParams();
+                lp.width = buttonRoot.getWidth();
+                lp.height = buttonRoot.getHeight();
+                loadingView.setLayoutParams(lp);
+                return false;
+            }
+        });
+    }
+
+    private void setUpConnectButton(BaseConnectButton button) {
+        button.setup(configuration.suggestedUserEmail, connectionApiClient, configuration.connectRedirectUri,
+                configuration.credentialsProvider, configuration.inviteCode);
+        button.setOptimisticDisable(configuration.optimisticDisable);
+    }
+
+    private static void layoutInPlace(View view, View reference) {
+        view.measure(MeasureSpec.makeMeasureSpec(reference.getWidth(), MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED));
+        view.layout(reference.getLeft(), reference.getTop(), reference.getLeft() + view.getMeasuredWidth(),
+                reference.getTop() + view.getMeasuredHeight());
+    }
+
     private void pulseLoading() {
+        stopLoadingPulse();
+        if (configuration.staticLoadingPlaceholder) {
+            return;
+        }
+
         ValueAnimator animator = ValueAnimator.ofInt(255, 200);
         animator.addUpdateListener(
                 animation -> loadingView.setTextColor(Color.argb((int) animation.getAnimatedValue(), 255, 255, 255)));
         animator.setRepeatCount(INFINITE);
         animator.setDuration(ANIM_DURATION);
-        animator.start();
+        loadingPulse = animator;
 
-        loadingView.setTag(animator);
+        updateLoadingPulse();
+    }
+
+    /**
+     * Run the loading pulse only while it can be seen: the animation is paused when the button is detached, hidden,
+     * or its window is not visible, e.g. when the host Activity is stopped.
+     */
+    private void updateLoadingPulse() {
+        if (loadingPulse == null) {
+            return;
+        }
+
+        boolean visible = ViewCompat.isAttachedToWindow(this) && getWindowVisibility() == VISIBLE && isShown();
+        if (visible && !loadingPulse.isStarted()) {
+            loadingPulse.start();
+        } else if (!visible && loadingPulse.isStarted()) {
+            pauseLoadingPulse();
+        }
+    }
+
+    private void pauseLoadingPulse() {
+        if (loadingPulse == null) {
+            return;
+        }
+
+        // The pulse restarts from the beginning when resumed, which is not noticeable.
+        loadingPulse.cancel();
+        loadingView.setTextColor(Color.WHITE);
+    }
+
+    @VisibleForTesting
+    boolean isInflatingAsync() {
+        return isInflatingConnectButton;
+    }
+
+    @VisibleForTesting
+    boolean isLoadingPulseRunning() {
+        return loadingPulse != null && loadingPulse.isStarted();
+    }
+
+    private void stopLoadingPulse() {
+        pauseLoadingPulse();
+        loadingPulse = null;
     }
 
     /**
@@ -316,7 +869,7 @@ public class ConnectButton extends FrameLayout implements LifecycleOwner {
     public static final class Configuration {
 
         private final String suggestedUserEmail;
-        private final CredentialsProvider credentialsProvider;
+        private final AsyncCredentialsProvider credentialsProvider;
         private final Uri connectRedirectUri;
 
         @Nullable private final ConnectionApiClient connectionApiClient;
@@ -324,13 +877,18 @@ public class ConnectButton extends FrameLayout implements LifecycleOwner {
         @Nullable private Connection connection;
         @Nullable private OnFetchConnectionListener listener;
         @Nullable private String inviteCode;
+        private boolean staticRendering;
+        private boolean asyncInflation;
+        private boolean lazyLoading;
+        private boolean staticLoadingPlaceholder;
+        private boolean optimisticDisable;
 
         /**
          * Builder class for constructing a Configuration object.
          */
         public static final class Builder {
             private final String suggestedUserEmail;
-            private final CredentialsProvider credentialsProvider;
+            private final AsyncCredentialsProvider credentialsProvider;
             private final Uri connectRedirectUri;
             @Nullable private ConnectionApiClient connectionApiClient;
 
@@ -338,6 +896,11 @@ public class ConnectButton extends FrameLayout implements LifecycleOwner {
             @Nullable private OnFetchConnectionListener listener;
             @Nullable private Connection connection;
             @Nullable private String inviteCode;
+            private boolean staticRendering;
+            private boolean asyncInflation;
+            private boolean lazyLoading;
+            private boolean staticLoadingPlaceholder;
+            private boolean optimisticDisable;
 
             /**
              * Factory method for creating a new Configuration builder.
@@ -353,6 +916,24 @@ public class ConnectButton extends FrameLayout implements LifecycleOwner {
              */
             public static Builder withConnection(Connection connection, String suggestedUserEmail,
                     CredentialsProvider credentialsProvider, Uri connectRedirectUri) {
+                return withConnection(connection, suggestedUserEmail,
+                        CredentialsProviders.fromBlocking(credentialsProvider), connectRedirectUri);
+            }
+
+            /**
+             * Factory method for creating a new Configuration builder, with an {@link AsyncCredentialsProvider}.
+             *
+             * @param connection {@link Connection} object.
+             * @param suggestedUserEmail Email address string provided as the suggested email for the user. Must be a
+             * valid email address.
+             * @param credentialsProvider {@link AsyncCredentialsProvider} object that helps facilitate connection
+             * enable flow from a ConnectButton.
+             * @param connectRedirectUri Redirect {@link Uri} object that the ConnectButton is going to use to
+             * redirect users back to your app after the connection enable flow is completed or failed.
+             * @return The Builder object itself for chaining.
+             */
+            public static Builder withConnection(Connection connection, String suggestedUserEmail,
+                    AsyncCredentialsProvider credentialsProvider, Uri connectRedirectUri) {
                 Builder builder = new Builder(suggestedUserEmail, credentialsProvider, connectRedirectUri);
                 builder.connection = connection;
                 return builder;
@@ -373,12 +954,31 @@ public class ConnectButton extends FrameLayout implements LifecycleOwner {
              */
             public static Builder withConnectionId(String connectionId, String suggestedUserEmail,
                     CredentialsProvider credentialsProvider, Uri connectRedirectUri) {
+                return withConnectionId(connectionId, suggestedUserEmail,
+                        CredentialsProviders.fromBlocking(credentialsProvider), connectRedirectUri);
+            }
+
+            /**
+             * Factory method for creating a new Configuration builder, with an {@link AsyncCredentialsProvider}.
+             *
+             * @param connectionId A Connection id that the {@link ConnectionApiClient} can use to fetch the
+             * associated Connection object.
+             * @param suggestedUserEmail Email address string provided as the suggested email for the user. Must be a
+             * valid email address.
+             * @param credentialsProvider {@link AsyncCredentialsProvider} object that helps facilitate connection
+             * enable flow from a ConnectButton.
+             * @param connectRedirectUri Redirect {@link Uri} object that the ConnectButton is going to use to
+             * redirect users back to your app after the connection enable flow is completed or failed.
+             * @return The Builder object itself for chaining.
+             */
+            public static Builder withConnectionId(String connectionId, String suggestedUserEmail,
+                    AsyncCredentialsProvider credentialsProvider, Uri connectRedirectUri) {
                 Builder builder = new Builder(suggestedUserEmail, credentialsProvider, connectRedirectUri);
                 builder.connectionId = connectionId;
                 return builder;
             }
 
-            private Builder(String suggestedUserEmail, CredentialsProvider credentialsProvider,
+            private Builder(String suggestedUserEmail, AsyncCredentialsProvider credentialsProvider,
                     Uri connectRedirectUri) {
                 this.suggestedUserEmail = suggestedUserEmail;
                 this.credentialsProvider = credentialsProvider;
@@ -418,6 +1018,62 @@ public class ConnectButton extends FrameLayout implements LifecycleOwner {
                 return this;
             }
 
+            /**
+             * @param staticRendering true if the ConnectButton should render its idle states with a single lightweight
+             * View, and only inflate the interactive View hierarchy when the user starts interacting with the button.
+             * This is useful when displaying many ConnectButtons at the same time, e.g. in a list.
+             * @return The Builder object itself for chaining.
+             */
+            public Builder setStaticRendering(boolean staticRendering) {
+                this.staticRendering = staticRendering;
+                return this;
+            }
+
+            /**
+             * @param asyncInflation true if the ConnectButton should inflate its View hierarchy on a background thread,
+             * showing a lightweight loading placeholder until the inflation is completed. This helps avoid blocking
+             * the first frame when adding several ConnectButtons to a screen.
+             * @return The Builder object itself for chaining.
+             */
+            public Builder setAsyncInflation(boolean asyncInflation) {
+                this.asyncInflation = asyncInflation;
+                return this;
+            }
+
+            /**
+             * @param lazyLoading true if the ConnectButton should only retrieve the user token and fetch the
+             * Connection once it is in or close to the visible area of the window. The work is cancelled if the
+             * button moves away before it is completed, and started again when the button comes back. This is useful
+             * when the button is placed far down a scrolling screen, or in a page that might not be shown.
+             * @return The Builder object itself for chaining.
+             */
+            public Builder setLazyLoading(boolean lazyLoading) {
+                this.lazyLoading = lazyLoading;
+                return this;
+            }
+
+            /**
+             * @param staticLoadingPlaceholder true if the ConnectButton should show a static loading placeholder
+             * while the Connection is being fetched, instead of a pulsing animation. The static placeholder doesn't
+             * render any frames after it is first drawn.
+             * @return The Builder object itself for chaining.
+             */
+            public Builder setStaticLoadingPlaceholder(boolean staticLoadingPlaceholder) {
+                this.staticLoadingPlaceholder = staticLoadingPlaceholder;
+                return this;
+            }
+
+            /**
+             * @param optimisticDisable true if the ConnectButton should show the Connection as disabled as soon as
+             * the user turns it off, and disable it in the background. Failed requests are retried, and the
+             * Connection is only shown as enabled again if all of the retries fail.
+             * @return The Builder object itself for chaining.
+             */
+            public Builder setOptimisticDisable(boolean optimisticDisable) {
+                this.optimisticDisable = optimisticDisable;
+                return this;
+            }
+
             public Configuration build() {
                 if (connection == null && connectionId == null) {
                     throw new IllegalStateException("Either connection or connectionId must be non-null.");
@@ -430,11 +1086,16 @@ public class ConnectButton extends FrameLayout implements LifecycleOwner {
                 configuration.connectionId = connectionId;
                 configuration.listener = listener;
                 configuration.inviteCode = inviteCode;
+                configuration.staticRendering = staticRendering;
+                configuration.asyncInflation = asyncInflation;
+                configuration.lazyLoading = lazyLoading;
+                configuration.staticLoadingPlaceholder = staticLoadingPlaceholder;
+                configuration.optimisticDisable = optimisticDisable;
                 return configuration;
             }
         }
 
-        private Configuration(String suggestedUserEmail, CredentialsProvider credentialsProvider,
+        private Configuration(String suggestedUserEmail, AsyncCredentialsProvider credentialsProvider,
                 Uri connectRedirectUri, @Nullable ConnectionApiClient connectionApiClient) {
             this.suggestedUserEmail = suggestedUserEmail;
             this.credentialsProvider = credentialsProvider;
@@ -443,43 +1104,34 @@ public class ConnectButton extends FrameLayout implements LifecycleOwner {
         }
     }
 
-    private static final class UserTokenAsyncTask extends android.os.AsyncTask<Void, Void, String> {
-
-        private interface UserTokenCallback {
-            void onUserTokenSet();
-        }
-
-        private final CredentialsProvider callback;
-        private final UserTokenCallback userTokenCallback;
-
-        private UserTokenAsyncTask(CredentialsProvider callback, UserTokenCallback userTokenCallback) {
-            this.callback = callback;
-            this.userTokenCallback = userTokenCallback;
-        }
+    private final class VisibilityListener
+            implements ViewTreeObserver.OnScrollChangedListener, ViewTreeObserver.OnGlobalLayoutListener {
 
         @Override
-        protected String doInBackground(Void... voids) {
-            return callback.getUserToken();
+        public void onScrollChanged() {
+            updateLazyLoading();
         }
 
         @Override
-        protected void onPostExecute(String s) {
-            API_CLIENT.setUserToken(s);
-            userTokenCallback.onUserTokenSet();
+        public void onGlobalLayout() {
+            updateLazyLoading();
         }
     }
 
-    private final class AsyncTaskObserver implements LifecycleObserver {
-
-        private final AsyncTask task;
-
-        private AsyncTaskObserver(AsyncTask task) {
-            this.task = task;
-        }
+    /**
+     * Stops listening to the ongoing work when the button is stopped. The user token requests are shared with other
+     * buttons, and the Connection fetch is kept going, as a new instance of the button may pick up its result.
+     */
+    private final class LoadingLifecycleObserver implements LifecycleObserver {
 
         @OnLifecycleEvent(Lifecycle.Event.ON_STOP)
         void onStop() {
-            task.cancel(true);
+            stopConnectionLoading(false);
+
+            if (ongoingRefreshTokenRequest != null) {
+                UserTokenManager.get().removeCallback(ongoingRefreshTokenRequest);
+                ongoingRefreshTokenRequest = null;
+            }
         }
     }
 }
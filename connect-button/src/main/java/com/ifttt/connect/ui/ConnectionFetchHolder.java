@@ -0,0 +1,243 @@
+package com.ifttt.connect.ui;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.lifecycle.ViewModelStoreOwner;
+import com.ifttt.connect.Connection;
+import com.ifttt.connect.ConnectionApiClient;
+import com.ifttt.connect.ErrorResponse;
+import com.ifttt.connect.api.PendingResult;
+import com.ifttt.connect.api.PendingResult.ResultCallback;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nullable;
+
+/**
+ * Holder of the ongoing Connection fetches of the ConnectButtons in an Activity, retained across configuration
+ * changes as a {@link ViewModel}.
+ *
+ * When the Activity is recreated, the old ConnectButton instances detach from their fetches instead of cancelling
+ * them, and the new instances join the fetches that are still in flight, or pick up the results that came back in
+ * between. The fetches are only cancelled when the Activity is finished, or when all of the buttons waiting for them
+ * cancel them.
+ *
+ * Only the Connection fetches are held here. User token requests are process-wide in {@link UserTokenManager}, and
+ * service icons are cached by {@link ImageLoader}, so they don't need an Activity-scoped holder.
+ *
+ * Results are dropped when the user token of the {@link ConnectionApiClient} that fetched them changes. All methods
+ * must be called on the main thread.
+ */
+final class ConnectionFetchHolder extends ViewModel {
+
+    private static final ViewModelProvider.Factory FACTORY = new ViewModelProvider.Factory() {
+        @NonNull
+        @Override
+        public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
+            return modelClass.cast(new ConnectionFetchHolder());
+        }
+    };
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, Fetch> fetches = new HashMap<>();
+
+    /**
+     * @return The ConnectionFetchHolder retained by the Activity of the given Context, or a new instance if the
+     * Context doesn't lead to a {@link ViewModelStoreOwner}, for example a plain {@link android.app.Activity} or an
+     * application Context. The new instance is only known to the calling button: its fetches survive the button being
+     * stopped and started again, but a button in a recreated Activity starts its own fetches.
+     */
+    @CheckReturnValue
+    static ConnectionFetchHolder get(Context context) {
+        while (context instanceof ContextWrapper) {
+            if (context instanceof ViewModelStoreOwner) {
+                return new ViewModelProvider((ViewModelStoreOwner) context, FACTORY).get(
+                        ConnectionFetchHolder.class);
+            }
+
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+
+        Log.w(ConnectionFetchHolder.class.getSimpleName(),
+                "No ViewModelStoreOwner found, Connection fetches won't be retained across configuration changes.");
+        return new ConnectionFetchHolder();
+    }
+
+    /**
+     * Fetch the Connection with the given id, joining the ongoing fetch if there is one, or using the result of a
+     * fetch that has completed while no one was waiting for it.
+     *
+     * @return A Request that can be used to stop waiting for the result.
+     */
+    @MainThread
+    Request fetch(ConnectionApiClient client, String id, ResultCallback<Connection> callback) {
+        Request request = new Request(id, callback);
+
+        Fetch fetch = fetches.get(id);
+        if (fetch != null && fetch.client != client) {
+            // The Connection is now fetched with a different client, and maybe for a different user.
+            remove(fetch);
+            fetch = null;
+        }
+
+        if (fetch != null && fetch.result != null) {
+            remove(fetch);
+            callback.onSuccess(fetch.result);
+            return request;
+        }
+
+        if (fetch == null) {
+            fetch = new Fetch(client, id);
+            fetches.put(id, fetch);
+            fetch.start();
+        }
+
+        fetch.callbacks.add(callback);
+        return request;
+    }
+
+    @VisibleForTesting
+    boolean isFetching(String id) {
+        Fetch fetch = fetches.get(id);
+        return fetch != null && fetch.result == null;
+    }
+
+    @Override
+    protected void onCleared() {
+        for (Fetch fetch : new ArrayList<>(fetches.values())) {
+            remove(fetch);
+        }
+    }
+
+    private void remove(Fetch fetch) {
+        if (fetches.get(fetch.id) == fetch) {
+            fetches.remove(fetch.id);
+        }
+
+        fetch.client.removeUserTokenListener(fetch);
+        if (fetch.result == null) {
+            fetch.pendingResult.cancel();
+        }
+    }
+
+    /**
+     * A caller waiting for the result of a fetch.
+     */
+    final class Request {
+        private final String id;
+        private final ResultCallback<Connection> callback;
+
+        private Request(String id, ResultCallback<Connection> callback) {
+            this.id = id;
+            this.callback = callback;
+        }
+
+        /**
+         * @return True if the result has not been delivered yet.
+         */
+        @CheckReturnValue
+        boolean isWaiting() {
+            Fetch fetch = fetches.get(id);
+            return fetch != null && fetch.callbacks.contains(callback);
+        }
+
+        /**
+         * Stop waiting for the result, and keep the fetch going so that its result can be picked up by the next
+         * caller, for example the same button in a recreated Activity.
+         */
+        @MainThread
+        void detach() {
+            Fetch fetch = fetches.get(id);
+            if (fetch != null) {
+                fetch.callbacks.remove(callback);
+            }
+        }
+
+        /**
+         * Stop waiting for the result, and cancel the fetch if no one else is waiting for it.
+         */
+        @MainThread
+        void cancel() {
+            Fetch fetch = fetches.get(id);
+            if (fetch == null || !fetch.callbacks.remove(callback)) {
+                return;
+            }
+
+            if (fetch.callbacks.isEmpty()) {
+                remove(fetch);
+            }
+        }
+    }
+
+    private final class Fetch implements ResultCallback<Connection>, ConnectionApiClient.UserTokenListener {
+        final ConnectionApiClient client;
+        final String id;
+        final List<ResultCallback<Connection>> callbacks = new ArrayList<>();
+
+        PendingResult<Connection> pendingResult;
+        @Nullable Connection result;
+
+        Fetch(ConnectionApiClient client, String id) {
+            this.client = client;
+            this.id = id;
+        }
+
+        void start() {
+            client.addUserTokenListener(this);
+            pendingResult = client.api().showConnection(id);
+            pendingResult.execute(this);
+        }
+
+        @Override
+        public void onSuccess(Connection result) {
+            if (fetches.get(id) != this) {
+                return;
+            }
+
+            this.result = result;
+            if (callbacks.isEmpty()) {
+                // Keep the result for the next caller.
+                return;
+            }
+
+            remove(this);
+            for (ResultCallback<Connection> callback : new ArrayList<>(callbacks)) {
+                callback.onSuccess(result);
+            }
+        }
+
+        @Override
+        public void onFailure(ErrorResponse errorResponse) {
+            if (fetches.get(id) != this) {
+                return;
+            }
+
+            // Errors are not kept, the next caller fetches the Connection again.
+            fetches.remove(id);
+            client.removeUserTokenListener(this);
+            for (ResultCallback<Connection> callback : new ArrayList<>(callbacks)) {
+                callback.onFailure(errorResponse);
+            }
+        }
+
+        @Override
+        public void onUserTokenChanged(@Nullable String userToken) {
+            // Ongoing requests are re-issued with the new token by the client, completed ones are out of date.
+            handler.post(() -> {
+                if (result != null) {
+                    remove(this);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.ifttt.connect.ui;
+
+import android.os.SystemClock;
+import androidx.annotation.MainThread;
+import androidx.annotation.VisibleForTesting;
+import com.ifttt.connect.Connection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nullable;
+
+/**
+ * Process wide store of the latest {@link Connection} objects returned by the IFTTT API, keyed by Connection id.
+ *
+ * The SDK writes every Connection it fetches or changes into the store, and the UI components displaying a Connection
+ * observe it, so that enabling or disabling a Connection in one place is reflected everywhere in the app without
+ * additional requests.
+ *
+ * Every stored Connection is given a version, which increases with each write to the store. Saved states and Intents
+ * can carry the id and version of a Connection instead of the Connection itself, and look it up again with
+ * {@link #get(String, long)}: if the store doesn't hold that version or a later one, the process has been restarted
+ * or the store cleared in the meantime, and the Connection has to be fetched again.
+ *
+ * All methods must be called on the main thread, and the observers are notified on the main thread.
+ */
+final class ConnectionStore {
+
+    interface Observer {
+        @MainThread
+        void onConnectionChanged(Connection connection);
+    }
+
+    // How long a stored Connection can be used in place of fetching it again. Changes made outside of the app, for
+    // example on ifttt.com, are picked up after this delay.
+    private static final long MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static ConnectionStore INSTANCE;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, List<Observer>> observers = new HashMap<>();
+    private long nextVersion = 1;
+
+    static ConnectionStore get() {
+        if (INSTANCE == null) {
+            INSTANCE = new ConnectionStore();
+        }
+
+        return INSTANCE;
+    }
+
+    /**
+     * @return The stored Connection with the given id, or null if there is none.
+     */
+    @CheckReturnValue
+    @Nullable
+    Connection get(String id) {
+        Entry entry = entries.get(id);
+        return entry == null ? null : entry.connection;
+    }
+
+    /**
+     * @return The stored Connection with the given id, if its version is at least the given one. Null otherwise.
+     */
+    @CheckReturnValue
+    @Nullable
+    Connection get(String id, long version) {
+        Entry entry = entries.get(id);
+        return entry == null || entry.version < version ? null : entry.connection;
+    }
+
+    /**
+     * @return The stored Connection with the given id if it can be displayed without fetching it again: it was stored
+     * recently, and its status is specific to the user. Null otherwise.
+     */
+    @CheckReturnValue
+    @Nullable
+    Connection getFresh(String id) {
+        Entry entry = entries.get(id);
+        if (entry == null || entry.connection.status == Connection.Status.unknown
+                || SystemClock.elapsedRealtime() - entry.storedAt > MAX_AGE_MILLIS) {
+            return null;
+        }
+
+        return entry.connection;
+    }
+
+    /**
+     * Store the Connection, and notify the observers of its id.
+     */
+    @MainThread
+    void put(Connection connection) {
+        entries.put(connection.id, new Entry(connection, nextVersion++, SystemClock.elapsedRealtime()));
+
+        List<Observer> connectionObservers = observers.get(connection.id);
+        if (connectionObservers == null) {
+            return;
+        }
+
+        for (Observer observer : new ArrayList<>(connectionObservers)) {
+            observer.onConnectionChanged(connection);
+        }
+    }
+
+    /**
+     * Store the Connection if there is none with the same id yet.
+     *
+     * @return The version of the stored Connection with the same id: the given Connection if there was none, or the
+     * one that was already stored, which is the latest known state.
+     */
+    @MainThread
+    long putIfAbsent(Connection connection) {
+        Entry entry = entries.get(connection.id);
+        if (entry == null) {
+            put(connection);
+            entry = entries.get(connection.id);
+        }
+
+        return entry.version;
+    }
+
+    @MainThread
+    void addObserver(String id, Observer observer) {
+        List<Observer> connectionObservers = observers.get(id);
+        if (connectionObservers == null) {
+            connectionObservers = new ArrayList<>();
+            observers.put(id, connectionObservers);
+        }
+
+        connectionObservers.add(observer);
+    }
+
+    @MainThread
+    void removeObserver(String id, Observer observer) {
+        List<Observer> connectionObservers = observers.get(id);
+        if (connectionObservers == null) {
+            return;
+        }
+
+        connectionObservers.remove(observer);
+        if (connectionObservers.isEmpty()) {
+            observers.remove(id);
+        }
+    }
+
+    /**
+     * Remove all of the stored Connections, for example when the user changes. Observers are kept.
+     */
+    @MainThread
+    void clear() {
+        entries.clear();
+    }
+
+    @VisibleForTesting
+    int getObserverCount(String id) {
+        List<Observer> connectionObservers = observers.get(id);
+        return connectionObservers == null ? 0 : connectionObservers.size();
+    }
+
+    private static final class Entry {
+        final Connection connection;
+        final long version;
+        final long storedAt;
+
+        Entry(Connection connection, long version, long storedAt) {
+            this.connection = connection;
+            this.version = version;
+            this.storedAt = storedAt;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.ifttt.connect.ui;
+
+import android.graphics.Bitmap;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.widget.ImageView;
+import androidx.annotation.MainThread;
+import androidx.annotation.VisibleForTesting;
+import androidx.core.view.ViewCompat;
+import androidx.lifecycle.LifecycleOwner;
+import com.ifttt.connect.CoverImage;
+import com.ifttt.connect.R;
+import java.util.List;
+import javax.annotation.Nullable;
+
+import static android.os.Build.VERSION.SDK_INT;
+import static android.os.Build.VERSION_CODES.O;
+
+/**
+ * Loads the {@link CoverImage} of a Connection into an ImageView. The smallest image variant that covers the size of
+ * the ImageView is used, see {@link CoverImage#getImageUrl(int, int)}, so that no memory is spent on pixels that are
+ * never displayed.
+ */
+public final class CoverImageLoader {
+
+    /**
+     * Load the cover image into the ImageView. If the ImageView hasn't been laid out yet, the image is loaded once the
+     * size of the ImageView is known. Calling this method again with the same ImageView replaces the previous request.
+     *
+     * @param lifecycleOwner LifecycleOwner of the ImageView, the request is cancelled when it is stopped.
+     * @param imageView ImageView to display the cover image.
+     * @param coverImage Cover image of a Connection.
+     * @param progressive If true and a smaller variant of the image is already in the memory cache, the smaller
+     * variant is displayed first, and replaced by the selected variant once it is loaded.
+     */
+    @MainThread
+    public static void load(LifecycleOwner lifecycleOwner, ImageView imageView, CoverImage coverImage,
+            boolean progressive) {
+        if (ViewCompat.isLaidOut(imageView) && imageView.getWidth() > 0) {
+            loadForSize(lifecycleOwner, imageView, coverImage, progressive);
+            return;
+        }
+
+        // Mark the ImageView as having a pending request, so that an earlier request doesn't overwrite it.
+        imageView.setTag(R.id.ifttt_cover_image_url, coverImage);
+        imageView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                imageView.getViewTreeObserver().removeOnPreDrawListener(this);
+                if (imageView.getTag(R.id.ifttt_cover_image_url) == coverImage) {
+                    loadForSize(lifecycleOwner, imageView, coverImage, progressive);
+                }
+                return true;
+            }
+        });
+    }
+
+    private static void loadForSize(LifecycleOwner lifecycleOwner, ImageView imageView, CoverImage coverImage,
+            boolean progressive) {
+        String url = coverImage.getImageUrl(imageView.getWidth(), imageView.getHeight());
+        imageView.setTag(R.id.ifttt_cover_image_url, url);
+
+        boolean allowHardware = canDrawHardwareBitmap(imageView);
+        ImageLoader imageLoader = ImageLoader.get(imageView.getContext());
+        if (progressive && imageLoader.getCachedCover(url, allowHardware) == null) {
+            Bitmap placeholder =
+                    findCachedSmallerVariant(imageLoader, coverImage.getImageUrls(), url, allowHardware);
+            if (placeholder != null) {
+                imageView.setImageBitmap(placeholder);
+            }
+        }
+
+        ImageLoader.OnBitmapLoadedListener listener = bitmap -> {
+            if (bitmap == null || !url.equals(imageView.getTag(R.id.ifttt_cover_image_url))) {
+                // Keep the current image if the request failed or has been replaced.
+                return;
+            }
+
+            imageView.setImageBitmap(bitmap);
+        };
+        imageLoader.loadCover(lifecycleOwner.getLifecycle(), url, allowHardware, listener);
+    }
+
+    /**
+     * @return True if the ImageView only draws into hardware accelerated Canvases, so that it can display hardware
+     * Bitmaps.
+     */
+    @VisibleForTesting
+    static boolean canDrawHardwareBitmap(ImageView imageView) {
+        return SDK_INT >= O && imageView.isHardwareAccelerated()
+                && imageView.getLayerType() != View.LAYER_TYPE_SOFTWARE;
+    }
+
+    @Nullable
+    private static Bitmap findCachedSmallerVariant(ImageLoader imageLoader, List<String> urls, String url,
+            boolean allowHardware) {
+        for (int i = urls.indexOf(url) - 1; i >= 0; i--) {
+            Bitmap cached = imageLoader.getCachedCover(urls.get(i), allowHardware);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        return null;
+    }
+
+    private CoverImageLoader() {
+        throw new AssertionError("No instance.");
+    }
+}
@@ -0,0 +1,104 @@
+package com.ifttt.connect.ui;
+
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nullable;
+
+/**
+ * Helpers for consuming {@link AsyncCredentialsProvider}s, and for adapting blocking {@link CredentialsProvider}s to
+ * them.
+ */
+final class CredentialsProviders {
+
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    /**
+     * Adapt a blocking {@link CredentialsProvider}, its methods are called on a worker thread. Adapters of the same
+     * CredentialsProvider are equal to each other.
+     */
+    @CheckReturnValue
+    static AsyncCredentialsProvider fromBlocking(CredentialsProvider provider) {
+        return new BlockingCredentialsProviderAdapter(provider);
+    }
+
+    /**
+     * Wrap a callback so that it is invoked on the main thread, at most once. Results delivered on the main thread are
+     * passed on synchronously.
+     */
+    @CheckReturnValue
+    static AsyncCredentialsProvider.Callback onMainThread(AsyncCredentialsProvider.Callback callback) {
+        AtomicBoolean delivered = new AtomicBoolean();
+        return value -> {
+            if (delivered.getAndSet(true)) {
+                return;
+            }
+
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                callback.onResult(value);
+            } else {
+                MAIN_HANDLER.post(() -> callback.onResult(value));
+            }
+        };
+    }
+
+    private static final class BlockingCredentialsProviderAdapter implements AsyncCredentialsProvider {
+
+        private final CredentialsProvider provider;
+
+        BlockingCredentialsProviderAdapter(CredentialsProvider provider) {
+            this.provider = provider;
+        }
+
+        @Override
+        public void getOAuthCode(Callback callback) {
+            new CredentialAsyncTask(provider, false, callback).execute();
+        }
+
+        @Override
+        public void getUserToken(Callback callback) {
+            new CredentialAsyncTask(provider, true, callback).execute();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof BlockingCredentialsProviderAdapter
+                    && ((BlockingCredentialsProviderAdapter) o).provider == provider;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(provider);
+        }
+    }
+
+    private static final class CredentialAsyncTask extends AsyncTask<Void, Void, String> {
+
+        private final CredentialsProvider provider;
+        private final boolean userToken;
+        private final AsyncCredentialsProvider.Callback callback;
+
+        CredentialAsyncTask(CredentialsProvider provider, boolean userToken,
+                AsyncCredentialsProvider.Callback callback) {
+            this.provider = provider;
+            this.userToken = userToken;
+            this.callback = callback;
+        }
+
+        @Override
+        protected String doInBackground(Void... voids) {
+            return userToken ? provider.getUserToken() : provider.getOAuthCode();
+        }
+
+        @Override
+        protected void onPostExecute(@Nullable String value) {
+            callback.onResult(value);
+        }
+    }
+
+    private CredentialsProviders() {
+        throw new AssertionError("No instance.");
+    }
+}
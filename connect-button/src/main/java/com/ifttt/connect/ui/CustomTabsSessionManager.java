@@ -0,0 +1,205 @@
+package com.ifttt.connect.ui;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.net.Uri;
+import androidx.annotation.MainThread;
+import androidx.annotation.VisibleForTesting;
+import androidx.browser.customtabs.CustomTabsClient;
+import androidx.browser.customtabs.CustomTabsIntent;
+import androidx.browser.customtabs.CustomTabsServiceConnection;
+import androidx.browser.customtabs.CustomTabsSession;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleObserver;
+import androidx.lifecycle.OnLifecycleEvent;
+import javax.annotation.Nullable;
+
+/**
+ * Manages the Custom Tabs session used for the web connect flow. The session is shared by all of the
+ * {@link BaseConnectButton}s in the process: the browser's Custom Tabs service is bound and warmed up when the first
+ * button is started, and unbound when the last one is stopped, so that the browser process is ready by the time the
+ * user slides a button. The URL that is going to be opened can be preloaded with {@link #mayLaunchUrl(Uri)} once it
+ * is known.
+ *
+ * Apart from {@link #get(Context)}, all methods must be called on the main thread.
+ */
+final class CustomTabsSessionManager {
+
+    private static CustomTabsSessionManager INSTANCE;
+
+    private final Context context;
+    private final DeviceCapabilities deviceCapabilities;
+    private final Runnable bindServiceCallback = this::bindService;
+
+    // Number of started lifecycles using the session.
+    private int bindCount;
+
+    @Nullable private CustomTabsServiceConnection serviceConnection;
+    @Nullable private CustomTabsSession session;
+
+    // The latest predicted URL, used if the session is connected after mayLaunchUrl is called.
+    @Nullable private Uri pendingUri;
+
+    static synchronized CustomTabsSessionManager get(Context context) {
+        if (INSTANCE == null) {
+            INSTANCE = new CustomTabsSessionManager(context.getApplicationContext(), DeviceCapabilities.get(context));
+        }
+
+        return INSTANCE;
+    }
+
+    @VisibleForTesting
+    CustomTabsSessionManager(Context context, DeviceCapabilities deviceCapabilities) {
+        this.context = context;
+        this.deviceCapabilities = deviceCapabilities;
+    }
+
+    /**
+     * @return A LifecycleObserver that keeps the session bound while the observed lifecycle is started.
+     */
+    LifecycleObserver newLifecycleObserver() {
+        return new SessionLifecycleObserver();
+    }
+
+    /**
+     * Acquire the session. Each call must be paired with a call to {@link #unbind()}.
+     */
+    @MainThread
+    void bind() {
+        bindCount++;
+        if (bindCount == 1) {
+            // The Custom Tabs package is resolved in the background together with the other device capabilities,
+            // bind to the service once it is known.
+            deviceCapabilities.whenResolved(bindServiceCallback);
+        }
+    }
+
+    /**
+     * Release the session acquired with {@link #bind()}. The service is unbound when the session is released by
+     * all of its users.
+     */
+    @MainThread
+    void unbind() {
+        if (bindCount == 0) {
+            return;
+        }
+
+        bindCount--;
+        if (bindCount > 0) {
+            return;
+        }
+
+        deviceCapabilities.removeResolvedCallback(bindServiceCallback);
+        if (serviceConnection != null) {
+            context.unbindService(serviceConnection);
+            serviceConnection = null;
+        }
+        session = null;
+    }
+
+    /**
+     * Tell the browser that the given URL is likely to be opened, so that it can start loading it.
+     *
+     * @param uri The predicted URL for the web connect flow.
+     */
+    @MainThread
+    void mayLaunchUrl(Uri uri) {
+        pendingUri = uri;
+        if (session != null) {
+            session.mayLaunchUrl(uri, null, null);
+        }
+    }
+
+    /**
+     * Open the URL in a Custom Tab, using the warmed up session if it is available.
+     *
+     * @param context Context used to start the Custom Tab.
+     * @param uri URL to open.
+     */
+    @MainThread
+    void launchUrl(Context context, Uri uri) {
+        CustomTabsIntent intent = new CustomTabsIntent.Builder(session).build();
+        intent.launchUrl(context, uri);
+        pendingUri = null;
+    }
+
+    @VisibleForTesting
+    boolean isBound() {
+        return serviceConnection != null;
+    }
+
+    private void bindService() {
+        if (bindCount == 0 || serviceConnection != null) {
+            return;
+        }
+
+        if (deviceCapabilities.hasIftttApp()) {
+            // The connect flow will be handled by the IFTTT app, there is no need to warm up the browser.
+            return;
+        }
+
+        String packageName = deviceCapabilities.getCustomTabsPackage();
+        if (packageName == null) {
+            // No browser on the device supports Custom Tabs.
+            return;
+        }
+
+        CustomTabsServiceConnection connection = new CustomTabsServiceConnection() {
+            @Override
+            public void onCustomTabsServiceConnected(ComponentName name, CustomTabsClient client) {
+                if (serviceConnection != this) {
+                    // The session has been released before the service was connected.
+                    return;
+                }
+
+                client.warmup(0L);
+                session = client.newSession(null);
+                if (session != null && pendingUri != null) {
+                    session.mayLaunchUrl(pendingUri, null, null);
+                }
+            }
+
+            @Override
+            public void onServiceDisconnected(ComponentName name) {
+                if (serviceConnection == this) {
+                    session = null;
+                }
+            }
+        };
+
+        // Set before binding, as the service may be connected right away.
+        serviceConnection = connection;
+        if (!CustomTabsClient.bindCustomTabsService(context, packageName, connection)) {
+            serviceConnection = null;
+        }
+    }
+
+    /**
+     * Binds the session when the lifecycle is started, and unbinds it when it is stopped. The binding is tracked so
+     * that a stop event without a matching start doesn't release the session of another lifecycle.
+     */
+    private final class SessionLifecycleObserver implements LifecycleObserver {
+
+        private boolean bound;
+
+        @OnLifecycleEvent(Lifecycle.Event.ON_START)
+        void onStart() {
+            if (bound) {
+                return;
+            }
+
+            bound = true;
+            bind();
+        }
+
+        @OnLifecycleEvent(Lifecycle.Event.ON_STOP)
+        void onStop() {
+            if (!bound) {
+                return;
+            }
+
+            bound = false;
+            unbind();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.ifttt.connect.ui;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.MainThread;
+import androidx.annotation.VisibleForTesting;
+import androidx.browser.customtabs.CustomTabsClient;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.CheckReturnValue;
+import javax.annotation.Nullable;
+
+/**
+ * A process-wide cache of the device capabilities that the connect flow depends on: whether the IFTTT app, the Play
+ * Store and a browser are available, the browser that supports Custom Tabs, as well as the installed email apps.
+ *
+ * Querying the PackageManager is a binder IPC, so the capabilities are resolved on a background thread, and resolved
+ * again whenever a package is added, removed or changed on the device. The values are never resolved on the calling
+ * thread: until the first resolution completes, conservative defaults are returned, with which the connect flow falls
+ * back to the web and the links that need another app are disabled. The UI that depends on the values can use
+ * {@link #whenResolved(Runnable)} to update itself once they are known.
+ */
+final class DeviceCapabilities {
+
+    private static final Snapshot UNRESOLVED =
+            new Snapshot(false, false, false, Collections.<String>emptyList(), null);
+
+    private static DeviceCapabilities INSTANCE;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    // Used to drop the results of a resolution if a newer one has been started.
+    private final AtomicInteger generation = new AtomicInteger();
+
+    // Callbacks waiting for the first resolution, only accessed on the main thread.
+    private final List<Runnable> resolvedCallbacks = new ArrayList<>();
+
+    @Nullable private volatile Snapshot snapshot;
+
+    /**
+     * Get the DeviceCapabilities instance. The first call starts resolving the capabilities in the background, so
+     * this should be called as early as possible, before the values are needed.
+     */
+    static synchronized DeviceCapabilities get(Context context) {
+        if (INSTANCE == null) {
+            INSTANCE = new DeviceCapabilities(context.getApplicationContext());
+        }
+
+        return INSTANCE;
+    }
+
+    private DeviceCapabilities(Context context) {
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addDataScheme("package");
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context receiverContext, Intent intent) {
+                refresh(context);
+            }
+        }, filter);
+
+        refresh(context);
+    }
+
+    /**
+     * Create an instance that is only resolved with {@link #onResolved(Snapshot)}.
+     */
+    @VisibleForTesting
+    DeviceCapabilities() {
+    }
+
+    /**
+     * @return True if the capabilities have been resolved, false if the values are the conservative defaults.
+     */
+    @CheckReturnValue
+    boolean isResolved() {
+        return snapshot != null;
+    }
+
+    @CheckReturnValue
+    boolean hasIftttApp() {
+        return getSnapshot().hasIftttApp;
+    }
+
+    @CheckReturnValue
+    boolean hasPlayStore() {
+        return getSnapshot().hasPlayStore;
+    }
+
+    @CheckReturnValue
+    boolean hasBrowser() {
+        return getSnapshot().hasBrowser;
+    }
+
+    /**
+     * @return Package names of the supported email apps that are installed on the device.
+     */
+    @CheckReturnValue
+    List<String> getEmailApps() {
+        return getSnapshot().emailApps;
+    }
+
+    /**
+     * @return Package name of the browser to use for Custom Tabs, or null if no browser supports them.
+     */
+    @CheckReturnValue
+    @Nullable
+    String getCustomTabsPackage() {
+        return getSnapshot().customTabsPackage;
+    }
+
+    /**
+     * Run the callback once the capabilities have been resolved, or right away if they already are.
+     */
+    @MainThread
+    void whenResolved(Runnable callback) {
+        if (snapshot != null) {
+            callback.run();
+            return;
+        }
+
+        if (!resolvedCallbacks.contains(callback)) {
+            resolvedCallbacks.add(callback);
+        }
+    }
+
+    /**
+     * Remove a callback registered with {@link #whenResolved(Runnable)} that hasn't been run yet.
+     */
+    @MainThread
+    void removeResolvedCallback(Runnable callback) {
+        resolvedCallbacks.remove(callback);
+    }
+
+    private void refresh(Context context) {
+        int currentGeneration = generation.incrementAndGet();
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(() -> {
+            Snapshot resolved = resolve(context);
+            handler.post(() -> {
+                if (generation.get() == currentGeneration) {
+                    onResolved(resolved);
+                }
+            });
+        });
+    }
+
+    @VisibleForTesting
+    @MainThread
+    void onResolved(Snapshot resolved) {
+        snapshot = resolved;
+        if (resolvedCallbacks.isEmpty()) {
+            return;
+        }
+
+        List<Runnable> callbacks = new ArrayList<>(resolvedCallbacks);
+        resolvedCallbacks.clear();
+        for (Runnable callback : callbacks) {
+            callback.run();
+        }
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        return current == null ? UNRESOLVED : current;
+    }
+
+    @VisibleForTesting
+    static Snapshot resolve(Context context) {
+        PackageManager packageManager = context.getPackageManager();
+        boolean hasIftttApp = hasActivityToLaunch(packageManager, ButtonApiHelper.newIftttAppIntent());
+        boolean hasPlayStore = hasActivityToLaunch(packageManager, ButtonApiHelper.newPlayStoreIntent());
+        boolean hasBrowser = hasActivityToLaunch(packageManager, ButtonApiHelper.newWebIntent("terms"));
+        List<String> emailApps = new EmailAppsChecker(packageManager).detectEmailApps();
+        String customTabsPackage = CustomTabsClient.getPackageName(context, null);
+        return new Snapshot(hasIftttApp, hasPlayStore, hasBrowser, Collections.unmodifiableList(emailApps),
+                customTabsPackage);
+    }
+
+    private static boolean hasActivityToLaunch(PackageManager packageManager, Intent intent) {
+        return !packageManager.queryIntentActivities(intent, 0).isEmpty();
+    }
+
+    @VisibleForTesting
+    static final class Snapshot {
+        final boolean hasIftttApp;
+        final boolean hasPlayStore;
+        final boolean hasBrowser;
+        final List<String> emailApps;
+        @Nullable final String customTabsPackage;
+
+        Snapshot(boolean hasIftttApp, boolean hasPlayStore, boolean hasBrowser, List<String> emailApps,
+                @Nullable String customTabsPackage) {
+            this.hasIftttApp = hasIftttApp;
+            this.hasPlayStore = hasPlayStore;
+            this.hasBrowser = hasBrowser;
+            this.emailApps = emailApps;
+            this.customTabsPackage = customTabsPackage;
+        }
+    }
+}
@@ -1,62 +1,190 @@
 package com.ifttt.connect.ui;
 
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.res.Configuration;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.os.Handler;
 import android.os.Looper;
-import android.util.LruCache;
 import androidx.annotation.MainThread;
+import androidx.annotation.VisibleForTesting;
+import androidx.collection.LruCache;
 import androidx.lifecycle.Lifecycle;
 import androidx.lifecycle.LifecycleObserver;
 import androidx.lifecycle.OnLifecycleEvent;
 import java.io.IOException;
-import java.io.InputStream;
 import javax.annotation.Nullable;
 import okhttp3.Call;
 import okhttp3.Callback;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 import static android.os.Build.VERSION.SDK_INT;
 import static android.os.Build.VERSION_CODES.KITKAT;
+import static android.os.Build.VERSION_CODES.O;
 
 /**
- * A simple image downloader with image resizing and a 3MB in-memory cache.
+ * A simple image downloader with in-memory caches.
+ *
+ * Service icons and Connection cover images are cached separately: a single cover image can be larger than all of the
+ * icons together, and sharing a cache would let it evict them. The caches are sized from the app's memory class, and
+ * they give memory back to the system when the app's UI is hidden or the system is running low on memory. The sizes of
+ * the caches can be overridden with {@link #setCacheSize(int)} and {@link #setCoverCacheSize(int)}.
  */
-final class ImageLoader {
+final class ImageLoader implements ComponentCallbacks2 {
 
-    private static ImageLoader INSTANCE;
+    // Fraction of the app's memory class used for the cache, halved on low RAM devices.
+    private static final int MEMORY_CLASS_DIVISOR = 32;
+    private static final int MIN_CACHE_SIZE = 1024 * 1024;
+    private static final int MAX_CACHE_SIZE = 16 * 1024 * 1024;
 
-    // 3MB Bitmap cache.
-    private final LruCache<String, Bitmap> cache = new LruCache<String, Bitmap>(3 * 1024 * 1024) {
-        @Override
-        protected int sizeOf(String key, Bitmap value) {
-            if (SDK_INT >= KITKAT) {
-                return value.getAllocationByteCount();
-            }
+    // Monochrome images are cached separately, as they are decoded into a different Bitmap config.
+    private static final String MONOCHROME_KEY_PREFIX = "monochrome:";
 
-            return value.getByteCount();
-        }
-    };
+    private static ImageLoader INSTANCE;
 
+    private final LruCache<String, Bitmap> cache;
+    private final LruCache<String, Bitmap> coverCache;
     private final OkHttpClient client = new OkHttpClient.Builder().build();
     private final Handler handler = new Handler(Looper.getMainLooper());
 
-    static ImageLoader get() {
+    static ImageLoader get(Context context) {
         if (INSTANCE == null) {
-            INSTANCE = new ImageLoader();
+            INSTANCE = new ImageLoader(context.getApplicationContext());
         }
 
         return INSTANCE;
     }
 
-    private ImageLoader() {
+    private ImageLoader(Context context) {
+        int cacheSize = defaultCacheSize(context);
+        cache = new BitmapCache(cacheSize);
+        coverCache = new BitmapCache(cacheSize);
+        context.registerComponentCallbacks(this);
+    }
+
+    /**
+     * Override the maximum size of the icon cache. If the cache currently holds more than the new size, the least recently
+     * used images are evicted.
+     *
+     * @param maxSizeBytes Maximum size of the cache in bytes, must be positive.
+     */
+    void setCacheSize(int maxSizeBytes) {
+        resize(cache, maxSizeBytes);
+    }
+
+    int getCacheSize() {
+        return cache.maxSize();
+    }
+
+    /**
+     * Override the maximum size of the cover image cache. If the cache currently holds more than the new size, the
+     * least recently used images are evicted.
+     *
+     * @param maxSizeBytes Maximum size of the cache in bytes, must be positive.
+     */
+    void setCoverCacheSize(int maxSizeBytes) {
+        resize(coverCache, maxSizeBytes);
+    }
+
+    int getCoverCacheSize() {
+        return coverCache.maxSize();
+    }
+
+    @VisibleForTesting
+    int getCachedSize() {
+        return cache.size();
+    }
+
+    @VisibleForTesting
+    void putCached(String url, Bitmap bitmap) {
+        cache.put(url, bitmap);
+    }
+
+    @VisibleForTesting
+    int getCachedCoverSize() {
+        return coverCache.size();
+    }
+
+    @VisibleForTesting
+    void putCachedCover(String url, Bitmap bitmap) {
+        coverCache.put(url, bitmap);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        trimMemory(cache, level);
+        trimMemory(coverCache, level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        cache.evictAll();
+        coverCache.evictAll();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        // No-op.
+    }
+
+    /**
+     * @param url Cover image URL.
+     * @param allowHardware Whether the Bitmap can be a {@link Bitmap.Config#HARDWARE} Bitmap, see
+     * {@link #loadCover(Lifecycle, String, boolean, OnBitmapLoadedListener)}.
+     * @return The cached Bitmap for the URL, or null if it is not in the cache. This doesn't start loading the image.
+     */
+    @Nullable
+    Bitmap getCachedCover(String url, boolean allowHardware) {
+        return getCached(coverCache, url, allowHardware);
     }
 
     @Nullable
     Call load(Lifecycle lifecycle, String url, OnBitmapLoadedListener listener) {
-        Bitmap cached = cache.get(url);
+        return load(lifecycle, url, Decode.SOFTWARE, cache, listener);
+    }
+
+    /**
+     * Load a Connection cover image into the cover image cache.
+     *
+     * If the image is only going to be drawn into hardware accelerated Canvases, for example by an ImageView in a
+     * hardware accelerated window, set allowHardware to true: on API 26 and above, the image is then decoded into a
+     * {@link Bitmap.Config#HARDWARE} Bitmap, which is stored in graphics memory only. It doesn't use the Java heap, and
+     * it doesn't need to be uploaded to the GPU when it is first drawn. Hardware Bitmaps cannot be drawn into software
+     * Canvases, and their pixels cannot be accessed.
+     *
+     * Only cover images are decoded into hardware Bitmaps, so they are never held in the icon cache.
+     */
+    @Nullable
+    Call loadCover(Lifecycle lifecycle, String url, boolean allowHardware, OnBitmapLoadedListener listener) {
+        Decode decode = shouldDecodeHardware(allowHardware) ? Decode.HARDWARE : Decode.SOFTWARE;
+        return load(lifecycle, url, decode, coverCache, listener);
+    }
+
+    /**
+     * Load a monochrome image, such as the {@link com.ifttt.connect.Service#monochromeIconUrl}. Only the alpha channel
+     * of the image is kept, in an {@link Bitmap.Config#ALPHA_8} Bitmap that takes a quarter of the memory of an
+     * ARGB_8888 one. The color is applied when the Bitmap is drawn, see
+     * {@link ButtonUiHelper#newMonochromeIconDrawable(android.content.res.Resources, Bitmap, int)}.
+     *
+     * The mask is extracted from the decoded pixels, and hardware Bitmaps cannot be ALPHA_8 masks, so monochrome
+     * images are always software Bitmaps.
+     */
+    @Nullable
+    Call loadMonochrome(Lifecycle lifecycle, String url, OnBitmapLoadedListener listener) {
+        return load(lifecycle, url, Decode.ALPHA_MASK, cache, listener);
+    }
+
+    @Nullable
+    private Call load(Lifecycle lifecycle, String url, Decode decode, LruCache<String, Bitmap> cache,
+            OnBitmapLoadedListener listener) {
+        String key = decode == Decode.ALPHA_MASK ? MONOCHROME_KEY_PREFIX + url : url;
+        Bitmap cached = getCached(cache, key, decode == Decode.HARDWARE);
         if (cached != null) {
             listener.onComplete(cached);
             return null;
@@ -78,22 +206,140 @@ final class ImageLoader {
                     return;
                 }
 
-                try (InputStream inputStream = response.body().byteStream()) {
-                    Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
-                    cache.put(url, bitmap);
-                    handler.post(() -> listener.onComplete(bitmap));
+                Bitmap bitmap;
+                try (ResponseBody body = response.body()) {
+                    bitmap = decode(body.bytes(), decode);
+                }
+
+                if (bitmap != null) {
+                    cache.put(key, bitmap);
                 }
+                handler.post(() -> listener.onComplete(bitmap));
             }
         });
 
         return call;
     }
 
+    private static void resize(LruCache<String, Bitmap> cache, int maxSizeBytes) {
+        if (maxSizeBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSizeBytes);
+        }
+
+        cache.resize(maxSizeBytes);
+    }
+
+    private static void trimMemory(LruCache<String, Bitmap> cache, int level) {
+        if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            // The process is likely to be killed soon, or the foreground app is about to be affected.
+            cache.evictAll();
+        } else if (level >= TRIM_MEMORY_UI_HIDDEN || level == TRIM_MEMORY_RUNNING_LOW) {
+            // Images aren't visible, or the system is getting low on memory: keep the most recently used ones.
+            cache.trimToSize(cache.maxSize() / 2);
+        }
+    }
+
+    @Nullable
+    private static Bitmap decode(byte[] bytes, Decode decode) {
+        if (decode == Decode.HARDWARE && SDK_INT >= O) {
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = Bitmap.Config.HARDWARE;
+            Bitmap bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+            if (bitmap != null) {
+                return bitmap;
+            }
+
+            // Hardware Bitmaps can fail to be allocated, for example when the graphics memory is exhausted. Fall back
+            // to a software Bitmap.
+        }
+
+        Bitmap bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
+        if (bitmap != null && decode == Decode.ALPHA_MASK) {
+            return toAlphaMask(bitmap);
+        }
+
+        return bitmap;
+    }
+
+    /**
+     * @return The cached Bitmap for the key. If a software Bitmap is needed and the cached one is a hardware Bitmap, it
+     * is replaced in the cache by a software copy: copying reads the Bitmap back from graphics memory, so it is only
+     * done once, and the copy can be drawn into any Canvas. Returns null if the copy cannot be made, in which case the
+     * image is loaded again.
+     */
+    @Nullable
+    private static Bitmap getCached(LruCache<String, Bitmap> cache, String key, boolean allowHardware) {
+        Bitmap cached = cache.get(key);
+        if (cached == null || allowHardware || SDK_INT < O || cached.getConfig() != Bitmap.Config.HARDWARE) {
+            return cached;
+        }
+
+        Bitmap copy = cached.copy(Bitmap.Config.ARGB_8888, false);
+        if (copy != null) {
+            cache.put(key, copy);
+        }
+        return copy;
+    }
+
+    @VisibleForTesting
+    static boolean shouldDecodeHardware(boolean allowHardware) {
+        return allowHardware && SDK_INT >= O;
+    }
+
+    @VisibleForTesting
+    static Bitmap toAlphaMask(Bitmap bitmap) {
+        if (bitmap.getConfig() == Bitmap.Config.ALPHA_8) {
+            return bitmap;
+        }
+
+        Bitmap alphaMask = bitmap.extractAlpha();
+        bitmap.recycle();
+        return alphaMask;
+    }
+
+    private static int defaultCacheSize(Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        boolean largeHeap = (context.getApplicationInfo().flags & ApplicationInfo.FLAG_LARGE_HEAP) != 0;
+        int memoryClass = largeHeap ? activityManager.getLargeMemoryClass() : activityManager.getMemoryClass();
+        boolean lowRam = SDK_INT >= KITKAT && activityManager.isLowRamDevice();
+        return defaultCacheSize(memoryClass, lowRam);
+    }
+
+    @VisibleForTesting
+    static int defaultCacheSize(int memoryClassMb, boolean lowRam) {
+        long size = memoryClassMb * 1024L * 1024L / MEMORY_CLASS_DIVISOR;
+        if (lowRam) {
+            size /= 2;
+        }
+
+        return (int) Math.max(MIN_CACHE_SIZE, Math.min(MAX_CACHE_SIZE, size));
+    }
+
+    private enum Decode {
+        SOFTWARE, HARDWARE, ALPHA_MASK
+    }
+
     interface OnBitmapLoadedListener {
         @MainThread
         void onComplete(@Nullable Bitmap bitmap);
     }
 
+    private static final class BitmapCache extends LruCache<String, Bitmap> {
+
+        BitmapCache(int maxSize) {
+            super(maxSize);
+        }
+
+        @Override
+        protected int sizeOf(String key, Bitmap value) {
+            if (SDK_INT >= KITKAT) {
+                return value.getAllocationByteCount();
+            }
+
+            return value.getByteCount();
+        }
+    }
+
     private static final class CallLifecycleObserver implements LifecycleObserver {
         private final Call call;
 
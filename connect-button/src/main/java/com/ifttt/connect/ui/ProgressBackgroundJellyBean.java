@@ -1,6 +1,5 @@
 package com.ifttt.connect.ui;
 
-import android.animation.ArgbEvaluator;
 import android.annotation.TargetApi;
 import android.graphics.Canvas;
 import android.graphics.ColorFilter;
@@ -20,8 +19,6 @@ import static android.os.Build.VERSION_CODES.JELLY_BEAN_MR2;
  */
 @TargetApi(JELLY_BEAN_MR2)
 final class ProgressBackgroundJellyBean extends Drawable implements ProgressBackground {
-    private static final ArgbEvaluator EVALUATOR = new ArgbEvaluator();
-
     private final ShapeDrawable drawable = new ShapeDrawable();
 
     private int primaryColor;
@@ -36,7 +33,7 @@ final class ProgressBackgroundJellyBean extends Drawable implements ProgressBack
 
     @Override
     public void setProgress(@FloatRange(from = 0.0f, to = 1.0f) float progress) {
-        drawable.getPaint().setColor((Integer) EVALUATOR.evaluate(progress, primaryColor, progressColor));
+        drawable.getPaint().setColor(ButtonUiHelper.interpolateColor(progress, primaryColor, progressColor));
         invalidateSelf();
     }
 
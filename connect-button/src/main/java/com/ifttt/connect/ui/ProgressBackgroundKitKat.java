@@ -28,6 +28,11 @@ final class ProgressBackgroundKitKat extends Drawable implements ProgressBackgro
 
     private final Path progressPath = new Path();
 
+    // Objects reused across setProgress calls, which happen on every frame of the progress animation.
+    private final Path rectPath = new Path();
+    private final Path arcPath = new Path();
+    private final RectF arcBounds = new RectF();
+
     private final ShapeDrawable drawable = new ShapeDrawable();
     private final ShapeDrawable progressDrawable = new ShapeDrawable();
 
@@ -56,43 +61,47 @@ final class ProgressBackgroundKitKat extends Drawable implements ProgressBackgro
         float rightArcStarts = (bounds.right - radius) / bounds.width();
         if (progress >= leftArcEnds && progress < rightArcStarts) {
             // Can draw the full left arc but not right arc.
-            progressPath.arcTo(new RectF(0f, 0f, radius * 2, bounds.height()), 90, 180);
+            arcBounds.set(0f, 0f, radius * 2, bounds.height());
+            progressPath.arcTo(arcBounds, 90, 180);
             float progressWithoutArc = progress - leftArcEnds;
             progressPath.rLineTo(progressWithoutArc * bounds.width(), 0);
             progressPath.rLineTo(0, bounds.height());
             progressPath.rLineTo(-progressWithoutArc * bounds.width(), 0);
         } else if (progress < leftArcEnds) {
             // Can only draw partial left arc.
-            Path rectPath = new Path();
+            rectPath.reset();
             rectPath.lineTo(progress * bounds.width(), 0);
             rectPath.rLineTo(0, bounds.height());
             rectPath.rLineTo(-progress * bounds.width(), 0);
             rectPath.close();
 
-            Path arcPath = new Path();
-            arcPath.arcTo(new RectF(0f, 0f, radius * 2, bounds.height()), 90, 180);
+            arcPath.reset();
+            arcBounds.set(0f, 0f, radius * 2, bounds.height());
+            arcPath.arcTo(arcBounds, 90, 180);
             arcPath.close();
 
             arcPath.op(rectPath, Path.Op.INTERSECT);
             progressPath.addPath(arcPath);
         } else if (progress > rightArcStarts) {
             // Can draw right arc.
-            progressPath.arcTo(new RectF(0f, 0f, radius * 2, bounds.height()), 90, 180);
+            arcBounds.set(0f, 0f, radius * 2, bounds.height());
+            progressPath.arcTo(arcBounds, 90, 180);
             progressPath.rLineTo(bounds.width() - radius * 2, 0);
             progressPath.rLineTo(0, bounds.bottom);
             progressPath.close();
 
             float rightArcProgress = progress - rightArcStarts;
-            Path rectPath = new Path();
+            rectPath.reset();
             rectPath.moveTo(bounds.width() - radius, 0);
             rectPath.rLineTo(rightArcProgress * bounds.width(), 0);
             rectPath.rLineTo(0, bounds.height());
             rectPath.rLineTo(-rightArcProgress * bounds.width(), 0);
             rectPath.close();
 
-            Path arcPath = new Path();
+            arcPath.reset();
             arcPath.moveTo(bounds.width() - radius, 0);
-            arcPath.arcTo(new RectF(bounds.width() - radius * 2, 0, bounds.width(), bounds.height()), 270, 180);
+            arcBounds.set(bounds.width() - radius * 2, 0, bounds.width(), bounds.height());
+            arcPath.arcTo(arcBounds, 270, 180);
             arcPath.close();
             arcPath.op(rectPath, Path.Op.INTERSECT);
 
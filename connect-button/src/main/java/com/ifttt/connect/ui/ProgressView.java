@@ -66,8 +66,9 @@ final class ProgressView extends FrameLayout {
         ObjectAnimator fadeIn = ObjectAnimator.ofFloat(this, "alpha", getAlpha(), 1f);
         ValueAnimator progress = ValueAnimator.ofFloat(progressFrom, progressTo);
         progress.setDuration(duration);
-        progress.addUpdateListener(
-                animation -> ((ProgressBackground) getBackground()).setProgress((Float) animation.getAnimatedValue()));
+        // Use the animated fraction instead of the boxed animated value to avoid allocations on every frame.
+        progress.addUpdateListener(animation -> ((ProgressBackground) getBackground()).setProgress(
+                progressFrom + (progressTo - progressFrom) * animation.getAnimatedFraction()));
 
         AnimatorSet set = new AnimatorSet();
         set.playTogether(fadeIn, progress);
@@ -11,7 +11,8 @@ import retrofit2.Retrofit;
 import retrofit2.converter.moshi.MoshiConverterFactory;
 
 /**
- * Worker {@link AsyncTask} used for token exchange and account matching.
+ * Worker {@link AsyncTask} used for account matching and fetching the user login. The OAuth code is requested from the
+ * {@link AsyncCredentialsProvider} separately, see {@link ButtonApiHelper#prepareAuthentication}.
  */
 final class RedirectPrepAsyncTask extends AsyncTask<Void, Void, RedirectPrepAsyncTask.PrepResult> {
 
@@ -19,16 +20,17 @@ final class RedirectPrepAsyncTask extends AsyncTask<Void, Void, RedirectPrepAsyn
         void onExchanged(PrepResult result);
     }
 
-    private final CredentialsProvider provider;
     private final OnTokenExchangeListener listener;
+    private final String apiUrl;
     private final String email;
     @Nullable private final PendingResult<User> userPendingResult;
 
-    // Null userPendingResult means we don't want to try to fetch the user information.
-    RedirectPrepAsyncTask(CredentialsProvider provider, @Nullable PendingResult<User> userPendingResult, String email,
+    // Null userPendingResult means we don't want to try to fetch the user information. The account is looked up on
+    // the API at apiUrl, the same one as the ConnectionApiClient's.
+    RedirectPrepAsyncTask(@Nullable PendingResult<User> userPendingResult, String apiUrl, String email,
             OnTokenExchangeListener listener) {
-        this.provider = provider;
         this.userPendingResult = userPendingResult;
+        this.apiUrl = apiUrl;
         this.email = email;
         this.listener = listener;
     }
@@ -36,8 +38,7 @@ final class RedirectPrepAsyncTask extends AsyncTask<Void, Void, RedirectPrepAsyn
     @Override
     protected PrepResult doInBackground(Void... voids) {
         try {
-            String oAuthCode = provider.getOAuthCode();
-            Response<Void> accountMatchResponse = AccountApiHelper.get().findAccount(email).execute();
+            Response<Void> accountMatchResponse = AccountApiHelper.get(apiUrl).findAccount(email).execute();
             String username = null;
             if (userPendingResult != null) {
                 Response<User> userResponse = userPendingResult.getCall().execute();
@@ -47,11 +48,11 @@ final class RedirectPrepAsyncTask extends AsyncTask<Void, Void, RedirectPrepAsyn
                 }
             }
             boolean accountFound = accountMatchResponse.code() != 404;
-            return new PrepResult(oAuthCode, accountFound, username);
+            return new PrepResult(accountFound, username);
         } catch (IOException e) {
             // Intentionally set the flag to true, so that the SDK will know to bring users to the web flow
             // to continue Connection authentication.
-            return new PrepResult(null, true, null);
+            return new PrepResult(true, null);
         }
     }
 
@@ -61,12 +62,10 @@ final class RedirectPrepAsyncTask extends AsyncTask<Void, Void, RedirectPrepAsyn
     }
 
     static final class PrepResult {
-        @Nullable final String opaqueToken;
         final boolean accountFound;
         @Nullable final String userLogin;
 
-        PrepResult(@Nullable String opaqueToken, boolean accountFound, @Nullable String userLogin) {
-            this.opaqueToken = opaqueToken;
+        PrepResult(boolean accountFound, @Nullable String userLogin) {
             this.accountFound = accountFound;
             this.userLogin = userLogin;
         }
@@ -74,15 +73,19 @@ final class RedirectPrepAsyncTask extends AsyncTask<Void, Void, RedirectPrepAsyn
 
     /**
      * API helper class that handles APIs that {@link BaseConnectButton} needs for the Connection authentication flow.
+     * The account lookup doesn't go through the ConnectionApiClient's OkHttpClient, so that the user token isn't sent
+     * with it.
      */
     private static final class AccountApiHelper {
 
         private static AccountApiHelper INSTANCE;
 
+        private final String apiUrl;
         private final AccountApi accountApi;
 
-        private AccountApiHelper() {
-            Retrofit retrofit = new Retrofit.Builder().baseUrl("https://api.ifttt.com")
+        private AccountApiHelper(String apiUrl) {
+            this.apiUrl = apiUrl;
+            Retrofit retrofit = new Retrofit.Builder().baseUrl(apiUrl)
                     .addConverterFactory(MoshiConverterFactory.create())
                     .build();
 
@@ -93,9 +96,9 @@ final class RedirectPrepAsyncTask extends AsyncTask<Void, Void, RedirectPrepAsyn
             return accountApi.findAccount(email);
         }
 
-        static AccountApiHelper get() {
-            if (INSTANCE == null) {
-                INSTANCE = new AccountApiHelper();
+        static synchronized AccountApiHelper get(String apiUrl) {
+            if (INSTANCE == null || !INSTANCE.apiUrl.equals(apiUrl)) {
+                INSTANCE = new AccountApiHelper(apiUrl);
             }
 
             return INSTANCE;
@@ -2,7 +2,6 @@ package com.ifttt.connect.ui;
 
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
-import android.animation.ArgbEvaluator;
 import android.animation.ValueAnimator;
 import android.annotation.SuppressLint;
 import android.content.Context;
@@ -10,13 +9,15 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.ColorFilter;
 import android.graphics.Outline;
+import android.graphics.Paint;
+import android.graphics.Path;
 import android.graphics.PixelFormat;
 import android.graphics.PorterDuff;
-import android.graphics.PorterDuffColorFilter;
 import android.graphics.Rect;
+import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.ShapeDrawable;
-import android.graphics.drawable.shapes.RoundRectShape;
+import android.graphics.drawable.shapes.Shape;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewConfiguration;
@@ -32,9 +33,8 @@ import static android.os.Build.VERSION_CODES.LOLLIPOP;
 
 final class StartIconDrawable extends Drawable {
 
-    private static final ArgbEvaluator EVALUATOR = new ArgbEvaluator();
-
-    private final ShapeDrawable background = new ShapeDrawable();
+    private final MorphingRoundRectShape backgroundShape = new MorphingRoundRectShape();
+    private final ShapeDrawable background = new ShapeDrawable(backgroundShape);
     private final Drawable serviceIcon;
     private final Drawable startIcon;
     private final int iconSize;
@@ -44,7 +44,12 @@ final class StartIconDrawable extends Drawable {
     private final int startIconBackgroundColor;
     private final boolean onDarkBackground;
 
-    private final ShapeDrawable borderDrawable = new ShapeDrawable();
+    // Background color without the press state applied.
+    @ColorInt private int backgroundColor = Color.TRANSPARENT;
+
+    // The border keeps the initial shape of the background, it is not morphed with it.
+    private final MorphingRoundRectShape borderShape = new MorphingRoundRectShape();
+    private final ShapeDrawable borderDrawable = new ShapeDrawable(borderShape);
 
     StartIconDrawable(Context context, Drawable serviceIcon, int iconSize, int initialBackgroundSize,
             boolean onDarkBackground) {
@@ -67,7 +72,7 @@ final class StartIconDrawable extends Drawable {
         this.startIcon.setAlpha(0);
         this.serviceIcon.setAlpha(255);
 
-        background.getPaint().setColor(Color.TRANSPARENT);
+        background.getPaint().setColor(backgroundColor);
     }
 
     @Override
@@ -101,11 +106,9 @@ final class StartIconDrawable extends Drawable {
                 cx + initialBackgroundSize / 2, cy + initialBackgroundSize / 2);
 
         float radius = initialBackgroundSize / 2f;
-        background.setShape(
-                new RoundRectShape(new float[] { radius, radius, radius, radius, radius, radius, radius, radius }, null,
-                        null));
+        backgroundShape.setCornerRadii(radius, radius);
 
-        borderDrawable.setShape(background.getShape());
+        borderShape.setCornerRadii(radius, radius);
         borderDrawable.setBounds(background.getBounds());
     }
 
@@ -131,9 +134,7 @@ final class StartIconDrawable extends Drawable {
         int bgWidthDiff = Math.max(0, width - initialBackgroundSize);
         int bgHeightDiff = Math.max(0, height - initialBackgroundSize);
         float radius = initialBackgroundSize / 2f;
-        background.setShape(
-                new RoundRectShape(new float[] { radius, radius, radius, radius, radius, radius, radius, radius }, null,
-                        null));
+        backgroundShape.setCornerRadii(radius, radius);
         background.setBounds(bgWidthDiff / 2, bgHeightDiff / 2, width - bgWidthDiff / 2, height - bgHeightDiff / 2);
 
         serviceIcon.setAlpha(255);
@@ -143,33 +144,35 @@ final class StartIconDrawable extends Drawable {
 
     void setBackgroundColor(@ColorInt int color) {
         if (onDarkBackground) {
-            background.getPaint().setColor(ButtonUiHelper.getDarkerColor(color));
+            backgroundColor = ButtonUiHelper.getDarkerColor(color);
         } else {
-            background.getPaint().setColor(color);
+            backgroundColor = color;
         }
 
+        background.getPaint().setColor(backgroundColor);
+
         invalidateSelf();
     }
 
     Animator getMorphAnimator() {
         int width = getBounds().width();
         int height = getBounds().height();
-        int backgroundColor = background.getPaint().getColor();
-        ValueAnimator iconMorphing = ValueAnimator.ofFloat(initialBackgroundSize, Math.min(width, height));
+        int startColor = backgroundColor;
+        int startSize = initialBackgroundSize;
+        int endSize = Math.min(width, height);
+        ValueAnimator iconMorphing = ValueAnimator.ofFloat(startSize, endSize);
+        // The update listener runs on every frame, avoid allocating objects or boxing values in it.
         iconMorphing.addUpdateListener(animation -> {
             float progress = animation.getAnimatedFraction();
             float radius = (1 - progress) * height / 2f;
             int rounded = height / 2;
-            background.setShape(new RoundRectShape(new float[] {
-                    radius, radius, rounded, rounded, rounded, rounded, radius, radius
-            }, null, null));
+            backgroundShape.setCornerRadii(radius, rounded);
 
-            Integer color = (Integer) EVALUATOR.evaluate(progress, backgroundColor, startIconBackgroundColor);
-            background.getPaint().setColor(color);
-            // Remove any press state color filter.
-            background.getPaint().setColorFilter(null);
+            // Setting the color also replaces any press state color.
+            backgroundColor = ButtonUiHelper.interpolateColor(progress, startColor, startIconBackgroundColor);
+            background.getPaint().setColor(backgroundColor);
 
-            float animatedSize = (float) animation.getAnimatedValue();
+            float animatedSize = startSize + (endSize - startSize) * progress;
             int bgWidthDiff = (int) Math.max(0, width - animatedSize);
             int bgHeightDiff = (int) Math.max(0, height - animatedSize);
             background.setBounds(bgWidthDiff / 2, bgHeightDiff / 2, width - bgWidthDiff / 2, height - bgHeightDiff / 2);
@@ -183,7 +186,7 @@ final class StartIconDrawable extends Drawable {
     }
 
     private Animator getPressedAnimator(boolean pressed) {
-        int originalColor = background.getPaint().getColor();
+        int originalColor = backgroundColor;
         int darkerColor = ButtonUiHelper.getDarkerColor(originalColor);
         ValueAnimator pressAnimator;
         if (pressed) {
@@ -191,25 +194,41 @@ final class StartIconDrawable extends Drawable {
         } else {
             pressAnimator = ValueAnimator.ofFloat(1f, 0f);
         }
+        // Render the press state by changing the paint color directly, instead of creating a new ColorFilter on every
+        // frame.
         pressAnimator.addUpdateListener(animation -> {
-            background.getPaint()
-                    .setColorFilter(new PorterDuffColorFilter(
-                            (Integer) EVALUATOR.evaluate((Float) animation.getAnimatedValue(), originalColor,
-                                    darkerColor), PorterDuff.Mode.SRC_IN));
+            float fraction = pressed ? animation.getAnimatedFraction() : 1f - animation.getAnimatedFraction();
+            background.getPaint().setColor(ButtonUiHelper.interpolateColor(fraction, originalColor, darkerColor));
             invalidateSelf();
         });
         pressAnimator.addListener(new AnimatorListenerAdapter() {
             @Override
             public void onAnimationEnd(Animator animation) {
                 if (!pressed) {
-                    // If not pressed, at the end of the animation, remove the ColorFilter.
-                    background.setColorFilter(null);
+                    // If not pressed, at the end of the animation, restore the background color.
+                    background.getPaint().setColor(backgroundColor);
+                    invalidateSelf();
                 }
             }
         });
         return pressAnimator;
     }
 
+    @VisibleForTesting
+    Shape getBackgroundShape() {
+        return background.getShape();
+    }
+
+    @VisibleForTesting
+    Paint getBackgroundPaint() {
+        return background.getPaint();
+    }
+
+    @VisibleForTesting
+    Shape getBorderShape() {
+        return borderDrawable.getShape();
+    }
+
     @VisibleForTesting
     static boolean isDarkColor(@ColorInt int color) {
         float[] hsv = new float[3];
@@ -280,4 +299,47 @@ final class StartIconDrawable extends Drawable {
             }
         });
     }
+
+    /**
+     * A rounded rectangle {@link Shape} with mutable corner radii. The radii of the corners on the start side and the
+     * end side can be set separately, and updating them doesn't create a new Shape.
+     */
+    static final class MorphingRoundRectShape extends Shape {
+
+        private final float[] radii = new float[8];
+        private final RectF rect = new RectF();
+        private final Path path = new Path();
+
+        void setCornerRadii(float startRadius, float endRadius) {
+            radii[0] = radii[1] = radii[6] = radii[7] = startRadius;
+            radii[2] = radii[3] = radii[4] = radii[5] = endRadius;
+            updatePath();
+        }
+
+        @VisibleForTesting
+        float getStartRadius() {
+            return radii[0];
+        }
+
+        @VisibleForTesting
+        float getEndRadius() {
+            return radii[2];
+        }
+
+        @Override
+        public void draw(Canvas canvas, Paint paint) {
+            canvas.drawPath(path, paint);
+        }
+
+        @Override
+        protected void onResize(float width, float height) {
+            updatePath();
+        }
+
+        private void updatePath() {
+            rect.set(0f, 0f, getWidth(), getHeight());
+            path.reset();
+            path.addRoundRect(rect, radii, Path.Direction.CW);
+        }
+    }
 }
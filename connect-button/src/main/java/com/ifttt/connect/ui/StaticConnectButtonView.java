@@ -0,0 +1,321 @@
+package com.ifttt.connect.ui;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.view.View;
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.core.content.res.ResourcesCompat;
+import androidx.core.graphics.drawable.DrawableCompat;
+import com.ifttt.connect.Connection;
+import com.ifttt.connect.R;
+import com.ifttt.connect.Service;
+import javax.annotation.Nullable;
+
+import static android.graphics.Color.BLACK;
+import static android.graphics.Color.WHITE;
+import static android.os.Build.VERSION.SDK_INT;
+import static android.os.Build.VERSION_CODES.KITKAT;
+import static android.os.Build.VERSION_CODES.M;
+import static com.ifttt.connect.Connection.Status.enabled;
+import static com.ifttt.connect.ui.ButtonUiHelper.findWorksWithService;
+import static com.ifttt.connect.ui.ButtonUiHelper.newMonochromeIconDrawable;
+import static com.ifttt.connect.ui.ButtonUiHelper.replaceKeyWithImage;
+
+/**
+ * A lightweight, non-interactive rendering of the {@link BaseConnectButton}. It draws the loading, initial, enabled and
+ * disabled states of the button into a single View, using the same {@link StartIconDrawable} and
+ * {@link ProgressBackground} as the interactive View hierarchy.
+ *
+ * This View is used by {@link ConnectButton} when static rendering is enabled, the interactive hierarchy is only
+ * inflated when the user starts interacting with the button.
+ */
+final class StaticConnectButtonView extends View {
+
+    private final int buttonHeight;
+    private final int buttonMaxWidth;
+    private final int buttonMinWidth;
+    private final int buttonMarginHorizontal;
+    private final int buttonMarginTop;
+    private final int helperTextInset;
+    private final int helperTextLineSpacing;
+    private final int largeTextPadding;
+    private final int smallTextPadding;
+    private final int maxTextSize;
+    private final int minTextSize;
+    private final int iconSize;
+    private final int iconMargin;
+
+    private final Drawable buttonBackground;
+    private final TextPaint textPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint helperTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final Rect buttonBounds = new Rect();
+
+    // Spannable text that replaces the text "IFTTT" with IFTTT logo.
+    private final CharSequence worksWithIfttt;
+
+    @Nullable private Connection connection;
+    @Nullable private StartIconDrawable iconDrawable;
+
+    private CharSequence text;
+    private CharSequence helperText;
+
+    @Nullable private CharSequence textToDraw;
+    @Nullable private StaticLayout helperTextLayout;
+    private float textX;
+    private float textBaseline;
+
+    StaticConnectButtonView(Context context) {
+        super(context);
+
+        Resources resources = getResources();
+        buttonHeight = resources.getDimensionPixelSize(R.dimen.ifttt_connect_button_height);
+        buttonMaxWidth = resources.getDimensionPixelSize(R.dimen.ifttt_connect_button_width);
+        buttonMinWidth = resources.getDimensionPixelSize(R.dimen.ifttt_connect_button_min_width);
+        buttonMarginHorizontal = resources.getDimensionPixelSize(R.dimen.ifttt_connect_button_margin_horizontal);
+        buttonMarginTop = resources.getDimensionPixelSize(R.dimen.ifttt_space_med);
+        // Helper text has the same margin and padding.
+        helperTextInset = resources.getDimensionPixelSize(R.dimen.ifttt_space_small) * 2;
+        helperTextLineSpacing = resources.getDimensionPixelSize(R.dimen.ifttt_helper_text_line_spacing);
+        largeTextPadding = resources.getDimensionPixelSize(R.dimen.ifttt_text_padding_horizontal);
+        smallTextPadding = resources.getDimensionPixelSize(R.dimen.ifttt_text_padding_horizontal_small);
+        maxTextSize = resources.getDimensionPixelSize(R.dimen.ifttt_service_name_max_text_size);
+        minTextSize = resources.getDimensionPixelSize(R.dimen.ifttt_service_name_min_text_size);
+        iconSize = resources.getDimensionPixelSize(R.dimen.ifttt_icon_image_size);
+        iconMargin = resources.getDimensionPixelSize(R.dimen.ifttt_icon_margin);
+
+        if (SDK_INT >= KITKAT) {
+            buttonBackground = new ProgressBackgroundKitKat();
+        } else {
+            buttonBackground = new ProgressBackgroundJellyBean();
+        }
+        ((ProgressBackground) buttonBackground).setColor(BLACK, BLACK);
+
+        textPaint.setColor(WHITE);
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        textPaint.setTypeface(ResourcesCompat.getFont(context, R.font.avenir_next_ltpro_bold));
+
+        int helperTextColor = ContextCompat.getColor(context, R.color.ifttt_footer_text_black);
+        helperTextPaint.setColor(helperTextColor);
+        helperTextPaint.setTextSize(resources.getDimensionPixelSize(R.dimen.ifttt_helper_text_size));
+        helperTextPaint.setTypeface(ResourcesCompat.getFont(context, R.font.avenir_next_ltpro_demi));
+
+        Drawable iftttLogo =
+                DrawableCompat.wrap(ContextCompat.getDrawable(context, R.drawable.ic_ifttt_logo_black).mutate());
+        DrawableCompat.setTint(iftttLogo, helperTextColor);
+        worksWithIfttt = replaceKeyWithImage(helperTextPaint, resources.getString(R.string.ifttt_powered_by_ifttt),
+                "IFTTT", iftttLogo);
+
+        text = resources.getString(R.string.ifttt_loading);
+        helperText = worksWithIfttt;
+        setContentDescription(text);
+    }
+
+    /**
+     * Render the given {@link Connection}'s status, or the loading state if the Connection is null.
+     */
+    void setConnection(@Nullable Connection connection) {
+        this.connection = connection;
+
+        if (connection == null) {
+            setIconDrawable(null);
+            text = getResources().getString(R.string.ifttt_loading);
+        } else {
+            Service worksWithService = findWorksWithService(connection);
+            if (connection.status == enabled) {
+                text = getResources().getString(R.string.ifttt_connected);
+            } else if (connection.status == Connection.Status.disabled) {
+                text = getResources().getString(R.string.ifttt_reconnect_to, worksWithService.shortName);
+            } else {
+                text = getResources().getString(R.string.ifttt_connect_to, worksWithService.shortName);
+            }
+
+            // Set a placeholder for the image.
+            StartIconDrawable placeHolderImage = new StartIconDrawable(getContext(), new ColorDrawable(), 0, 0, false);
+            setIconDrawable(placeHolderImage);
+            placeHolderImage.setBackgroundColor(worksWithService.brandColor);
+        }
+
+        setContentDescription(text);
+        helperText = worksWithIfttt;
+        updateTextLayout();
+        updateHelperTextLayout();
+        invalidate();
+    }
+
+    /**
+     * Set the service icon for the current {@link Connection}. This method is no-op if there is no Connection set.
+     */
+    void setServiceIcon(@Nullable Bitmap bitmap) {
+        if (connection == null || bitmap == null) {
+            return;
+        }
+
+        Service worksWithService = findWorksWithService(connection);
+        BitmapDrawable serviceIcon = newMonochromeIconDrawable(getResources(), bitmap, WHITE);
+        StartIconDrawable drawable =
+                new StartIconDrawable(getContext(), serviceIcon, iconSize, buttonHeight - iconMargin * 2, false);
+        setIconDrawable(drawable);
+        drawable.setBackgroundColor(worksWithService.brandColor);
+        invalidate();
+    }
+
+    /**
+     * Replace the helper text with an error message, the click listener will be invoked when the View is clicked, after
+     * which the helper text will be reverted.
+     */
+    void setErrorMessage(CharSequence errorMessage, OnClickListener listener) {
+        helperText = errorMessage;
+        updateHelperTextLayout();
+        invalidate();
+
+        setOnClickListener(v -> {
+            setOnClickListener(null);
+            setClickable(false);
+
+            helperText = worksWithIfttt;
+            updateHelperTextLayout();
+            invalidate();
+
+            listener.onClick(v);
+        });
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        Paint.FontMetricsInt fontMetrics = helperTextPaint.getFontMetricsInt();
+        int helperTextHeight = fontMetrics.descent - fontMetrics.ascent + helperTextLineSpacing;
+
+        int desiredWidth = buttonMaxWidth + buttonMarginHorizontal * 2;
+        int desiredHeight = buttonMarginTop + buttonHeight + helperTextInset * 2 + helperTextHeight;
+        setMeasuredDimension(resolveSize(desiredWidth, widthMeasureSpec),
+                resolveSize(desiredHeight, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+
+        // Same as ButtonParentView, keep the button width within the min and max width.
+        int buttonWidth = Math.max(buttonMinWidth, Math.min(buttonMaxWidth, w - buttonMarginHorizontal * 2));
+        int left = (w - buttonWidth) / 2;
+        buttonBounds.set(left, buttonMarginTop, left + buttonWidth, buttonMarginTop + buttonHeight);
+
+        buttonBackground.setBounds(0, 0, buttonWidth, buttonHeight);
+        ((ProgressBackground) buttonBackground).setProgress(0f);
+
+        updateTextLayout();
+        updateHelperTextLayout();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        int count = canvas.save();
+        canvas.translate(buttonBounds.left, buttonBounds.top);
+        buttonBackground.draw(canvas);
+
+        if (textToDraw != null) {
+            canvas.drawText(textToDraw, 0, textToDraw.length(), textX, textBaseline, textPaint);
+        }
+
+        if (iconDrawable != null) {
+            // The icon is positioned at the end of the button if the Connection is enabled.
+            if (connection != null && connection.status == enabled) {
+                canvas.translate(buttonBounds.width() - buttonHeight, 0);
+            }
+            iconDrawable.draw(canvas);
+        }
+        canvas.restoreToCount(count);
+
+        if (helperTextLayout != null) {
+            count = canvas.save();
+            canvas.translate(0, buttonBounds.bottom + helperTextInset);
+            helperTextLayout.draw(canvas);
+            canvas.restoreToCount(count);
+        }
+    }
+
+    @Override
+    protected boolean verifyDrawable(@NonNull Drawable who) {
+        return who == iconDrawable || super.verifyDrawable(who);
+    }
+
+    private void setIconDrawable(@Nullable StartIconDrawable drawable) {
+        if (iconDrawable != null) {
+            iconDrawable.setCallback(null);
+        }
+
+        iconDrawable = drawable;
+        if (drawable != null) {
+            drawable.setCallback(this);
+            drawable.setBounds(0, 0, buttonHeight, buttonHeight);
+        }
+    }
+
+    private void updateTextLayout() {
+        if (buttonBounds.isEmpty()) {
+            return;
+        }
+
+        // Mirror ButtonUiHelper#adjustTextViewLayout: use the max text size if the text fits in the button with large
+        // padding, otherwise reduce the padding on the side without the icon and shrink the text to fit.
+        int paddingStart = largeTextPadding;
+        int paddingEnd = largeTextPadding;
+        textPaint.setTextSize(maxTextSize);
+        if (textPaint.measureText(text, 0, text.length()) > buttonBounds.width() - largeTextPadding * 2) {
+            if (connection != null && connection.status == enabled) {
+                paddingStart = smallTextPadding;
+            } else {
+                paddingEnd = smallTextPadding;
+            }
+
+            float availableWidth = buttonBounds.width() - paddingStart - paddingEnd;
+            float textSize = maxTextSize;
+            while (textSize > minTextSize && textPaint.measureText(text, 0, text.length()) > availableWidth) {
+                textSize--;
+                textPaint.setTextSize(textSize);
+            }
+        }
+
+        float availableWidth = buttonBounds.width() - paddingStart - paddingEnd;
+        textToDraw = TextUtils.ellipsize(text, textPaint, availableWidth, TextUtils.TruncateAt.END);
+        textX = paddingStart + availableWidth / 2f;
+        textBaseline = buttonHeight / 2f - (textPaint.descent() + textPaint.ascent()) / 2f;
+    }
+
+    private void updateHelperTextLayout() {
+        int width = getWidth() - helperTextInset * 2;
+        if (width <= 0) {
+            return;
+        }
+
+        CharSequence ellipsized = TextUtils.ellipsize(helperText, helperTextPaint, width, TextUtils.TruncateAt.END);
+        if (SDK_INT >= M) {
+            helperTextLayout = StaticLayout.Builder.obtain(ellipsized, 0, ellipsized.length(), helperTextPaint,
+                    getWidth())
+                    .setAlignment(Layout.Alignment.ALIGN_CENTER)
+                    .setLineSpacing(helperTextLineSpacing, 1f)
+                    .setIncludePad(false)
+                    .build();
+        } else {
+            helperTextLayout = newStaticLayout(ellipsized, getWidth());
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private StaticLayout newStaticLayout(CharSequence text, int width) {
+        return new StaticLayout(text, helperTextPaint, width, Layout.Alignment.ALIGN_CENTER, 1f, helperTextLineSpacing,
+                false);
+    }
+}
@@ -0,0 +1,133 @@
+package com.ifttt.connect.ui;
+
+import androidx.annotation.MainThread;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Process wide holder of the IFTTT user token, shared by all {@link ConnectButton} instances.
+ *
+ * {@link AsyncCredentialsProvider#getUserToken} is usually a round trip to the app's backend. Concurrent requests for
+ * the same provider are merged into one call, and the token it returns is cached until
+ * {@link #invalidate()} is called, so that the buttons on a screen cost one token exchange in total. A null token
+ * means the user hasn't connected to IFTTT yet, and is not cached.
+ *
+ * All methods must be called on the main thread, and the callbacks are invoked on the main thread.
+ */
+final class UserTokenManager {
+
+    interface UserTokenCallback {
+        @MainThread
+        void onUserToken(@Nullable String userToken);
+    }
+
+    private static UserTokenManager INSTANCE;
+
+    // The latest request for each provider, which new callbacks join.
+    private final Map<AsyncCredentialsProvider, TokenRequest> currentRequests = new HashMap<>();
+    private final List<TokenRequest> ongoingRequests = new ArrayList<>();
+
+    @Nullable private String userToken;
+
+    // Incremented on every invalidation, so that the results of the requests started before it are not cached.
+    private int version;
+
+    static UserTokenManager get() {
+        if (INSTANCE == null) {
+            INSTANCE = new UserTokenManager();
+        }
+
+        return INSTANCE;
+    }
+
+    /**
+     * Get the user token, either from the cache, or by joining or starting an
+     * {@link AsyncCredentialsProvider#getUserToken} request. If the token is cached, the callback is invoked
+     * synchronously.
+     *
+     * @param provider Provider used to fetch the token if it is not cached.
+     * @param callback Callback to be invoked with the token, which can be removed with
+     * {@link #removeCallback(UserTokenCallback)}.
+     */
+    @MainThread
+    void getUserToken(AsyncCredentialsProvider provider, UserTokenCallback callback) {
+        if (userToken != null) {
+            callback.onUserToken(userToken);
+            return;
+        }
+
+        TokenRequest ongoingRequest = currentRequests.get(provider);
+        if (ongoingRequest != null && ongoingRequest.version == version) {
+            ongoingRequest.callbacks.add(callback);
+            return;
+        }
+
+        TokenRequest request = new TokenRequest(provider, version);
+        request.callbacks.add(callback);
+        currentRequests.put(provider, request);
+        ongoingRequests.add(request);
+
+        // The provider may deliver the token synchronously, only start the request once it is tracked.
+        provider.getUserToken(CredentialsProviders.onMainThread(token -> onResult(request, token)));
+    }
+
+    /**
+     * Stop delivering the token to the callback. The underlying request keeps running for the other callbacks, and its
+     * result is still cached.
+     */
+    @MainThread
+    void removeCallback(UserTokenCallback callback) {
+        for (TokenRequest request : ongoingRequests) {
+            request.callbacks.remove(callback);
+        }
+    }
+
+    /**
+     * Set the user token, for example when it is returned by the Connection authentication flow.
+     */
+    @MainThread
+    void setUserToken(String userToken) {
+        this.userToken = userToken;
+    }
+
+    /**
+     * Clear the cached user token, the next {@link #getUserToken(AsyncCredentialsProvider, UserTokenCallback)}
+     * call will fetch it from the provider again. Requests that are ongoing still deliver their result to
+     * their callbacks, but the result is not cached.
+     */
+    @MainThread
+    void invalidate() {
+        userToken = null;
+        version++;
+    }
+
+    private void onResult(TokenRequest request, @Nullable String token) {
+        ongoingRequests.remove(request);
+        if (currentRequests.get(request.provider) == request) {
+            currentRequests.remove(request.provider);
+        }
+
+        if (token != null && request.version == version) {
+            userToken = token;
+        }
+
+        for (UserTokenCallback callback : new ArrayList<>(request.callbacks)) {
+            callback.onUserToken(token);
+        }
+    }
+
+    private static final class TokenRequest {
+
+        private final AsyncCredentialsProvider provider;
+        private final int version;
+        private final List<UserTokenCallback> callbacks = new ArrayList<>();
+
+        private TokenRequest(AsyncCredentialsProvider provider, int version) {
+            this.provider = provider;
+            this.version = version;
+        }
+    }
+}
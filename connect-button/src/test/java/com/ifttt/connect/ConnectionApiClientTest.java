@@ -0,0 +1,204 @@
+package com.ifttt.connect;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.ifttt.connect.api.ConnectionList;
+import com.ifttt.connect.testing.FakeIftttApiServer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Okio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.shadows.ShadowLooper;
+import retrofit2.Response;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public final class ConnectionApiClientTest {
+
+    private final FakeIftttApiServer server = new FakeIftttApiServer.Builder().build();
+    private ConnectionApiClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+        client = new ConnectionApiClient.Builder(ApplicationProvider.getApplicationContext()).setApiUrl(server.url())
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void showConnection() throws IOException {
+        server.setConnectionStatus("fake_id", FakeIftttApiServer.STATUS_ENABLED);
+
+        Connection connection = client.api().showConnection("fake_id").getCall().execute().body();
+
+        assertThat(connection.id).isEqualTo("fake_id");
+        assertThat(connection.status).isEqualTo(Connection.Status.enabled);
+        assertThat(connection.getPrimaryService().id).isEqualTo("fake_service");
+        assertThat(server.getRequestCount(FakeIftttApiServer.Endpoint.SHOW_CONNECTION)).isEqualTo(1);
+    }
+
+    @Test
+    public void disableConnection() throws IOException {
+        server.setConnectionStatus("fake_id", FakeIftttApiServer.STATUS_ENABLED);
+
+        Connection connection = client.api().disableConnection("fake_id").getCall().execute().body();
+
+        assertThat(connection.status).isEqualTo(Connection.Status.disabled);
+        assertThat(server.getConnectionStatus("fake_id")).isEqualTo(FakeIftttApiServer.STATUS_DISABLED);
+        assertThat(server.getRequestCount(FakeIftttApiServer.Endpoint.DISABLE_CONNECTION)).isEqualTo(1);
+        assertThat(server.getRequestCount(FakeIftttApiServer.Endpoint.SHOW_CONNECTION)).isEqualTo(0);
+    }
+
+    @Test
+    public void userWithoutLogin() throws IOException {
+        Response<User> response = client.api().user().getCall().execute();
+
+        assertThat(response.code()).isEqualTo(401);
+    }
+
+    @Test
+    public void userWithLogin() throws IOException {
+        server.setUserLogin("ifttt_user");
+
+        User user = client.api().user().getCall().execute().body();
+
+        assertThat(user.authenticationLevel).isEqualTo(User.AuthenticationLevel.user);
+        assertThat(user.userLogin).isEqualTo("ifttt_user");
+    }
+
+    @Test
+    public void userWithEscapedLogin() throws IOException {
+        server.setUserLogin("ifttt \"user\" \\");
+
+        User user = client.api().user().getCall().execute().body();
+
+        assertThat(user.userLogin).isEqualTo("ifttt \"user\" \\");
+    }
+
+    @Test
+    public void injectedErrors() throws IOException {
+        FakeIftttApiServer failingServer = new FakeIftttApiServer.Builder().setErrorRate(1).build();
+        failingServer.start();
+        try {
+            ConnectionApiClient failingClient =
+                    new ConnectionApiClient.Builder(ApplicationProvider.getApplicationContext()).setApiUrl(
+                            failingServer.url()).build();
+
+            Response<Connection> response = failingClient.api().showConnection("fake_id").getCall().execute();
+
+            assertThat(response.code()).isEqualTo(503);
+            assertThat(failingServer.getRequestCount(FakeIftttApiServer.Endpoint.SHOW_CONNECTION)).isEqualTo(1);
+        } finally {
+            failingServer.shutdown();
+        }
+    }
+
+    @Test
+    public void listConnections() {
+        server.setUserLogin("ifttt_user");
+        for (int i = 0; i < 5; i++) {
+            server.setConnectionStatus("connection_" + i, FakeIftttApiServer.STATUS_ENABLED);
+        }
+        server.setConnectionStatus("never_enabled", FakeIftttApiServer.STATUS_NEVER_ENABLED);
+
+        RecordingListener listener = new RecordingListener();
+        ConnectionList connectionList = client.listConnections(2, listener);
+        awaitIdle(connectionList);
+        assertThat(connectionList.size()).isEqualTo(2);
+        assertThat(listener.pages).isEqualTo(1);
+
+        // Reaching the end of the loaded Connections prefetches the next page.
+        connectionList.get(1);
+        awaitIdle(connectionList);
+        assertThat(connectionList.size()).isEqualTo(4);
+
+        connectionList.loadMore();
+        awaitIdle(connectionList);
+        assertThat(connectionList.hasMore()).isFalse();
+        assertThat(listener.pages).isEqualTo(3);
+        assertThat(listener.ids).containsExactly("connection_0", "connection_1", "connection_2", "connection_3",
+                "connection_4").inOrder();
+        assertThat(server.getRequestCount(FakeIftttApiServer.Endpoint.LIST_CONNECTIONS)).isEqualTo(3);
+    }
+
+    @Test
+    public void listConnectionsWithoutLogin() {
+        RecordingListener listener = new RecordingListener();
+        ConnectionList connectionList = client.listConnections(2, listener);
+        awaitIdle(connectionList);
+
+        assertThat(listener.errorResponse).isNotNull();
+        assertThat(connectionList.size()).isEqualTo(0);
+        assertThat(connectionList.hasMore()).isTrue();
+    }
+
+    @Test
+    public void listConnectionsSkipsNullEntries() throws IOException {
+        String connectionJson =
+                Okio.buffer(Okio.source(getClass().getClassLoader().getResourceAsStream("connection.json")))
+                        .readUtf8();
+        MockWebServer mockWebServer = new MockWebServer();
+        mockWebServer.enqueue(new MockResponse().setBody(
+                "{\"data\":[null," + connectionJson + ",null],\"next_cursor\":null}"));
+        mockWebServer.start();
+        try {
+            ConnectionApiClient mockClient = new ConnectionApiClient.Builder(
+                    ApplicationProvider.getApplicationContext()).setApiUrl(mockWebServer.url("/").toString()).build();
+
+            // The listener checks that the Connections are delivered at consecutive positions.
+            RecordingListener listener = new RecordingListener();
+            ConnectionList connectionList = mockClient.listConnections(3, listener);
+            awaitIdle(connectionList);
+
+            assertThat(listener.ids).containsExactly("aVxGRrtD");
+            assertThat(connectionList.size()).isEqualTo(1);
+            assertThat(connectionList.get(0).id).isEqualTo("aVxGRrtD");
+            assertThat(connectionList.hasMore()).isFalse();
+        } finally {
+            mockWebServer.shutdown();
+        }
+    }
+
+    private static void awaitIdle(ConnectionList connectionList) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (connectionList.isLoading() && System.currentTimeMillis() < deadline) {
+            ShadowLooper.idleMainLooper();
+            Thread.yield();
+        }
+        assertThat(connectionList.isLoading()).isFalse();
+    }
+
+    private static final class RecordingListener implements ConnectionList.Listener {
+        final List<String> ids = new ArrayList<>();
+        int pages;
+        ErrorResponse errorResponse;
+
+        @Override
+        public void onConnectionLoaded(int position, Connection connection) {
+            assertThat(position).isEqualTo(ids.size());
+            ids.add(connection.id);
+        }
+
+        @Override
+        public void onPageLoaded(boolean hasMore) {
+            pages++;
+        }
+
+        @Override
+        public void onFailure(ErrorResponse errorResponse) {
+            this.errorResponse = errorResponse;
+        }
+    }
+}
@@ -20,6 +20,7 @@ public final class ConnectionTest {
     private final Moshi moshi = new Moshi.Builder().add(Date.class, new Rfc3339DateJsonAdapter().nullSafe())
             .add(new HexColorJsonAdapter())
             .add(new ConnectionJsonAdapter())
+            .add(new CoverImageJsonAdapter())
             .build();
     private final JsonAdapter<Connection> adapter = moshi.adapter(Connection.class);
 
@@ -43,4 +44,15 @@ public final class ConnectionTest {
         assertThat(connection.getPrimaryService()).isNotNull();
         assertThat(connection.getPrimaryService().id).isEqualTo("instagram");
     }
+
+    @Test
+    public void servicesAreShared() throws Exception {
+        InputStream inputStream = getClass().getClassLoader().getResourceAsStream("connection.json");
+        Connection other = adapter.fromJson(JsonReader.of(Okio.buffer(Okio.source(inputStream))));
+
+        assertThat(other).isNotSameAs(connection);
+        for (int i = 0; i < connection.services.size(); i++) {
+            assertThat(other.services.get(i)).isSameAs(connection.services.get(i));
+        }
+    }
 }
@@ -0,0 +1,66 @@
+package com.ifttt.connect;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public final class CoverImageTest {
+
+    private final CoverImage coverImage =
+            new CoverImage("https://ifttt.com/480w", "https://ifttt.com/720w", "https://ifttt.com/1080w",
+                    "https://ifttt.com/1440w", "https://ifttt.com/2880w", "https://ifttt.com/4320w");
+
+    @Test
+    public void smallestVariantCoveringWidth() {
+        assertThat(coverImage.getImageUrl(0, 0)).isEqualTo("https://ifttt.com/480w");
+        assertThat(coverImage.getImageUrl(480, 0)).isEqualTo("https://ifttt.com/480w");
+        assertThat(coverImage.getImageUrl(481, 0)).isEqualTo("https://ifttt.com/720w");
+        // A 360dp wide View on xhdpi and xxhdpi displays.
+        assertThat(coverImage.getImageUrl(720, 0)).isEqualTo("https://ifttt.com/720w");
+        assertThat(coverImage.getImageUrl(1080, 0)).isEqualTo("https://ifttt.com/1080w");
+    }
+
+    @Test
+    public void smallestVariantCoveringHeight() {
+        assertThat(coverImage.getImageUrl(720, 360)).isEqualTo("https://ifttt.com/720w");
+        assertThat(coverImage.getImageUrl(720, 720)).isEqualTo("https://ifttt.com/1440w");
+    }
+
+    @Test
+    public void largestVariantForLargeTargets() {
+        assertThat(coverImage.getImageUrl(10000, 0)).isEqualTo("https://ifttt.com/4320w");
+    }
+
+    @Test
+    public void imageUrlsOrderedBySize() {
+        assertThat(coverImage.getImageUrls()).containsExactly("https://ifttt.com/480w", "https://ifttt.com/720w",
+                "https://ifttt.com/1080w", "https://ifttt.com/1440w", "https://ifttt.com/2880w",
+                "https://ifttt.com/4320w").inOrder();
+    }
+
+    @Test
+    public void urlsDifferingByWidthAreCompacted() {
+        assertThat(coverImage.isCompact()).isTrue();
+
+        // The width also appears in a part of the URL that is the same for all variants.
+        CoverImage coverImage = new CoverImage("https://ifttt.com/480/480w.jpg", "https://ifttt.com/480/720w.jpg",
+                "https://ifttt.com/480/1080w.jpg", "https://ifttt.com/480/1440w.jpg",
+                "https://ifttt.com/480/2880w.jpg", "https://ifttt.com/480/4320w.jpg");
+        assertThat(coverImage.isCompact()).isTrue();
+        assertThat(coverImage.getImageUrl(0, 0)).isEqualTo("https://ifttt.com/480/480w.jpg");
+        assertThat(coverImage.getImageUrl(10000, 0)).isEqualTo("https://ifttt.com/480/4320w.jpg");
+    }
+
+    @Test
+    public void unrelatedUrlsAreKept() {
+        CoverImage coverImage = new CoverImage("https://ifttt.com/a", "https://ifttt.com/b", "https://ifttt.com/c",
+                "https://ifttt.com/d", "https://ifttt.com/e", "https://ifttt.com/f");
+
+        assertThat(coverImage.isCompact()).isFalse();
+        assertThat(coverImage.getImageUrls()).containsExactly("https://ifttt.com/a", "https://ifttt.com/b",
+                "https://ifttt.com/c", "https://ifttt.com/d", "https://ifttt.com/e", "https://ifttt.com/f").inOrder();
+    }
+}
@@ -0,0 +1,93 @@
+package com.ifttt.connect;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.ifttt.connect.api.PendingResult;
+import com.squareup.moshi.Moshi;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.shadows.ShadowLooper;
+import retrofit2.Call;
+import retrofit2.Response;
+import retrofit2.mock.Calls;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public final class RetryingPendingResultTest {
+
+    private final List<ErrorResponse> errors = new ArrayList<>();
+
+    @Test
+    public void retryDelayIsExponential() {
+        assertThat(RetryingPendingResult.getRetryDelay(1)).isEqualTo(1000L);
+        assertThat(RetryingPendingResult.getRetryDelay(2)).isEqualTo(2000L);
+    }
+
+    @Test
+    public void onlyTransientFailuresAreRetried() {
+        assertThat(RetryingPendingResult.isRetryable(500)).isTrue();
+        assertThat(RetryingPendingResult.isRetryable(503)).isTrue();
+        assertThat(RetryingPendingResult.isRetryable(408)).isTrue();
+        assertThat(RetryingPendingResult.isRetryable(429)).isTrue();
+        assertThat(RetryingPendingResult.isRetryable(400)).isFalse();
+        assertThat(RetryingPendingResult.isRetryable(401)).isFalse();
+        assertThat(RetryingPendingResult.isRetryable(404)).isFalse();
+    }
+
+    @Test
+    public void failureIsReportedAfterAllAttempts() {
+        RetryingPendingResult<Connection> pendingResult = newPendingResult(Calls.failure(new IOException()));
+        pendingResult.execute(new RecordingCallback());
+        assertThat(errors).isEmpty();
+
+        ShadowLooper.idleMainLooper(1, TimeUnit.SECONDS);
+        assertThat(errors).isEmpty();
+
+        ShadowLooper.idleMainLooper(2, TimeUnit.SECONDS);
+        assertThat(errors).containsExactly(ApiPendingResult.UNEXPECTED_ERROR_RESPONSE);
+    }
+
+    @Test
+    public void clientErrorIsReportedRightAway() {
+        ResponseBody body = ResponseBody.create(MediaType.get("application/json"),
+                "{\"code\":\"not_found\",\"message\":\"Connection not found\"}");
+        RetryingPendingResult<Connection> pendingResult =
+                newPendingResult(Calls.response(Response.<Connection>error(404, body)));
+        pendingResult.execute(new RecordingCallback());
+
+        assertThat(errors).hasSize(1);
+        assertThat(errors.get(0).code).isEqualTo("not_found");
+    }
+
+    @Test
+    public void cancelStopsRetries() {
+        RetryingPendingResult<Connection> pendingResult = newPendingResult(Calls.failure(new IOException()));
+        pendingResult.execute(new RecordingCallback());
+        pendingResult.cancel();
+
+        ShadowLooper.idleMainLooper(10, TimeUnit.SECONDS);
+        assertThat(errors).isEmpty();
+    }
+
+    private static RetryingPendingResult<Connection> newPendingResult(Call<Connection> call) {
+        return new RetryingPendingResult<>(call, new Moshi.Builder().build().adapter(ErrorResponse.class));
+    }
+
+    private final class RecordingCallback implements PendingResult.ResultCallback<Connection> {
+        @Override
+        public void onSuccess(Connection result) {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void onFailure(ErrorResponse errorResponse) {
+            errors.add(errorResponse);
+        }
+    }
+}
@@ -13,6 +13,7 @@ public final class TestUtils {
 
     private static final Moshi MOSHI = new Moshi.Builder().add(Date.class, new Rfc3339DateJsonAdapter().nullSafe())
             .add(new ConnectionJsonAdapter())
+            .add(new CoverImageJsonAdapter())
             .add(new HexColorJsonAdapter())
             .build();
 
@@ -1,5 +1,17 @@
 package com.ifttt.connect;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -27,4 +39,69 @@ public final class TokenInterceptorTest {
         tokenInterceptor.setToken("Token");
         assertThat(tokenInterceptor.isUserAuthenticated()).isTrue();
     }
+
+    @Test
+    public void setSameToken() {
+        List<String> tokens = new ArrayList<>();
+        TokenInterceptor tokenInterceptor = new TokenInterceptor(null);
+        tokenInterceptor.addListener(tokens::add);
+
+        tokenInterceptor.setToken("Token");
+        tokenInterceptor.setToken("Token");
+
+        assertThat(tokenInterceptor.getTokenVersion()).isEqualTo(1);
+        assertThat(tokens).containsExactly("Token");
+    }
+
+    @Test
+    public void reissueGetWhenTokenChanges() throws IOException, InterruptedException {
+        TokenInterceptor tokenInterceptor = new TokenInterceptor(null);
+        MockWebServer server = newServer(tokenInterceptor);
+        try {
+            OkHttpClient client = new OkHttpClient.Builder().addInterceptor(tokenInterceptor).build();
+            try (Response response = client.newCall(new Request.Builder().url(server.url("/")).build()).execute()) {
+                assertThat(response.body().string()).isEqualTo("Bearer Token");
+            }
+
+            assertThat(server.getRequestCount()).isEqualTo(2);
+            assertThat(server.takeRequest().getHeader("Authorization")).isNull();
+            assertThat(server.takeRequest().getHeader("Authorization")).isEqualTo("Bearer Token");
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void doNotReissuePost() throws IOException {
+        TokenInterceptor tokenInterceptor = new TokenInterceptor(null);
+        MockWebServer server = newServer(tokenInterceptor);
+        try {
+            OkHttpClient client = new OkHttpClient.Builder().addInterceptor(tokenInterceptor).build();
+            Request request = new Request.Builder().url(server.url("/"))
+                    .post(RequestBody.create(MediaType.get("text/plain"), ""))
+                    .build();
+            try (Response response = client.newCall(request).execute()) {
+                assertThat(response.body().string()).isEmpty();
+            }
+
+            assertThat(server.getRequestCount()).isEqualTo(1);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    // A server that changes the token while it is handling the first request, and echoes the Authorization header.
+    private static MockWebServer newServer(TokenInterceptor tokenInterceptor) throws IOException {
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                tokenInterceptor.setToken("Token");
+                String authorization = request.getHeader("Authorization");
+                return new MockResponse().setBody(authorization == null ? "" : authorization);
+            }
+        });
+        server.start();
+        return server;
+    }
 }
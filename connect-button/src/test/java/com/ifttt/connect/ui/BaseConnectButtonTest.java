@@ -1,6 +1,10 @@
 package com.ifttt.connect.ui;
 
+import android.animation.ValueAnimator;
 import android.net.Uri;
+import android.os.Parcelable;
+import android.view.View;
+import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextSwitcher;
 import android.widget.TextView;
@@ -12,12 +16,20 @@ import com.ifttt.connect.ConnectionApiClient;
 import com.ifttt.connect.ErrorResponse;
 import com.ifttt.connect.R;
 import com.ifttt.connect.ShadowAnimatorSet;
+import com.ifttt.connect.testing.FakeIftttApiServer;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
 
 import static com.google.common.truth.Truth.assertThat;
 import static com.ifttt.connect.TestUtils.loadConnection;
@@ -77,7 +89,8 @@ public final class BaseConnectButtonTest {
     public void setConnection() throws IOException {
         Connection connection = loadConnection(getClass().getClassLoader());
 
-        button.setup("a@b.com", client, Uri.parse("https://google.com"), credentialsProvider, null);
+        button.setup("a@b.com", client, Uri.parse("https://google.com"),
+                CredentialsProviders.fromBlocking(credentialsProvider), null);
         button.setConnection(connection);
 
         TextSwitcher connectText = button.findViewById(R.id.connect_with_ifttt);
@@ -109,7 +122,8 @@ public final class BaseConnectButtonTest {
 
     @Test
     public void testDispatchStates() throws IOException {
-        button.setup("a@b.com", client, Uri.parse("https://google.com"), credentialsProvider, null);
+        button.setup("a@b.com", client, Uri.parse("https://google.com"),
+                CredentialsProviders.fromBlocking(credentialsProvider), null);
 
         AtomicReference<ConnectButtonState> currentStateRef = new AtomicReference<>(ConnectButtonState.Initial);
         AtomicReference<ConnectButtonState> prevStateRef = new AtomicReference<>();
@@ -139,4 +153,240 @@ public final class BaseConnectButtonTest {
         button.setConnectResult(new ConnectResult(ConnectResult.NextStep.Complete, "token", null));
         assertThat(currentStateRef.get()).isEqualTo(ConnectButtonState.Enabled);
     }
+
+    @Test
+    public void savedStateReferencesStoredConnection() throws IOException {
+        button.setup("a@b.com", client, Uri.parse("https://google.com"),
+                CredentialsProviders.fromBlocking(credentialsProvider), null);
+        Connection connection = loadConnection(getClass().getClassLoader());
+        button.setConnection(connection);
+
+        Parcelable savedState = button.onSaveInstanceState();
+        try {
+            button.setConnection(loadConnection(getClass().getClassLoader()));
+            button.onRestoreInstanceState(savedState);
+            assertThat(button.getConnection()).isSameAs(connection);
+        } finally {
+            ConnectionStore.get().clear();
+        }
+    }
+
+    @Test
+    public void disableConnectionOptimistically() throws IOException {
+        // Keep the disable request in flight for the duration of the test.
+        FakeIftttApiServer server = new FakeIftttApiServer.Builder().setLatency(3, TimeUnit.SECONDS).build();
+        server.start();
+        try {
+            ConnectionApiClient serverClient =
+                    new ConnectionApiClient.Builder(button.getContext()).setApiUrl(server.url()).build();
+            button.setup("a@b.com", serverClient, Uri.parse("https://google.com"),
+                    CredentialsProviders.fromBlocking(credentialsProvider), null);
+
+            Connection connection = loadConnection(getClass().getClassLoader());
+            button.setConnection(new Connection(connection.id, connection.name, connection.description,
+                    Connection.Status.enabled, connection.url, connection.services, connection.coverImage,
+                    connection.valuePropositions));
+
+            AtomicReference<ConnectButtonState> currentStateRef = new AtomicReference<>();
+            button.addButtonStateChangeListener(new ButtonStateChangeListener() {
+                @Override
+                public void onStateChanged(ConnectButtonState currentState, ConnectButtonState previousState) {
+                    currentStateRef.set(currentState);
+                }
+
+                @Override
+                public void onError(ErrorResponse errorResponse) {
+                }
+            });
+
+            button.disableConnectionOptimistically();
+
+            // The disabled Connection is rendered and shared before the API call completes.
+            assertThat(currentStateRef.get()).isEqualTo(ConnectButtonState.Disabled);
+            assertThat(ConnectionStore.get().get(connection.id).status).isEqualTo(Connection.Status.disabled);
+        } finally {
+            ConnectionStore.get().clear();
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void optimisticDisableIsConfirmed() throws IOException {
+        FakeIftttApiServer server = new FakeIftttApiServer.Builder().build();
+        server.start();
+        try {
+            Connection connection = setUpEnabledConnection(server.url());
+            List<ErrorResponse> errors = new ArrayList<>();
+            AtomicReference<ConnectButtonState> currentStateRef = recordStates(errors);
+
+            button.disableConnectionOptimistically();
+            Connection optimistic = ConnectionStore.get().get(connection.id);
+            awaitMainLooper(() -> ConnectionStore.get().get(connection.id) != optimistic);
+
+            // The Connection returned by the API replaces the optimistic one.
+            assertThat(ConnectionStore.get().get(connection.id).status).isEqualTo(Connection.Status.disabled);
+            assertThat(currentStateRef.get()).isEqualTo(ConnectButtonState.Disabled);
+            assertThat(errors).isEmpty();
+            assertThat(server.getRequestCount(FakeIftttApiServer.Endpoint.DISABLE_CONNECTION)).isEqualTo(1);
+        } finally {
+            ConnectionStore.get().clear();
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void optimisticDisableIsRolledBackAfterRetries() throws IOException {
+        FakeIftttApiServer server = new FakeIftttApiServer.Builder().setErrorRate(1.0).build();
+        server.start();
+        try {
+            Connection connection = setUpEnabledConnection(server.url());
+            List<ErrorResponse> errors = new ArrayList<>();
+            AtomicReference<ConnectButtonState> currentStateRef = recordStates(errors);
+
+            button.disableConnectionOptimistically();
+            assertThat(currentStateRef.get()).isEqualTo(ConnectButtonState.Disabled);
+            awaitMainLooper(() -> !errors.isEmpty());
+
+            // Server errors are retried before the Connection is rolled back.
+            assertThat(server.getRequestCount(FakeIftttApiServer.Endpoint.DISABLE_CONNECTION)).isEqualTo(3);
+            assertThat(errors).hasSize(1);
+            assertThat(errors.get(0).code).isEqualTo("service_unavailable");
+            assertThat(currentStateRef.get()).isEqualTo(ConnectButtonState.Enabled);
+            assertThat(ConnectionStore.get().get(connection.id).status).isEqualTo(Connection.Status.enabled);
+        } finally {
+            ConnectionStore.get().clear();
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void optimisticDisableIsNotRetriedForClientErrors() throws IOException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(404)
+                .setBody("{\"code\":\"not_found\",\"message\":\"Connection not found\"}"));
+        server.start();
+        try {
+            Connection connection = setUpEnabledConnection(server.url("/").toString());
+            List<ErrorResponse> errors = new ArrayList<>();
+            AtomicReference<ConnectButtonState> currentStateRef = recordStates(errors);
+
+            button.disableConnectionOptimistically();
+            awaitMainLooper(() -> !errors.isEmpty());
+
+            assertThat(server.getRequestCount()).isEqualTo(1);
+            assertThat(errors.get(0).code).isEqualTo("not_found");
+            assertThat(currentStateRef.get()).isEqualTo(ConnectButtonState.Enabled);
+            assertThat(ConnectionStore.get().get(connection.id).status).isEqualTo(Connection.Status.enabled);
+        } finally {
+            ConnectionStore.get().clear();
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void optimisticDisableDoesNotUpdateDestroyedButton() throws IOException {
+        FakeIftttApiServer server = new FakeIftttApiServer.Builder().setErrorRate(1.0).build();
+        server.start();
+        try {
+            Connection connection = setUpEnabledConnection(server.url());
+            List<ErrorResponse> errors = new ArrayList<>();
+            recordStates(errors);
+
+            button.disableConnectionOptimistically();
+            Connection optimistic = button.getConnection();
+            ((ViewGroup) button.getParent()).removeView(button);
+            awaitMainLooper(() -> ConnectionStore.get().get(connection.id) != optimistic);
+
+            // The shared state is rolled back, the destroyed button is left alone.
+            assertThat(ConnectionStore.get().get(connection.id).status).isEqualTo(Connection.Status.enabled);
+            assertThat(button.getConnection()).isSameAs(optimistic);
+            assertThat(errors).isEmpty();
+        } finally {
+            ConnectionStore.get().clear();
+            server.shutdown();
+        }
+    }
+
+    private Connection setUpEnabledConnection(String apiUrl) throws IOException {
+        ConnectionApiClient serverClient =
+                new ConnectionApiClient.Builder(button.getContext()).setApiUrl(apiUrl).build();
+        button.setup("a@b.com", serverClient, Uri.parse("https://google.com"),
+                CredentialsProviders.fromBlocking(credentialsProvider), null);
+
+        Connection connection = loadConnection(getClass().getClassLoader());
+        Connection enabled = new Connection(connection.id, connection.name, connection.description,
+                Connection.Status.enabled, connection.url, connection.services, connection.coverImage,
+                connection.valuePropositions);
+        button.setConnection(enabled);
+        ConnectionStore.get().put(enabled);
+        return enabled;
+    }
+
+    private AtomicReference<ConnectButtonState> recordStates(List<ErrorResponse> errors) {
+        AtomicReference<ConnectButtonState> currentStateRef = new AtomicReference<>();
+        button.addButtonStateChangeListener(new ButtonStateChangeListener() {
+            @Override
+            public void onStateChanged(ConnectButtonState currentState, ConnectButtonState previousState) {
+                currentStateRef.set(currentState);
+            }
+
+            @Override
+            public void onError(ErrorResponse errorResponse) {
+                errors.add(errorResponse);
+            }
+        });
+        return currentStateRef;
+    }
+
+    private static void awaitMainLooper(BooleanSupplier condition) {
+        // The requests run on the OkHttp threads, and the retries are scheduled on the main looper.
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            ShadowLooper.idleMainLooper(100, TimeUnit.MILLISECONDS);
+            Thread.yield();
+        }
+    }
+
+    @Test
+    public void hardwareLayersAreRestoredWhenAnimationEnds() {
+        View defaultLayerView = new View(button.getContext());
+        View softwareLayerView = new View(button.getContext());
+        softwareLayerView.setLayerType(View.LAYER_TYPE_SOFTWARE, null);
+
+        ValueAnimator animator = ValueAnimator.ofFloat(0f, 1f);
+        animator.addListener(new BaseConnectButton.HardwareLayerAnimatorListenerAdapter(
+                new BaseConnectButton.AnimatorLifecycleObserver(), defaultLayerView, softwareLayerView));
+
+        animator.start();
+        assertThat(defaultLayerView.getLayerType()).isEqualTo(View.LAYER_TYPE_HARDWARE);
+        assertThat(softwareLayerView.getLayerType()).isEqualTo(View.LAYER_TYPE_HARDWARE);
+
+        animator.end();
+        assertThat(defaultLayerView.getLayerType()).isEqualTo(View.LAYER_TYPE_NONE);
+        assertThat(softwareLayerView.getLayerType()).isEqualTo(View.LAYER_TYPE_SOFTWARE);
+    }
+
+    @Test
+    public void hardwareLayersAreRestoredWhenAnimationIsCanceled() {
+        View defaultLayerView = new View(button.getContext());
+        View softwareLayerView = new View(button.getContext());
+        softwareLayerView.setLayerType(View.LAYER_TYPE_SOFTWARE, null);
+
+        ValueAnimator animator = ValueAnimator.ofFloat(0f, 1f);
+        animator.addListener(new BaseConnectButton.HardwareLayerAnimatorListenerAdapter(
+                new BaseConnectButton.AnimatorLifecycleObserver(), defaultLayerView, softwareLayerView));
+
+        animator.start();
+        assertThat(defaultLayerView.getLayerType()).isEqualTo(View.LAYER_TYPE_HARDWARE);
+
+        animator.cancel();
+        assertThat(defaultLayerView.getLayerType()).isEqualTo(View.LAYER_TYPE_NONE);
+        assertThat(softwareLayerView.getLayerType()).isEqualTo(View.LAYER_TYPE_SOFTWARE);
+
+        // The layers are enabled again when the animation is restarted.
+        animator.start();
+        assertThat(softwareLayerView.getLayerType()).isEqualTo(View.LAYER_TYPE_HARDWARE);
+        animator.cancel();
+        assertThat(softwareLayerView.getLayerType()).isEqualTo(View.LAYER_TYPE_SOFTWARE);
+    }
 }
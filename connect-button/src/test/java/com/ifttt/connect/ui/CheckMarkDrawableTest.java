@@ -0,0 +1,48 @@
+package com.ifttt.connect.ui;
+
+import android.animation.Animator;
+import android.animation.AnimatorSet;
+import android.animation.ValueAnimator;
+import android.graphics.Color;
+import android.graphics.Path;
+import android.graphics.PathMeasure;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public final class CheckMarkDrawableTest {
+
+    @Test
+    public void checkMarkIsTracedWithAnimatedFraction() {
+        CheckMarkDrawable drawable = new CheckMarkDrawable(100, Color.WHITE, Color.WHITE);
+        drawable.setBounds(0, 0, 200, 200);
+
+        Path segment = drawable.getCheckMarkSegment();
+        float fullLength = new PathMeasure(segment, false).getLength();
+        assertThat(fullLength).isGreaterThan(0f);
+
+        ValueAnimator checkMark = findCheckMarkAnimator(drawable.getAnimator(CheckMarkDrawable.AnimatorType.ENABLE));
+        for (int i = 0; i <= 10; i++) {
+            checkMark.setCurrentFraction(i / 10f);
+
+            // The segment Path is reused across frames.
+            assertThat(drawable.getCheckMarkSegment()).isSameAs(segment);
+            float length = new PathMeasure(segment, false).getLength();
+            assertThat(length).isWithin(0.5f).of(checkMark.getAnimatedFraction() * fullLength);
+        }
+    }
+
+    private static ValueAnimator findCheckMarkAnimator(Animator animator) {
+        for (Animator child : ((AnimatorSet) animator).getChildAnimations()) {
+            // The check mark is traced by the 600ms animator of the set.
+            if (child instanceof ValueAnimator && child.getDuration() == 600L) {
+                return (ValueAnimator) child;
+            }
+        }
+
+        throw new AssertionError("No check mark animator.");
+    }
+}
@@ -2,12 +2,32 @@ package com.ifttt.connect.ui;
 
 import android.app.Activity;
 import android.net.Uri;
+import android.os.SystemClock;
+import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextSwitcher;
+import android.widget.TextView;
+import androidx.lifecycle.LifecycleRegistry;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.ifttt.connect.Connection;
+import com.ifttt.connect.ConnectionApiClient;
+import com.ifttt.connect.ErrorResponse;
+import com.ifttt.connect.R;
+import com.ifttt.connect.TestUtils;
+import com.ifttt.connect.testing.FakeIftttApiServer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowLooper;
 
+import static android.view.ViewGroup.LayoutParams.MATCH_PARENT;
+import static android.view.ViewGroup.LayoutParams.WRAP_CONTENT;
 import static com.google.common.truth.Truth.assertThat;
 
 @RunWith(AndroidJUnit4.class)
@@ -58,4 +78,381 @@ public final class ConnectButtonTest {
             assertThat(child.getVisibility()).isEqualTo(View.VISIBLE);
         }
     }
+
+    @Test
+    public void shouldRenderStaticButtonUntilInteraction() {
+        ConnectButton connectButton = new ConnectButton(activity);
+        connectButton.setup(ConnectButton.Configuration.Builder.withConnectionId("123", "email@ifttt.com",
+                new CredentialsProvider() {
+                    @Override
+                    public String getOAuthCode() {
+                        return null;
+                    }
+
+                    @Override
+                    public String getUserToken() {
+                        return null;
+                    }
+                }, Uri.EMPTY).setStaticRendering(true).build());
+
+        assertThat(connectButton.findViewById(R.id.ifttt_connect_button)).isNull();
+
+        boolean hasStaticButton = false;
+        for (int i = 0; i < connectButton.getChildCount(); i++) {
+            View child = connectButton.getChildAt(i);
+            if (child instanceof StaticConnectButtonView) {
+                hasStaticButton = true;
+                assertThat(child.getVisibility()).isEqualTo(View.VISIBLE);
+            } else {
+                assertThat(child.getVisibility()).isEqualTo(View.GONE);
+            }
+        }
+        assertThat(hasStaticButton).isTrue();
+    }
+
+    @Test
+    public void shouldSwapInInteractiveButtonOnTouch() throws IOException {
+        Activity activity = Robolectric.buildActivity(TestActivity.class).setup().visible().get();
+        ConnectButton connectButton = new ConnectButton(activity);
+        activity.addContentView(connectButton, new ViewGroup.LayoutParams(MATCH_PARENT, WRAP_CONTENT));
+        connectButton.setup(ConnectButton.Configuration.Builder.withConnection(enabledConnection(), "email@ifttt.com",
+                new CredentialsProvider() {
+                    @Override
+                    public String getOAuthCode() {
+                        return null;
+                    }
+
+                    @Override
+                    public String getUserToken() {
+                        return null;
+                    }
+                }, Uri.EMPTY).setStaticRendering(true).build());
+        Robolectric.flushBackgroundThreadScheduler();
+        ShadowLooper.idleMainLooper();
+        layout(connectButton);
+
+        StaticConnectButtonView staticButton = findStaticButton(connectButton);
+        assertThat(staticButton).isNotNull();
+        assertThat(connectButton.findViewById(R.id.ifttt_connect_button)).isNull();
+
+        // Touch the middle of the button.
+        float x = staticButton.getLeft() + staticButton.getWidth() / 2f;
+        float y = staticButton.getTop() + activity.getResources().getDimensionPixelSize(R.dimen.ifttt_space_med)
+                + activity.getResources().getDimensionPixelSize(R.dimen.ifttt_connect_button_height) / 2f;
+        long downTime = SystemClock.uptimeMillis();
+        MotionEvent down = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, x, y, 0);
+        assertThat(connectButton.dispatchTouchEvent(down)).isTrue();
+
+        assertThat(findStaticButton(connectButton)).isNull();
+        View interactiveButton = connectButton.findViewById(R.id.ifttt_connect_button);
+        assertThat(interactiveButton).isNotNull();
+        assertThat(interactiveButton.getVisibility()).isEqualTo(View.VISIBLE);
+
+        // The rest of the gesture is handled by the interactive button as a click on the enabled Connection.
+        MotionEvent up = MotionEvent.obtain(downTime, downTime + 50, MotionEvent.ACTION_UP, x, y, 0);
+        connectButton.dispatchTouchEvent(up);
+        ShadowLooper.idleMainLooper();
+
+        TextSwitcher connectText = interactiveButton.findViewById(R.id.connect_with_ifttt);
+        assertThat(((TextView) connectText.getCurrentView()).getText().toString()).isEqualTo(
+                activity.getString(R.string.ifttt_slide_to_turn_off));
+    }
+
+    @Test
+    public void shouldKeepStaticButtonOnTouchWithoutConnection() {
+        ConnectButton connectButton = new ConnectButton(activity);
+        connectButton.setup(ConnectButton.Configuration.Builder.withConnectionId("123", "email@ifttt.com",
+                new CredentialsProvider() {
+                    @Override
+                    public String getOAuthCode() {
+                        return null;
+                    }
+
+                    @Override
+                    public String getUserToken() {
+                        return null;
+                    }
+                }, Uri.EMPTY).setStaticRendering(true).build());
+        layout(connectButton);
+
+        long downTime = SystemClock.uptimeMillis();
+        MotionEvent down = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN,
+                connectButton.getWidth() / 2f, connectButton.getHeight() / 2f, 0);
+        connectButton.dispatchTouchEvent(down);
+
+        // There is nothing to interact with while the Connection is loading.
+        assertThat(findStaticButton(connectButton)).isNotNull();
+        assertThat(connectButton.findViewById(R.id.ifttt_connect_button)).isNull();
+    }
+
+    @Test
+    public void shouldShowPlaceholderUntilAsyncInflation() throws IOException {
+        Activity activity = Robolectric.buildActivity(TestActivity.class).setup().visible().get();
+        ConnectButton connectButton = new ConnectButton(activity);
+        activity.addContentView(connectButton, new ViewGroup.LayoutParams(MATCH_PARENT, WRAP_CONTENT));
+
+        List<ConnectButtonState> states = new ArrayList<>();
+        connectButton.addButtonStateChangeListener(new ButtonStateChangeListener() {
+            @Override
+            public void onStateChanged(ConnectButtonState currentState, ConnectButtonState previousState) {
+                states.add(currentState);
+            }
+
+            @Override
+            public void onError(ErrorResponse errorResponse) {
+            }
+        });
+        connectButton.setup(asyncConfiguration(TestUtils.loadConnection(getClass().getClassLoader())));
+
+        assertThat(connectButton.isInflatingAsync()).isTrue();
+        assertThat(connectButton.findViewById(R.id.ifttt_connect_button)).isNull();
+        assertThat(connectButton.findViewById(R.id.ifttt_loading_view).getVisibility()).isEqualTo(View.VISIBLE);
+
+        Robolectric.flushBackgroundThreadScheduler();
+        awaitAsyncInflation(connectButton);
+
+        // The configuration and the listeners are applied to the inflated button, and the Connection is rendered.
+        View interactiveButton = connectButton.findViewById(R.id.ifttt_connect_button);
+        assertThat(interactiveButton).isNotNull();
+        TextSwitcher connectText = interactiveButton.findViewById(R.id.connect_with_ifttt);
+        assertThat(((TextView) connectText.getCurrentView()).getText().toString()).isEqualTo("Connect Twitter");
+        assertThat(states).contains(ConnectButtonState.Initial);
+        assertThat(connectButton.findViewById(R.id.ifttt_loading_view).getVisibility()).isEqualTo(View.GONE);
+    }
+
+    @Test
+    public void shouldNotAttachAsyncInflationTwice() throws IOException {
+        Connection connection = TestUtils.loadConnection(getClass().getClassLoader());
+        Activity activity = Robolectric.buildActivity(TestActivity.class).setup().visible().get();
+        ConnectButton connectButton = new ConnectButton(activity);
+        activity.addContentView(connectButton, new ViewGroup.LayoutParams(MATCH_PARENT, WRAP_CONTENT));
+
+        connectButton.setup(asyncConfiguration(connection));
+        // Set up again before the inflation completes, the ongoing inflation is reused.
+        connectButton.setup(asyncConfiguration(connection));
+        // Detach before the inflation completes.
+        ((ViewGroup) connectButton.getParent()).removeView(connectButton);
+
+        Robolectric.flushBackgroundThreadScheduler();
+        awaitAsyncInflation(connectButton);
+        assertThat(countInteractiveButtons(connectButton)).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldDropAsyncInflationAfterSynchronousSetup() throws IOException {
+        Connection connection = TestUtils.loadConnection(getClass().getClassLoader());
+        ConnectButton connectButton = new ConnectButton(activity);
+
+        connectButton.setup(asyncConfiguration(connection));
+        // A configuration without asynchronous inflation inflates the View hierarchy right away.
+        connectButton.setup(ConnectButton.Configuration.Builder.withConnection(connection, "email@ifttt.com",
+                new CredentialsProvider() {
+                    @Override
+                    public String getOAuthCode() {
+                        return null;
+                    }
+
+                    @Override
+                    public String getUserToken() {
+                        return null;
+                    }
+                }, Uri.EMPTY).build());
+        assertThat(countInteractiveButtons(connectButton)).isEqualTo(1);
+
+        awaitAsyncInflation(connectButton);
+        assertThat(countInteractiveButtons(connectButton)).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldDeferLoadingUntilNearViewport() throws IOException {
+        AtomicInteger userTokenRequests = new AtomicInteger();
+        Activity activity = Robolectric.buildActivity(TestActivity.class).setup().visible().get();
+        ConnectButton connectButton = new ConnectButton(activity);
+        connectButton.setup(ConnectButton.Configuration.Builder.withConnection(
+                TestUtils.loadConnection(getClass().getClassLoader()), "email@ifttt.com", new CredentialsProvider() {
+                    @Override
+                    public String getOAuthCode() {
+                        return null;
+                    }
+
+                    @Override
+                    public String getUserToken() {
+                        userTokenRequests.incrementAndGet();
+                        return null;
+                    }
+                }, Uri.EMPTY).setLazyLoading(true).build());
+
+        Robolectric.flushBackgroundThreadScheduler();
+        assertThat(userTokenRequests.get()).isEqualTo(0);
+
+        activity.addContentView(connectButton, new ViewGroup.LayoutParams(MATCH_PARENT, WRAP_CONTENT));
+        ShadowLooper.idleMainLooper();
+        Robolectric.flushBackgroundThreadScheduler();
+        assertThat(userTokenRequests.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotAccumulateLifecycleObserversWhenReloading() throws IOException {
+        // Keep the Connection loading while the button is detached and attached again.
+        FakeIftttApiServer server = new FakeIftttApiServer.Builder().setLatency(3, TimeUnit.SECONDS).build();
+        server.start();
+        try {
+            Activity activity = Robolectric.buildActivity(TestActivity.class).setup().visible().get();
+            ConnectButton connectButton = new ConnectButton(activity);
+            ConnectionApiClient client = new ConnectionApiClient.Builder(activity).setApiUrl(server.url()).build();
+            connectButton.setup(ConnectButton.Configuration.Builder.withConnectionId("123", "email@ifttt.com",
+                    new CredentialsProvider() {
+                        @Override
+                        public String getOAuthCode() {
+                            return null;
+                        }
+
+                        @Override
+                        public String getUserToken() {
+                            return null;
+                        }
+                    }, Uri.EMPTY).setConnectionApiClient(client).setLazyLoading(true).build());
+
+            LifecycleRegistry lifecycleRegistry = (LifecycleRegistry) connectButton.getLifecycle();
+            attachAndLoad(activity, connectButton);
+            int observerCount = lifecycleRegistry.getObserverCount();
+
+            // Every time the button is attached again, the Connection is loaded again.
+            for (int i = 0; i < 3; i++) {
+                ((ViewGroup) connectButton.getParent()).removeView(connectButton);
+                attachAndLoad(activity, connectButton);
+            }
+
+            assertThat(lifecycleRegistry.getObserverCount()).isEqualTo(observerCount);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldPauseLoadingPulseWhenHidden() throws IOException {
+        // Keep the Connection loading for the duration of the test, the server waits for the delayed response to be
+        // sent when shutting down, so the delay is kept short.
+        FakeIftttApiServer server = new FakeIftttApiServer.Builder().setLatency(3, TimeUnit.SECONDS).build();
+        server.start();
+        try {
+            ConnectButton connectButton = setUpAttachedButton(server, false);
+            assertThat(connectButton.isLoadingPulseRunning()).isTrue();
+
+            connectButton.setVisibility(View.INVISIBLE);
+            assertThat(connectButton.isLoadingPulseRunning()).isFalse();
+
+            connectButton.setVisibility(View.VISIBLE);
+            assertThat(connectButton.isLoadingPulseRunning()).isTrue();
+
+            ((ViewGroup) connectButton.getParent()).removeView(connectButton);
+            assertThat(connectButton.isLoadingPulseRunning()).isFalse();
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldNotAnimateStaticLoadingPlaceholder() throws IOException {
+        FakeIftttApiServer server = new FakeIftttApiServer.Builder().setLatency(3, TimeUnit.SECONDS).build();
+        server.start();
+        try {
+            ConnectButton connectButton = setUpAttachedButton(server, true);
+            assertThat(connectButton.findViewById(R.id.ifttt_loading_view).getVisibility()).isEqualTo(View.VISIBLE);
+            assertThat(connectButton.isLoadingPulseRunning()).isFalse();
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private static ConnectButton.Configuration asyncConfiguration(Connection connection) {
+        return ConnectButton.Configuration.Builder.withConnection(connection, "email@ifttt.com",
+                new CredentialsProvider() {
+                    @Override
+                    public String getOAuthCode() {
+                        return null;
+                    }
+
+                    @Override
+                    public String getUserToken() {
+                        return null;
+                    }
+                }, Uri.EMPTY).setAsyncInflation(true).build();
+    }
+
+    private static void awaitAsyncInflation(ConnectButton connectButton) {
+        // The View hierarchy is inflated on the AsyncLayoutInflater thread, and handed over to the main thread.
+        long deadline = System.currentTimeMillis() + 5000;
+        while (connectButton.isInflatingAsync() && System.currentTimeMillis() < deadline) {
+            ShadowLooper.idleMainLooper();
+            Thread.yield();
+        }
+        assertThat(connectButton.isInflatingAsync()).isFalse();
+    }
+
+    private static int countInteractiveButtons(ViewGroup connectButton) {
+        int count = 0;
+        for (int i = 0; i < connectButton.getChildCount(); i++) {
+            if (connectButton.getChildAt(i) instanceof BaseConnectButton) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private Connection enabledConnection() throws IOException {
+        Connection connection = TestUtils.loadConnection(getClass().getClassLoader());
+        return new Connection(connection.id, connection.name, connection.description, Connection.Status.enabled,
+                connection.url, connection.services, connection.coverImage, connection.valuePropositions);
+    }
+
+    private static void layout(View view) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+    }
+
+    private static StaticConnectButtonView findStaticButton(ViewGroup connectButton) {
+        for (int i = 0; i < connectButton.getChildCount(); i++) {
+            if (connectButton.getChildAt(i) instanceof StaticConnectButtonView) {
+                return (StaticConnectButtonView) connectButton.getChildAt(i);
+            }
+        }
+
+        return null;
+    }
+
+    private static void attachAndLoad(Activity activity, ConnectButton connectButton) {
+        activity.addContentView(connectButton, new ViewGroup.LayoutParams(MATCH_PARENT, WRAP_CONTENT));
+        ShadowLooper.idleMainLooper();
+        Robolectric.flushBackgroundThreadScheduler();
+        ShadowLooper.idleMainLooper();
+    }
+
+    private static ConnectButton setUpAttachedButton(FakeIftttApiServer server, boolean staticLoadingPlaceholder) {
+        Activity activity = Robolectric.buildActivity(TestActivity.class).setup().visible().get();
+        ConnectButton connectButton = new ConnectButton(activity);
+        activity.addContentView(connectButton, new ViewGroup.LayoutParams(MATCH_PARENT, WRAP_CONTENT));
+
+        ConnectionApiClient client = new ConnectionApiClient.Builder(activity).setApiUrl(server.url()).build();
+        connectButton.setup(ConnectButton.Configuration.Builder.withConnectionId("123", "email@ifttt.com",
+                new CredentialsProvider() {
+                    @Override
+                    public String getOAuthCode() {
+                        return null;
+                    }
+
+                    @Override
+                    public String getUserToken() {
+                        return null;
+                    }
+                }, Uri.EMPTY)
+                .setConnectionApiClient(client)
+                .setStaticLoadingPlaceholder(staticLoadingPlaceholder)
+                .build());
+        Robolectric.flushBackgroundThreadScheduler();
+        ShadowLooper.idleMainLooper();
+        return connectButton;
+    }
 }
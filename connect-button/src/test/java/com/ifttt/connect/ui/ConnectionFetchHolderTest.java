@@ -0,0 +1,92 @@
+package com.ifttt.connect.ui;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.ifttt.connect.Connection;
+import com.ifttt.connect.ConnectionApiClient;
+import com.ifttt.connect.ErrorResponse;
+import com.ifttt.connect.api.PendingResult;
+import com.ifttt.connect.testing.FakeIftttApiServer;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public final class ConnectionFetchHolderTest {
+
+    // Keep the fetches in flight for the duration of the tests.
+    private final FakeIftttApiServer server = new FakeIftttApiServer.Builder().setLatency(3, TimeUnit.SECONDS).build();
+    private final ConnectionFetchHolder holder = new ConnectionFetchHolder();
+    private ConnectionApiClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+        client = new ConnectionApiClient.Builder(ApplicationProvider.getApplicationContext()).setApiUrl(server.url())
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        holder.onCleared();
+        server.shutdown();
+    }
+
+    @Test
+    public void detachedFetchIsJoined() {
+        ConnectionFetchHolder.Request request = holder.fetch(client, "fake_id", new NoOpCallback());
+        request.detach();
+        assertThat(request.isWaiting()).isFalse();
+        assertThat(holder.isFetching("fake_id")).isTrue();
+
+        ConnectionFetchHolder.Request newRequest = holder.fetch(client, "fake_id", new NoOpCallback());
+        assertThat(newRequest.isWaiting()).isTrue();
+    }
+
+    @Test
+    public void fetchIsCancelledWhenNoOneWaits() {
+        ConnectionFetchHolder.Request first = holder.fetch(client, "fake_id", new NoOpCallback());
+        ConnectionFetchHolder.Request second = holder.fetch(client, "fake_id", new NoOpCallback());
+
+        first.cancel();
+        assertThat(holder.isFetching("fake_id")).isTrue();
+
+        second.cancel();
+        assertThat(holder.isFetching("fake_id")).isFalse();
+    }
+
+    @Test
+    public void fetchIsReplacedForDifferentClient() {
+        ConnectionFetchHolder.Request request = holder.fetch(client, "fake_id", new NoOpCallback());
+
+        ConnectionApiClient otherClient =
+                new ConnectionApiClient.Builder(ApplicationProvider.getApplicationContext()).setApiUrl(server.url())
+                        .build();
+        holder.fetch(otherClient, "fake_id", new NoOpCallback());
+        assertThat(request.isWaiting()).isFalse();
+        assertThat(holder.isFetching("fake_id")).isTrue();
+    }
+
+    @Test
+    public void fetchesAreCancelledWhenCleared() {
+        holder.fetch(client, "fake_id", new NoOpCallback());
+        holder.onCleared();
+
+        assertThat(holder.isFetching("fake_id")).isFalse();
+    }
+
+    private static final class NoOpCallback implements PendingResult.ResultCallback<Connection> {
+        @Override
+        public void onSuccess(Connection result) {
+        }
+
+        @Override
+        public void onFailure(ErrorResponse errorResponse) {
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.ifttt.connect.ui;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.ifttt.connect.Connection;
+import com.ifttt.connect.TestUtils;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.shadows.ShadowLooper;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public final class ConnectionStoreTest {
+
+    private final ConnectionStore store = ConnectionStore.get();
+    private Connection connection;
+
+    @Before
+    public void setUp() throws IOException {
+        connection = TestUtils.loadConnection(getClass().getClassLoader());
+    }
+
+    @After
+    public void tearDown() {
+        store.clear();
+    }
+
+    @Test
+    public void observersAreNotified() {
+        List<Connection> changes = new ArrayList<>();
+        ConnectionStore.Observer observer = changes::add;
+        store.addObserver(connection.id, observer);
+
+        Connection enabled = withStatus(connection, Connection.Status.enabled);
+        store.put(enabled);
+        assertThat(changes).containsExactly(enabled);
+        assertThat(store.get(connection.id)).isSameAs(enabled);
+
+        store.removeObserver(connection.id, observer);
+        store.put(withStatus(connection, Connection.Status.disabled));
+        assertThat(changes).containsExactly(enabled);
+        assertThat(store.getObserverCount(connection.id)).isEqualTo(0);
+    }
+
+    @Test
+    public void unknownStatusIsNotFresh() {
+        store.put(withStatus(connection, Connection.Status.unknown));
+        assertThat(store.getFresh(connection.id)).isNull();
+
+        Connection enabled = withStatus(connection, Connection.Status.enabled);
+        store.put(enabled);
+        assertThat(store.getFresh(connection.id)).isSameAs(enabled);
+    }
+
+    @Test
+    public void oldConnectionIsNotFresh() {
+        store.put(withStatus(connection, Connection.Status.enabled));
+        ShadowLooper.idleMainLooper(6, TimeUnit.MINUTES);
+
+        assertThat(store.getFresh(connection.id)).isNull();
+        assertThat(store.get(connection.id)).isNotNull();
+    }
+
+    @Test
+    public void versionedLookup() {
+        long version = store.putIfAbsent(connection);
+        assertThat(store.get(connection.id, version)).isSameAs(connection);
+
+        // The stored Connection is kept, and its version is returned.
+        assertThat(store.putIfAbsent(withStatus(connection, Connection.Status.enabled))).isEqualTo(version);
+
+        // A later version is returned in place of the saved one.
+        Connection disabled = withStatus(connection, Connection.Status.disabled);
+        store.put(disabled);
+        assertThat(store.get(connection.id, version)).isSameAs(disabled);
+
+        // The store no longer has the saved version or a later one.
+        store.clear();
+        store.put(connection);
+        assertThat(store.get(connection.id, Long.MAX_VALUE)).isNull();
+    }
+
+    private static Connection withStatus(Connection connection, Connection.Status status) {
+        return new Connection(connection.id, connection.name, connection.description, status, connection.url,
+                connection.services, connection.coverImage, connection.valuePropositions);
+    }
+}
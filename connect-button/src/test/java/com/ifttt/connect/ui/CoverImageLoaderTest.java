@@ -0,0 +1,146 @@
+package com.ifttt.connect.ui;
+
+import android.content.Context;
+import android.view.View;
+import android.widget.ImageView;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.ifttt.connect.CoverImage;
+import com.ifttt.connect.R;
+import com.ifttt.connect.testing.FakeIftttApiServer;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.shadows.ShadowLooper;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public final class CoverImageLoaderTest {
+
+    // Keep the image requests in flight long enough for them to be cancelled.
+    private final FakeIftttApiServer server =
+            new FakeIftttApiServer.Builder().setLatency(500, TimeUnit.MILLISECONDS).build();
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final TestLifecycleOwner lifecycleOwner = new TestLifecycleOwner();
+
+    private ImageView imageView;
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+        ImageLoader.get(context).onLowMemory();
+        lifecycleOwner.registry.markState(Lifecycle.State.STARTED);
+        imageView = new ImageView(context);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void loadSmallestCoveringVariant() {
+        CoverImage coverImage = coverImage("a");
+        layout(imageView, 700, 350);
+
+        CoverImageLoader.load(lifecycleOwner, imageView, coverImage, false);
+        String url = coverImage.getImageUrls().get(1);
+        assertThat(imageView.getTag(R.id.ifttt_cover_image_url)).isEqualTo(url);
+
+        awaitImage(imageView, 5000);
+        assertThat(imageView.getDrawable()).isNotNull();
+        assertThat(ImageLoader.get(context).getCachedCover(url, false)).isNotNull();
+        assertThat(server.getRequestCount(FakeIftttApiServer.Endpoint.COVER_IMAGE)).isEqualTo(1);
+    }
+
+    @Test
+    public void loadOnceLaidOut() {
+        CoverImage first = coverImage("a");
+        CoverImage second = coverImage("b");
+
+        CoverImageLoader.load(lifecycleOwner, imageView, first, false);
+        CoverImageLoader.load(lifecycleOwner, imageView, second, false);
+        // The pending request is marked with the latest cover image.
+        assertThat(imageView.getTag(R.id.ifttt_cover_image_url)).isSameAs(second);
+
+        layout(imageView, 480, 240);
+        imageView.getViewTreeObserver().dispatchOnPreDraw();
+
+        // Only the latest request is loaded.
+        assertThat(imageView.getTag(R.id.ifttt_cover_image_url)).isEqualTo(second.getImageUrls().get(0));
+        awaitImage(imageView, 5000);
+        assertThat(imageView.getDrawable()).isNotNull();
+        assertThat(ImageLoader.get(context).getCachedCover(first.getImageUrls().get(0), false)).isNull();
+        assertThat(server.getRequestCount(FakeIftttApiServer.Endpoint.COVER_IMAGE)).isEqualTo(1);
+    }
+
+    @Test
+    public void cancelWhenStopped() {
+        CoverImage coverImage = coverImage("a");
+        layout(imageView, 480, 240);
+
+        CoverImageLoader.load(lifecycleOwner, imageView, coverImage, false);
+        lifecycleOwner.registry.markState(Lifecycle.State.CREATED);
+
+        // Wait past the server latency, the cancelled request is never displayed nor cached.
+        awaitImage(imageView, 1500);
+        assertThat(imageView.getDrawable()).isNull();
+        assertThat(ImageLoader.get(context).getCachedCover(coverImage.getImageUrls().get(0), false)).isNull();
+    }
+
+    @Test
+    public void hardwareBitmapsOnlyForHardwareDrawing() {
+        ImageView hardwareAccelerated = new ImageView(context) {
+            @Override
+            public boolean isHardwareAccelerated() {
+                return true;
+            }
+        };
+        assertThat(CoverImageLoader.canDrawHardwareBitmap(hardwareAccelerated)).isTrue();
+
+        hardwareAccelerated.setLayerType(View.LAYER_TYPE_SOFTWARE, null);
+        assertThat(CoverImageLoader.canDrawHardwareBitmap(hardwareAccelerated)).isFalse();
+
+        // Not attached to a hardware accelerated window.
+        assertThat(CoverImageLoader.canDrawHardwareBitmap(imageView)).isFalse();
+    }
+
+    private CoverImage coverImage(String id) {
+        String prefix = server.url() + "/cover_images/" + id + "/";
+        return new CoverImage(prefix + "480w.png", prefix + "720w.png", prefix + "1080w.png", prefix + "1440w.png",
+                prefix + "2880w.png", prefix + "4320w.png");
+    }
+
+    private static void layout(View view, int width, int height) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, width, height);
+    }
+
+    private static void awaitImage(ImageView imageView, long timeoutMillis) {
+        // The image is loaded on the OkHttp threads, and handed over to the main thread.
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (imageView.getDrawable() == null && System.currentTimeMillis() < deadline) {
+            ShadowLooper.idleMainLooper();
+            Thread.yield();
+        }
+    }
+
+    private static final class TestLifecycleOwner implements LifecycleOwner {
+        final LifecycleRegistry registry = new LifecycleRegistry(this);
+
+        @NonNull
+        @Override
+        public Lifecycle getLifecycle() {
+            return registry;
+        }
+    }
+}
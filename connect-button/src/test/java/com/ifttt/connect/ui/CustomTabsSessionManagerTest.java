@@ -0,0 +1,190 @@
+package com.ifttt.connect.ui;
+
+import android.app.Application;
+import android.content.ComponentName;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Binder;
+import android.os.Parcel;
+import androidx.annotation.NonNull;
+import androidx.browser.customtabs.CustomTabsIntent;
+import androidx.core.app.BundleCompat;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.shadows.ShadowApplication;
+import org.robolectric.shadows.ShadowLooper;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(AndroidJUnit4.class)
+public final class CustomTabsSessionManagerTest {
+
+    private static final String BROWSER_PACKAGE = "com.android.chrome";
+
+    private final Application application = ApplicationProvider.getApplicationContext();
+    private final FakeCustomTabsService service = new FakeCustomTabsService();
+
+    private DeviceCapabilities deviceCapabilities;
+    private CustomTabsSessionManager manager;
+
+    @Before
+    public void setUp() {
+        // Keep the service connection callbacks queued until the test idles the main looper.
+        ShadowLooper.pauseMainLooper();
+        shadowOf(application).setComponentNameAndServiceForBindService(
+                new ComponentName(BROWSER_PACKAGE, "CustomTabsService"), service);
+
+        deviceCapabilities = new DeviceCapabilities();
+        manager = new CustomTabsSessionManager(application, deviceCapabilities);
+    }
+
+    @Test
+    public void bindWhenCapabilitiesAreResolved() {
+        manager.bind();
+        assertThat(manager.isBound()).isFalse();
+
+        resolveCapabilities(false);
+        assertThat(manager.isBound()).isTrue();
+    }
+
+    @Test
+    public void doNotBindWithIftttApp() {
+        resolveCapabilities(true);
+        manager.bind();
+
+        assertThat(manager.isBound()).isFalse();
+    }
+
+    @Test
+    public void doNotBindAfterUnbindBeforeResolution() {
+        manager.bind();
+        manager.unbind();
+
+        resolveCapabilities(false);
+        assertThat(manager.isBound()).isFalse();
+    }
+
+    @Test
+    public void bindAndUnbindArePaired() {
+        resolveCapabilities(false);
+        ShadowApplication shadowApplication = shadowOf(application);
+
+        manager.bind();
+        manager.bind();
+        assertThat(shadowApplication.getBoundServiceConnections()).hasSize(1);
+
+        manager.unbind();
+        assertThat(manager.isBound()).isTrue();
+        assertThat(shadowApplication.getUnboundServiceConnections()).isEmpty();
+
+        manager.unbind();
+        assertThat(manager.isBound()).isFalse();
+        assertThat(shadowApplication.getUnboundServiceConnections()).hasSize(1);
+
+        // Unbalanced calls are ignored.
+        manager.unbind();
+        assertThat(shadowApplication.getUnboundServiceConnections()).hasSize(1);
+        manager.bind();
+        assertThat(manager.isBound()).isTrue();
+    }
+
+    @Test
+    public void lifecycleObserversShareSession() {
+        resolveCapabilities(false);
+        TestLifecycleOwner first = new TestLifecycleOwner();
+        TestLifecycleOwner second = new TestLifecycleOwner();
+        first.registry.addObserver(manager.newLifecycleObserver());
+        second.registry.addObserver(manager.newLifecycleObserver());
+
+        first.registry.markState(Lifecycle.State.STARTED);
+        second.registry.markState(Lifecycle.State.STARTED);
+        assertThat(shadowOf(application).getBoundServiceConnections()).hasSize(1);
+
+        first.registry.markState(Lifecycle.State.DESTROYED);
+        assertThat(manager.isBound()).isTrue();
+
+        second.registry.markState(Lifecycle.State.DESTROYED);
+        assertThat(manager.isBound()).isFalse();
+        assertThat(shadowOf(application).getUnboundServiceConnections()).hasSize(1);
+    }
+
+    @Test
+    public void mayLaunchUrlIsDeferredUntilSessionConnects() {
+        resolveCapabilities(false);
+        manager.bind();
+
+        manager.mayLaunchUrl(Uri.parse("https://ifttt.com/connect"));
+        assertThat(service.transactions).isEqualTo(0);
+
+        // Connecting the service warms up the browser, creates the session and preloads the pending URL.
+        ShadowLooper.idleMainLooper();
+        assertThat(service.transactions).isEqualTo(3);
+
+        manager.mayLaunchUrl(Uri.parse("https://ifttt.com/connect?email=abc@efg.com"));
+        assertThat(service.transactions).isEqualTo(4);
+    }
+
+    @Test
+    public void warmUpOnlyWithoutPendingUrl() {
+        resolveCapabilities(false);
+        manager.bind();
+
+        ShadowLooper.idleMainLooper();
+        assertThat(service.transactions).isEqualTo(2);
+    }
+
+    @Test
+    public void launchUrlWithSession() {
+        resolveCapabilities(false);
+        manager.bind();
+        ShadowLooper.idleMainLooper();
+
+        Uri uri = Uri.parse("https://ifttt.com/connect");
+        manager.launchUrl(application, uri);
+
+        Intent intent = shadowOf(application).getNextStartedActivity();
+        assertThat(intent.getData()).isEqualTo(uri);
+        assertThat(intent.getPackage()).isEqualTo(BROWSER_PACKAGE);
+        assertThat(BundleCompat.getBinder(intent.getExtras(), CustomTabsIntent.EXTRA_SESSION)).isNotNull();
+    }
+
+    private void resolveCapabilities(boolean hasIftttApp) {
+        deviceCapabilities.onResolved(
+                new DeviceCapabilities.Snapshot(hasIftttApp, true, true, Collections.emptyList(), BROWSER_PACKAGE));
+    }
+
+    /**
+     * A Custom Tabs service that accepts all of the calls, and records the number of calls made through its binder.
+     */
+    private static final class FakeCustomTabsService extends Binder {
+        int transactions;
+
+        @Override
+        protected boolean onTransact(int code, @NonNull Parcel data, Parcel reply, int flags) {
+            transactions++;
+            if (reply != null) {
+                reply.writeNoException();
+                reply.writeInt(1);
+            }
+            return true;
+        }
+    }
+
+    private static final class TestLifecycleOwner implements LifecycleOwner {
+        final LifecycleRegistry registry = new LifecycleRegistry(this);
+
+        @NonNull
+        @Override
+        public Lifecycle getLifecycle() {
+            return registry;
+        }
+    }
+}
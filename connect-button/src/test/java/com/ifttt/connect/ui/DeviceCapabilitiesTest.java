@@ -0,0 +1,107 @@
+package com.ifttt.connect.ui;
+
+import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(AndroidJUnit4.class)
+public final class DeviceCapabilitiesTest {
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final PackageManager packageManager = context.getPackageManager();
+
+    @Test
+    public void resolveWithoutApps() {
+        DeviceCapabilities.Snapshot snapshot = DeviceCapabilities.resolve(context);
+
+        assertThat(snapshot.hasIftttApp).isFalse();
+        assertThat(snapshot.hasPlayStore).isFalse();
+        assertThat(snapshot.hasBrowser).isFalse();
+        assertThat(snapshot.emailApps).isEmpty();
+        assertThat(snapshot.customTabsPackage).isNull();
+    }
+
+    @Test
+    public void resolveInstalledApps() {
+        shadowOf(packageManager).addResolveInfoForIntent(ButtonApiHelper.newIftttAppIntent(),
+                resolveInfo("com.ifttt.ifttt"));
+        shadowOf(packageManager).addResolveInfoForIntent(ButtonApiHelper.newPlayStoreIntent(),
+                resolveInfo("com.android.vending"));
+        shadowOf(packageManager).addResolveInfoForIntent(ButtonApiHelper.newWebIntent("terms"),
+                resolveInfo("com.android.chrome"));
+        shadowOf(packageManager).installPackage(packageInfo("com.google.android.gm"));
+
+        DeviceCapabilities.Snapshot snapshot = DeviceCapabilities.resolve(context);
+
+        assertThat(snapshot.hasIftttApp).isTrue();
+        assertThat(snapshot.hasPlayStore).isTrue();
+        assertThat(snapshot.hasBrowser).isTrue();
+        assertThat(snapshot.emailApps).containsExactly("com.google.android.gm");
+    }
+
+    @Test
+    public void unresolvedCapabilitiesAreConservative() {
+        DeviceCapabilities capabilities = new DeviceCapabilities();
+
+        assertThat(capabilities.isResolved()).isFalse();
+        assertThat(capabilities.hasIftttApp()).isFalse();
+        assertThat(capabilities.hasPlayStore()).isFalse();
+        assertThat(capabilities.hasBrowser()).isFalse();
+        assertThat(capabilities.getEmailApps()).isEmpty();
+        assertThat(capabilities.getCustomTabsPackage()).isNull();
+    }
+
+    @Test
+    public void runCallbacksWhenResolved() {
+        DeviceCapabilities capabilities = new DeviceCapabilities();
+        List<String> calls = new ArrayList<>();
+        Runnable removed = () -> calls.add("removed");
+        capabilities.whenResolved(() -> calls.add("first"));
+        capabilities.whenResolved(removed);
+        capabilities.removeResolvedCallback(removed);
+        assertThat(calls).isEmpty();
+
+        capabilities.onResolved(
+                new DeviceCapabilities.Snapshot(true, true, true, Collections.emptyList(), "com.android.chrome"));
+        assertThat(calls).containsExactly("first");
+        assertThat(capabilities.isResolved()).isTrue();
+        assertThat(capabilities.hasIftttApp()).isTrue();
+        assertThat(capabilities.getCustomTabsPackage()).isEqualTo("com.android.chrome");
+
+        // Callbacks are only run once, and run right away after the resolution.
+        capabilities.onResolved(
+                new DeviceCapabilities.Snapshot(false, true, true, Collections.emptyList(), "com.android.chrome"));
+        capabilities.whenResolved(() -> calls.add("second"));
+        assertThat(calls).containsExactly("first", "second").inOrder();
+        assertThat(capabilities.hasIftttApp()).isFalse();
+    }
+
+    private static ResolveInfo resolveInfo(String packageName) {
+        ResolveInfo resolveInfo = new ResolveInfo();
+        resolveInfo.activityInfo = new ActivityInfo();
+        resolveInfo.activityInfo.packageName = packageName;
+        resolveInfo.activityInfo.name = packageName + ".MainActivity";
+        return resolveInfo;
+    }
+
+    private static PackageInfo packageInfo(String packageName) {
+        PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = packageName;
+        packageInfo.applicationInfo = new ApplicationInfo();
+        packageInfo.applicationInfo.packageName = packageName;
+        return packageInfo;
+    }
+}
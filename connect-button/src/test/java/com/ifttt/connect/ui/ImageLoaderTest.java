@@ -0,0 +1,167 @@
+package com.ifttt.connect.ui;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.os.Build;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public final class ImageLoaderTest {
+
+    private static final int BITMAP_SIZE = 32 * 32 * 4;
+
+    private ImageLoader imageLoader;
+
+    @Before
+    public void setUp() {
+        imageLoader = ImageLoader.get(ApplicationProvider.getApplicationContext());
+        imageLoader.setCacheSize(4 * BITMAP_SIZE);
+        imageLoader.setCoverCacheSize(4 * BITMAP_SIZE);
+        imageLoader.onLowMemory();
+    }
+
+    @Test
+    public void defaultCacheSize() {
+        assertThat(ImageLoader.defaultCacheSize(64, false)).isEqualTo(2 * 1024 * 1024);
+        assertThat(ImageLoader.defaultCacheSize(256, false)).isEqualTo(8 * 1024 * 1024);
+        assertThat(ImageLoader.defaultCacheSize(256, true)).isEqualTo(4 * 1024 * 1024);
+        assertThat(ImageLoader.defaultCacheSize(16, true)).isEqualTo(1024 * 1024);
+        assertThat(ImageLoader.defaultCacheSize(1024, false)).isEqualTo(16 * 1024 * 1024);
+    }
+
+    @Test
+    public void trimMemoryWhenUiHidden() {
+        fillCache();
+
+        imageLoader.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+        assertThat(imageLoader.getCachedSize()).isEqualTo(2 * BITMAP_SIZE);
+    }
+
+    @Test
+    public void trimMemoryRunningModerate() {
+        fillCache();
+
+        imageLoader.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+
+        assertThat(imageLoader.getCachedSize()).isEqualTo(4 * BITMAP_SIZE);
+    }
+
+    @Test
+    public void clearOnTrimMemoryModerate() {
+        fillCache();
+
+        imageLoader.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_MODERATE);
+
+        assertThat(imageLoader.getCachedSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void clearOnTrimMemoryRunningCritical() {
+        fillCache();
+
+        imageLoader.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+
+        assertThat(imageLoader.getCachedSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void setCacheSizeEvicts() {
+        fillCache();
+
+        ConnectButton.setImageCacheSize(ApplicationProvider.getApplicationContext(), BITMAP_SIZE);
+
+        assertThat(imageLoader.getCachedSize()).isEqualTo(BITMAP_SIZE);
+        assertThat(ConnectButton.getImageCacheSize(ApplicationProvider.getApplicationContext())).isEqualTo(
+                BITMAP_SIZE);
+    }
+
+    @Test
+    public void setCoverCacheSizeEvicts() {
+        for (int i = 0; i < 4; i++) {
+            imageLoader.putCachedCover("https://ifttt.com/cover" + i,
+                    Bitmap.createBitmap(32, 32, Bitmap.Config.ARGB_8888));
+        }
+        fillCache();
+
+        ConnectButton.setCoverImageCacheSize(ApplicationProvider.getApplicationContext(), BITMAP_SIZE);
+
+        assertThat(imageLoader.getCachedCoverSize()).isEqualTo(BITMAP_SIZE);
+        assertThat(ConnectButton.getCoverImageCacheSize(ApplicationProvider.getApplicationContext())).isEqualTo(
+                BITMAP_SIZE);
+        // The icon cache is sized independently.
+        assertThat(imageLoader.getCachedSize()).isEqualTo(4 * BITMAP_SIZE);
+        assertThat(ConnectButton.getImageCacheSize(ApplicationProvider.getApplicationContext())).isEqualTo(
+                4 * BITMAP_SIZE);
+    }
+
+    @Test
+    public void hardwareCoverIsCopiedOnceForSoftwareDrawing() {
+        Bitmap hardware = Bitmap.createBitmap(32, 32, Bitmap.Config.ARGB_8888).copy(Bitmap.Config.HARDWARE, false);
+        imageLoader.putCachedCover("https://ifttt.com/cover", hardware);
+        assertThat(imageLoader.getCachedCover("https://ifttt.com/cover", true)).isSameAs(hardware);
+
+        Bitmap software = imageLoader.getCachedCover("https://ifttt.com/cover", false);
+        assertThat(software.getConfig()).isEqualTo(Bitmap.Config.ARGB_8888);
+
+        // The copy replaces the hardware Bitmap in the cache.
+        assertThat(imageLoader.getCachedCover("https://ifttt.com/cover", false)).isSameAs(software);
+        assertThat(imageLoader.getCachedCover("https://ifttt.com/cover", true)).isSameAs(software);
+    }
+
+    @Test
+    public void softwareCoverIsNotCopied() {
+        Bitmap bitmap = Bitmap.createBitmap(32, 32, Bitmap.Config.ARGB_8888);
+        imageLoader.putCachedCover("https://ifttt.com/cover", bitmap);
+
+        assertThat(imageLoader.getCachedCover("https://ifttt.com/cover", false)).isSameAs(bitmap);
+        assertThat(imageLoader.getCachedCover("https://ifttt.com/cover", true)).isSameAs(bitmap);
+    }
+
+    @Test
+    public void decodeHardwareOnlyWhenAllowed() {
+        assertThat(ImageLoader.shouldDecodeHardware(true)).isTrue();
+        assertThat(ImageLoader.shouldDecodeHardware(false)).isFalse();
+    }
+
+    @Test
+    @Config(sdk = Build.VERSION_CODES.N_MR1)
+    public void decodeSoftwareBeforeHardwareBitmaps() {
+        assertThat(ImageLoader.shouldDecodeHardware(true)).isFalse();
+    }
+
+    @Test
+    public void coversDoNotEvictIcons() {
+        fillCache();
+
+        imageLoader.putCachedCover("https://ifttt.com/cover", Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888));
+
+        assertThat(imageLoader.getCachedSize()).isEqualTo(4 * BITMAP_SIZE);
+        assertThat(imageLoader.getCachedCoverSize()).isEqualTo(4 * BITMAP_SIZE);
+    }
+
+    @Test
+    public void trimCoversWithIcons() {
+        fillCache();
+        imageLoader.putCachedCover("https://ifttt.com/cover", Bitmap.createBitmap(32, 32, Bitmap.Config.ARGB_8888));
+
+        imageLoader.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_MODERATE);
+
+        assertThat(imageLoader.getCachedSize()).isEqualTo(0);
+        assertThat(imageLoader.getCachedCoverSize()).isEqualTo(0);
+    }
+
+    private void fillCache() {
+        for (int i = 0; i < 4; i++) {
+            imageLoader.putCached("https://ifttt.com/icon" + i, Bitmap.createBitmap(32, 32, Bitmap.Config.ARGB_8888));
+        }
+        assertThat(imageLoader.getCachedSize()).isEqualTo(4 * BITMAP_SIZE);
+    }
+}
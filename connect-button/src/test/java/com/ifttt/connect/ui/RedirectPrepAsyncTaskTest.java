@@ -0,0 +1,50 @@
+package com.ifttt.connect.ui;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.ifttt.connect.ConnectionApiClient;
+import com.ifttt.connect.testing.FakeIftttApiServer;
+import java.io.IOException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public final class RedirectPrepAsyncTaskTest {
+
+    private final FakeIftttApiServer server = new FakeIftttApiServer.Builder().build();
+    private ConnectionApiClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+        client = new ConnectionApiClient.Builder(ApplicationProvider.getApplicationContext()).setApiUrl(server.url())
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void findAccountWithClientApiUrl() {
+        server.addAccount("abc@efg.com");
+
+        RedirectPrepAsyncTask.PrepResult found = newTask("abc@efg.com").doInBackground();
+        assertThat(found.accountFound).isTrue();
+        assertThat(server.getRequestCount(FakeIftttApiServer.Endpoint.FIND_ACCOUNT)).isEqualTo(1);
+
+        RedirectPrepAsyncTask.PrepResult notFound = newTask("new@efg.com").doInBackground();
+        assertThat(notFound.accountFound).isFalse();
+        assertThat(server.getRequestCount(FakeIftttApiServer.Endpoint.FIND_ACCOUNT)).isEqualTo(2);
+    }
+
+    private RedirectPrepAsyncTask newTask(String email) {
+        return new RedirectPrepAsyncTask(null, client.getApiUrl(), email, result -> {
+        });
+    }
+}
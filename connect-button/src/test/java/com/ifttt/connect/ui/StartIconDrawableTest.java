@@ -1,11 +1,25 @@
 package com.ifttt.connect.ui;
 
+import android.animation.ArgbEvaluator;
+import android.animation.ValueAnimator;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.shapes.Shape;
+import androidx.test.core.app.ApplicationProvider;
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 
 import static android.graphics.Color.parseColor;
 import static com.google.common.truth.Truth.assertThat;
+import static com.ifttt.connect.ui.ButtonUiHelper.interpolateColor;
+import static com.ifttt.connect.ui.ButtonUiHelper.newMonochromeIconDrawable;
 import static com.ifttt.connect.ui.StartIconDrawable.isDarkColor;
 
 @RunWith(RobolectricTestRunner.class)
@@ -27,4 +41,101 @@ public final class StartIconDrawableTest {
         assertThat(isDarkColor(parseColor(colors[7]))).isTrue();
         assertThat(isDarkColor(parseColor(colors[8]))).isFalse();
     }
+
+    @Test
+    public void morphAnimatorReusesBackgroundShape() {
+        Context context = ApplicationProvider.getApplicationContext();
+        StartIconDrawable drawable = new StartIconDrawable(context, new ColorDrawable(Color.RED), 20, 40, false);
+        drawable.setBounds(0, 0, 100, 50);
+        drawable.setBackgroundColor(Color.BLUE);
+
+        // A morph frame only mutates the existing shape and paint, it doesn't allocate new ones.
+        Shape shape = drawable.getBackgroundShape();
+        Paint paint = drawable.getBackgroundPaint();
+        ValueAnimator animator = (ValueAnimator) drawable.getMorphAnimator();
+        for (int i = 0; i <= 10; i++) {
+            animator.setCurrentFraction(i / 10f);
+            assertThat(drawable.getBackgroundShape()).isSameAs(shape);
+            assertThat(drawable.getBackgroundPaint()).isSameAs(paint);
+        }
+
+        drawable.reset();
+        assertThat(drawable.getBackgroundShape()).isSameAs(shape);
+    }
+
+    @Test
+    public void borderIsNotMorphed() {
+        Context context = ApplicationProvider.getApplicationContext();
+        StartIconDrawable drawable = new StartIconDrawable(context, new ColorDrawable(Color.RED), 20, 40, false);
+        drawable.setBounds(0, 0, 100, 50);
+
+        StartIconDrawable.MorphingRoundRectShape border =
+                (StartIconDrawable.MorphingRoundRectShape) drawable.getBorderShape();
+        assertThat(border).isNotSameAs(drawable.getBackgroundShape());
+
+        ValueAnimator animator = (ValueAnimator) drawable.getMorphAnimator();
+        animator.setCurrentFraction(1f);
+
+        StartIconDrawable.MorphingRoundRectShape background =
+                (StartIconDrawable.MorphingRoundRectShape) drawable.getBackgroundShape();
+        assertThat(background.getStartRadius()).isEqualTo(0f);
+        assertThat(border.getStartRadius()).isEqualTo(20f);
+        assertThat(border.getEndRadius()).isEqualTo(20f);
+    }
+
+    @Test
+    public void monochromeIconKeepsTintWhenFading() {
+        Context context = ApplicationProvider.getApplicationContext();
+        Bitmap mask = Bitmap.createBitmap(20, 20, Bitmap.Config.ALPHA_8);
+        BitmapDrawable icon = newMonochromeIconDrawable(context.getResources(), mask, Color.WHITE);
+        StartIconDrawable drawable = new StartIconDrawable(context, icon, 20, 40, false);
+        drawable.setBounds(0, 0, 100, 50);
+
+        ValueAnimator animator = (ValueAnimator) drawable.getMorphAnimator();
+        animator.setCurrentFraction(0.5f);
+
+        assertThat(icon.getPaint().getAlpha()).isEqualTo(127);
+        assertThat(icon.getPaint().getColor() & 0xFFFFFF).isEqualTo(Color.WHITE & 0xFFFFFF);
+    }
+
+    @Test
+    public void interpolateColorMatchesArgbEvaluator() {
+        ArgbEvaluator evaluator = new ArgbEvaluator();
+        int startColor = parseColor("#3B579D");
+        int endColor = parseColor("#1ED760");
+        for (int i = 0; i <= 10; i++) {
+            float fraction = i / 10f;
+            assertThat(interpolateColor(fraction, startColor, endColor)).isEqualTo(
+                    evaluator.evaluate(fraction, startColor, endColor));
+        }
+    }
+
+    @Test
+    public void interpolateColorDoesNotAllocate() {
+        int startColor = parseColor("#3B579D");
+        int endColor = parseColor("#1ED760");
+        Runnable frames = () -> {
+            for (int i = 0; i <= 1000; i++) {
+                interpolateColor(i / 1000f, startColor, endColor);
+            }
+        };
+
+        // Warm up.
+        frames.run();
+
+        assertThat(allocatedBytes(frames)).isEqualTo(0L);
+    }
+
+    private static long allocatedBytes(Runnable runnable) {
+        ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // Measure the allocations made by the measurement itself, so that they can be excluded from the result.
+        long start = threadMXBean.getThreadAllocatedBytes(threadId);
+        long overhead = threadMXBean.getThreadAllocatedBytes(threadId) - start;
+
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        runnable.run();
+        return threadMXBean.getThreadAllocatedBytes(threadId) - before - overhead;
+    }
 }
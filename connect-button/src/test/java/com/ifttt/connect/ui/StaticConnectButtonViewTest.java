@@ -0,0 +1,92 @@
+package com.ifttt.connect.ui;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.view.View;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.ifttt.connect.Connection;
+import com.ifttt.connect.R;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.ifttt.connect.TestUtils.loadConnection;
+
+@RunWith(AndroidJUnit4.class)
+public final class StaticConnectButtonViewTest {
+
+    private StaticConnectButtonView view;
+    private int buttonWidth;
+    private int buttonHeight;
+
+    @Before
+    public void setUp() {
+        view = new StaticConnectButtonView(ApplicationProvider.getApplicationContext());
+        view.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+
+        buttonWidth = view.getResources().getDimensionPixelSize(R.dimen.ifttt_connect_button_width);
+        buttonHeight = view.getResources().getDimensionPixelSize(R.dimen.ifttt_connect_button_height);
+    }
+
+    @Test
+    public void drawLoading() {
+        view.setConnection(null);
+
+        RecordingCanvas canvas = new RecordingCanvas();
+        view.draw(canvas);
+
+        assertThat(canvas.texts).contains(view.getResources().getString(R.string.ifttt_loading));
+        assertThat(view.getContentDescription().toString()).isEqualTo(
+                view.getResources().getString(R.string.ifttt_loading));
+    }
+
+    @Test
+    public void drawInitial() throws IOException {
+        view.setConnection(loadConnection(getClass().getClassLoader()));
+
+        RecordingCanvas canvas = new RecordingCanvas();
+        view.draw(canvas);
+
+        assertThat(canvas.texts).contains("Connect Twitter");
+        // The icon is drawn at the start of the button.
+        assertThat(canvas.translations).doesNotContain((float) (buttonWidth - buttonHeight));
+    }
+
+    @Test
+    public void drawEnabled() throws IOException {
+        Connection connection = loadConnection(getClass().getClassLoader());
+        view.setConnection(
+                new Connection(connection.id, connection.name, connection.description, Connection.Status.enabled,
+                        connection.url, connection.services, connection.coverImage, connection.valuePropositions));
+
+        RecordingCanvas canvas = new RecordingCanvas();
+        view.draw(canvas);
+
+        assertThat(canvas.texts).contains(view.getResources().getString(R.string.ifttt_connected));
+        // The icon is drawn at the end of the button.
+        assertThat(canvas.translations).contains((float) (buttonWidth - buttonHeight));
+    }
+
+    private static final class RecordingCanvas extends Canvas {
+        final List<String> texts = new ArrayList<>();
+        final List<Float> translations = new ArrayList<>();
+
+        @Override
+        public void drawText(CharSequence text, int start, int end, float x, float y, Paint paint) {
+            texts.add(text.subSequence(start, end).toString());
+        }
+
+        @Override
+        public void translate(float dx, float dy) {
+            translations.add(dx);
+            super.translate(dx, dy);
+        }
+    }
+}
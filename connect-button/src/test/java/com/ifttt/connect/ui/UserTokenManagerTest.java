@@ -0,0 +1,131 @@
+package com.ifttt.connect.ui;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowLooper;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(AndroidJUnit4.class)
+public final class UserTokenManagerTest {
+
+    private final UserTokenManager userTokenManager = UserTokenManager.get();
+
+    @After
+    public void tearDown() {
+        userTokenManager.invalidate();
+    }
+
+    @Test
+    public void concurrentRequestsShareOneCall() {
+        CountingCredentialsProvider provider = new CountingCredentialsProvider("token");
+        List<String> tokens = new ArrayList<>();
+
+        userTokenManager.getUserToken(CredentialsProviders.fromBlocking(provider), tokens::add);
+        userTokenManager.getUserToken(CredentialsProviders.fromBlocking(provider), tokens::add);
+        flush();
+
+        assertThat(provider.count.get()).isEqualTo(1);
+        assertThat(tokens).containsExactly("token", "token");
+
+        // The token is cached.
+        userTokenManager.getUserToken(CredentialsProviders.fromBlocking(provider), tokens::add);
+        assertThat(provider.count.get()).isEqualTo(1);
+        assertThat(tokens).containsExactly("token", "token", "token");
+    }
+
+    @Test
+    public void invalidateFetchesAgain() {
+        CountingCredentialsProvider provider = new CountingCredentialsProvider("token");
+        userTokenManager.getUserToken(CredentialsProviders.fromBlocking(provider), token -> { });
+        flush();
+
+        userTokenManager.invalidate();
+        userTokenManager.getUserToken(CredentialsProviders.fromBlocking(provider), token -> { });
+        flush();
+
+        assertThat(provider.count.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void nullTokenIsNotCached() {
+        CountingCredentialsProvider provider = new CountingCredentialsProvider(null);
+        userTokenManager.getUserToken(CredentialsProviders.fromBlocking(provider), token -> { });
+        flush();
+        userTokenManager.getUserToken(CredentialsProviders.fromBlocking(provider), token -> { });
+        flush();
+
+        assertThat(provider.count.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void removedCallbackIsNotInvoked() {
+        CountingCredentialsProvider provider = new CountingCredentialsProvider("token");
+        List<String> tokens = new ArrayList<>();
+        UserTokenManager.UserTokenCallback removed = token -> tokens.add("removed");
+
+        userTokenManager.getUserToken(CredentialsProviders.fromBlocking(provider), removed);
+        userTokenManager.getUserToken(CredentialsProviders.fromBlocking(provider), tokens::add);
+        userTokenManager.removeCallback(removed);
+        flush();
+
+        assertThat(tokens).containsExactly("token");
+    }
+
+    @Test
+    public void asyncProviderIsCalledOnce() {
+        List<AsyncCredentialsProvider.Callback> requests = new ArrayList<>();
+        AsyncCredentialsProvider provider = new AsyncCredentialsProvider() {
+            @Override
+            public void getOAuthCode(Callback callback) {
+                callback.onResult(null);
+            }
+
+            @Override
+            public void getUserToken(Callback callback) {
+                requests.add(callback);
+            }
+        };
+        List<String> tokens = new ArrayList<>();
+
+        userTokenManager.getUserToken(provider, tokens::add);
+        userTokenManager.getUserToken(provider, tokens::add);
+        assertThat(requests).hasSize(1);
+
+        requests.get(0).onResult("token");
+        assertThat(tokens).containsExactly("token", "token");
+    }
+
+    private static void flush() {
+        Robolectric.flushBackgroundThreadScheduler();
+        ShadowLooper.idleMainLooper();
+    }
+
+    private static final class CountingCredentialsProvider implements CredentialsProvider {
+
+        private final AtomicInteger count = new AtomicInteger();
+        @Nullable private final String token;
+
+        private CountingCredentialsProvider(@Nullable String token) {
+            this.token = token;
+        }
+
+        @Override
+        public String getOAuthCode() {
+            return null;
+        }
+
+        @Override
+        public String getUserToken() {
+            count.incrementAndGet();
+            return token;
+        }
+    }
+}
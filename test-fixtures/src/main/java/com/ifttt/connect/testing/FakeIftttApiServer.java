@@ -0,0 +1,420 @@
+package com.ifttt.connect.testing;
+
+import com.squareup.moshi.JsonWriter;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.ByteString;
+
+/**
+ * An embedded stand-in for the IFTTT API, used by tests and benchmarks that need to run without network access. It
+ * implements the endpoints used by the SDK:
+ * <ul>
+ * <li>GET /v2/connections/{id}</li>
+ * <li>POST /v2/connections/{id}/disable</li>
+ * <li>GET /v2/me</li>
+ * <li>GET /v2/me/connections?cursor={cursor}&amp;limit={limit}, listing the Connections that have been enabled, sorted
+ * by id. The cursor of a page is the id of its last Connection.</li>
+ * <li>GET /v2/account/find</li>
+ * <li>GET /icons/{service id}/{name}.png, for the service icon URLs in the Connection responses</li>
+ * <li>GET /cover_images/{id}/{width}w.png, for the cover image URLs in the Connection responses</li>
+ * </ul>
+ *
+ * Responses can be delayed, throttled and randomly failed to simulate a slow or unreliable network, and the server
+ * counts the requests made to each endpoint. To get an instance, use {@link Builder}.
+ */
+public final class FakeIftttApiServer {
+
+    /**
+     * The endpoints implemented by the server, used for request accounting.
+     */
+    public enum Endpoint {
+        SHOW_CONNECTION, DISABLE_CONNECTION, USER, LIST_CONNECTIONS, FIND_ACCOUNT, ICON, COVER_IMAGE, UNKNOWN
+    }
+
+    public static final String STATUS_NEVER_ENABLED = "never_enabled";
+    public static final String STATUS_ENABLED = "enabled";
+    public static final String STATUS_DISABLED = "disabled";
+
+    private static final int DEFAULT_LIST_LIMIT = 20;
+
+    private static final int[] COVER_IMAGE_WIDTHS = { 480, 720, 1080, 1440, 2880, 4320 };
+
+    // An 8x8 white PNG image, served for both the service icons and the cover images.
+    private static final ByteString IMAGE_PNG = ByteString.decodeBase64(
+            "iVBORw0KGgoAAAANSUhEUgAAAAgAAAAICAIAAABLbSncAAAAD0lEQVR4nGP4jwMwDC0JALoev0Ewkwr8AAAAAElFTkSuQmCC");
+
+    private final MockWebServer server = new MockWebServer();
+    private final long latencyMillis;
+    private final long bytesPerSecond;
+    private final double errorRate;
+    private final Random random;
+
+    private final Map<String, String> connectionStatuses = new ConcurrentHashMap<>();
+    private final Set<String> accounts = new HashSet<>();
+    private final Map<Endpoint, Integer> requestCounts = new EnumMap<>(Endpoint.class);
+
+    @Nullable private volatile String userLogin;
+
+    private FakeIftttApiServer(long latencyMillis, long bytesPerSecond, double errorRate, Random random) {
+        this.latencyMillis = latencyMillis;
+        this.bytesPerSecond = bytesPerSecond;
+        this.errorRate = errorRate;
+        this.random = random;
+
+        server.setDispatcher(new ApiDispatcher());
+    }
+
+    public void start() throws IOException {
+        server.start();
+    }
+
+    public void shutdown() throws IOException {
+        server.shutdown();
+    }
+
+    /**
+     * @return The base URL of the server, to be used with {@code ConnectionApiClient.Builder#setApiUrl(String)}.
+     */
+    public String url() {
+        String url = server.url("/").toString();
+        return url.substring(0, url.length() - 1);
+    }
+
+    /**
+     * Set the user status of a Connection. Connections that haven't been set up with this method are returned with
+     * {@link #STATUS_NEVER_ENABLED}.
+     *
+     * @param id Connection id.
+     * @param status One of {@link #STATUS_NEVER_ENABLED}, {@link #STATUS_ENABLED} or {@link #STATUS_DISABLED}.
+     */
+    public void setConnectionStatus(String id, String status) {
+        connectionStatuses.put(id, status);
+    }
+
+    public String getConnectionStatus(String id) {
+        String status = connectionStatuses.get(id);
+        return status == null ? STATUS_NEVER_ENABLED : status;
+    }
+
+    /**
+     * Set the login of the authenticated user returned by /v2/me. If null, /v2/me and /v2/me/connections respond
+     * with 401.
+     */
+    public void setUserLogin(@Nullable String userLogin) {
+        this.userLogin = userLogin;
+    }
+
+    /**
+     * Add an IFTTT account that can be found by /v2/account/find.
+     */
+    public void addAccount(String email) {
+        synchronized (accounts) {
+            accounts.add(email);
+        }
+    }
+
+    /**
+     * @return Number of requests made to the given endpoint, including failed ones.
+     */
+    public int getRequestCount(Endpoint endpoint) {
+        synchronized (requestCounts) {
+            Integer count = requestCounts.get(endpoint);
+            return count == null ? 0 : count;
+        }
+    }
+
+    /**
+     * @return Number of requests made to the server.
+     */
+    public int getRequestCount() {
+        return server.getRequestCount();
+    }
+
+    public void resetRequestCounts() {
+        synchronized (requestCounts) {
+            requestCounts.clear();
+        }
+    }
+
+    private final class ApiDispatcher extends Dispatcher {
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            HttpUrl requestUrl = request.getRequestUrl();
+            String path = requestUrl.encodedPath();
+            Endpoint endpoint = endpoint(request.getMethod(), path);
+            synchronized (requestCounts) {
+                Integer count = requestCounts.get(endpoint);
+                requestCounts.put(endpoint, count == null ? 1 : count + 1);
+            }
+
+            return shape(respond(endpoint, requestUrl, path));
+        }
+
+        private MockResponse respond(Endpoint endpoint, HttpUrl requestUrl, String path) {
+            boolean isImage = endpoint == Endpoint.ICON || endpoint == Endpoint.COVER_IMAGE;
+            if (endpoint != Endpoint.UNKNOWN && !isImage && shouldFail()) {
+                return errorResponse(503, "service_unavailable", "Injected failure");
+            }
+
+            switch (endpoint) {
+                case SHOW_CONNECTION: {
+                    String id = path.substring("/v2/connections/".length());
+                    return jsonResponse(writer -> writeConnection(writer, id));
+                }
+                case DISABLE_CONNECTION: {
+                    String id = path.substring("/v2/connections/".length(), path.length() - "/disable".length());
+                    setConnectionStatus(id, STATUS_DISABLED);
+                    return jsonResponse(writer -> writeConnection(writer, id));
+                }
+                case USER: {
+                    String login = userLogin;
+                    if (login == null) {
+                        return errorResponse(401, "unauthorized", "Missing user token");
+                    }
+
+                    return jsonResponse(writer -> writeUser(writer, login));
+                }
+                case LIST_CONNECTIONS: {
+                    if (userLogin == null) {
+                        return errorResponse(401, "unauthorized", "Missing user token");
+                    }
+
+                    String cursor = requestUrl.queryParameter("cursor");
+                    String limit = requestUrl.queryParameter("limit");
+                    int pageSize = limit == null ? DEFAULT_LIST_LIMIT : Integer.parseInt(limit);
+                    return jsonResponse(writer -> writeConnectionList(writer, cursor, pageSize));
+                }
+                case FIND_ACCOUNT: {
+                    String email = requestUrl.queryParameter("email");
+                    synchronized (accounts) {
+                        return new MockResponse().setResponseCode(accounts.contains(email) ? 200 : 404);
+                    }
+                }
+                case ICON:
+                case COVER_IMAGE:
+                    return imageResponse();
+                default:
+                    return new MockResponse().setResponseCode(404);
+            }
+        }
+
+        private MockResponse shape(MockResponse response) {
+            if (latencyMillis > 0) {
+                response.setHeadersDelay(latencyMillis, TimeUnit.MILLISECONDS);
+            }
+
+            if (bytesPerSecond > 0) {
+                response.throttleBody(bytesPerSecond, 1, TimeUnit.SECONDS);
+            }
+
+            return response;
+        }
+
+        private boolean shouldFail() {
+            if (errorRate <= 0) {
+                return false;
+            }
+
+            synchronized (random) {
+                return random.nextDouble() < errorRate;
+            }
+        }
+    }
+
+    private static Endpoint endpoint(String method, String path) {
+        if (path.startsWith("/v2/connections/")) {
+            if ("POST".equals(method) && path.endsWith("/disable")) {
+                return Endpoint.DISABLE_CONNECTION;
+            }
+
+            if ("GET".equals(method) && path.indexOf('/', "/v2/connections/".length()) == -1) {
+                return Endpoint.SHOW_CONNECTION;
+            }
+        } else if ("/v2/me".equals(path)) {
+            return Endpoint.USER;
+        } else if ("/v2/me/connections".equals(path) && "GET".equals(method)) {
+            return Endpoint.LIST_CONNECTIONS;
+        } else if ("/v2/account/find".equals(path)) {
+            return Endpoint.FIND_ACCOUNT;
+        } else if (path.startsWith("/icons/")) {
+            return Endpoint.ICON;
+        } else if (path.startsWith("/cover_images/")) {
+            return Endpoint.COVER_IMAGE;
+        }
+
+        return Endpoint.UNKNOWN;
+    }
+
+    private static MockResponse jsonResponse(JsonBody body) {
+        Buffer buffer = new Buffer();
+        try (JsonWriter writer = JsonWriter.of(buffer)) {
+            writer.setSerializeNulls(true);
+            body.writeTo(writer);
+        } catch (IOException e) {
+            // Writing to a Buffer doesn't do any I/O.
+            throw new AssertionError(e);
+        }
+
+        return new MockResponse().setHeader("Content-Type", "application/json").setBody(buffer);
+    }
+
+    private static MockResponse errorResponse(int code, String errorCode, String message) {
+        return jsonResponse(writer -> writer.beginObject()
+                .name("code").value(errorCode)
+                .name("message").value(message)
+                .endObject()).setResponseCode(code);
+    }
+
+    private static MockResponse imageResponse() {
+        return new MockResponse().setHeader("Content-Type", "image/png").setBody(new Buffer().write(IMAGE_PNG));
+    }
+
+    private static void writeUser(JsonWriter writer, String login) throws IOException {
+        writer.beginObject()
+                .name("authentication_level").value("user")
+                .name("user_login").value(login)
+                .endObject();
+    }
+
+    private void writeConnection(JsonWriter writer, String id) throws IOException {
+        writer.beginObject()
+                .name("type").value("connection")
+                .name("id").value(id)
+                .name("name").value("Connection " + id)
+                .name("description").value("Connection served by the fake IFTTT API server")
+                .name("published_at").value("2017-02-16T11:10:43-08:00")
+                .name("user_status").value(getConnectionStatus(id));
+
+        writer.name("services").beginArray();
+        writeService(writer, "grocery_express", "Grocery Express", false, "#f4a53a");
+        writeService(writer, "fake_service", "Fake Service", true, "#3b579d");
+        writer.endArray();
+
+        writer.name("value_propositions").beginArray().endArray();
+
+        writer.name("cover_image").beginObject();
+        for (int width : COVER_IMAGE_WIDTHS) {
+            writer.name(width + "w_url").value(url() + "/cover_images/" + id + "/" + width + "w.png");
+        }
+        writer.endObject();
+
+        writer.name("url").value("https://ifttt.com/applets/" + id).endObject();
+    }
+
+    private void writeConnectionList(JsonWriter writer, @Nullable String cursor, int limit) throws IOException {
+        TreeSet<String> ids = new TreeSet<>();
+        for (Map.Entry<String, String> entry : connectionStatuses.entrySet()) {
+            if (!STATUS_NEVER_ENABLED.equals(entry.getValue())) {
+                ids.add(entry.getKey());
+            }
+        }
+
+        writer.beginObject().name("data").beginArray();
+        String lastId = null;
+        int count = 0;
+        for (String id : cursor == null ? ids : ids.tailSet(cursor, false)) {
+            if (count == limit) {
+                break;
+            }
+
+            writeConnection(writer, id);
+            lastId = id;
+            count++;
+        }
+        writer.endArray();
+
+        boolean hasMore = lastId != null && ids.higher(lastId) != null;
+        writer.name("next_cursor").value(hasMore ? lastId : null).endObject();
+    }
+
+    private void writeService(JsonWriter writer, String id, String name, boolean isPrimary, String brandColor)
+            throws IOException {
+        String iconUrl = url() + "/icons/" + id;
+        writer.beginObject()
+                .name("service_id").value(id)
+                .name("service_name").value(name)
+                .name("service_short_name").value(name)
+                .name("is_primary").value(isPrimary)
+                .name("monochrome_icon_url").value(iconUrl + "/monochrome.png")
+                .name("color_icon_url").value(iconUrl + "/color.png")
+                .name("brand_color").value(brandColor)
+                .name("url").value("https://ifttt.com/" + id)
+                .endObject();
+    }
+
+    /**
+     * Writes a response body, so that the strings in it are escaped by {@link JsonWriter}.
+     */
+    private interface JsonBody {
+        void writeTo(JsonWriter writer) throws IOException;
+    }
+
+    /**
+     * Builder class to get a {@link FakeIftttApiServer} instance.
+     */
+    public static final class Builder {
+
+        private long latencyMillis = 0;
+        private long bytesPerSecond = 0;
+        private double errorRate = 0;
+        private long randomSeed = 0;
+
+        /**
+         * Delay every response by the given amount of time before its headers are sent.
+         */
+        public Builder setLatency(long latency, TimeUnit unit) {
+            this.latencyMillis = unit.toMillis(latency);
+            return this;
+        }
+
+        /**
+         * Throttle the response bodies to the given bandwidth. 0 means no throttling.
+         */
+        public Builder setBandwidth(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+            return this;
+        }
+
+        /**
+         * Fail the given fraction of the API requests with a 503 response. Icon and cover image requests are never
+         * failed.
+         *
+         * @param errorRate A value between 0 and 1.
+         */
+        public Builder setErrorRate(double errorRate) {
+            if (errorRate < 0 || errorRate > 1) {
+                throw new IllegalArgumentException("Error rate must be between 0 and 1: " + errorRate);
+            }
+
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        /**
+         * Seed used to decide which requests fail, so that the failures are deterministic across runs.
+         */
+        public Builder setRandomSeed(long randomSeed) {
+            this.randomSeed = randomSeed;
+            return this;
+        }
+
+        public FakeIftttApiServer build() {
+            return new FakeIftttApiServer(latencyMillis, bytesPerSecond, errorRate, new Random(randomSeed));
+        }
+    }
+}